@@ -0,0 +1,88 @@
+package com.swervedrivespecialties.swervelib;
+
+/**
+ * Builds real SDS swerve modules around controllers that just remember what
+ * they were told, so the module math can be benchmarked without any hardware.
+ */
+public final class BenchmarkModules {
+    private BenchmarkModules() {
+    }
+
+    public static SwerveModule create() {
+        return new SwerveModuleFactory<Integer, Integer>(
+                SdsModuleConfigurations.MK4I_L2,
+                (driveConfiguration, moduleConfiguration) -> new FakeDriveController(),
+                (steerConfiguration, moduleConfiguration) -> new FakeSteerController()
+        ).create(0, 0);
+    }
+
+    /**
+     * Gets the voltage the module last set on its drive controller.
+     */
+    public static double getDriveVoltage(SwerveModule module) {
+        return ((FakeDriveController) module.getDriveMotor()).voltage;
+    }
+
+    /**
+     * Gets the angle the module last set on its steer controller.
+     */
+    public static double getSteerReference(SwerveModule module) {
+        return ((FakeSteerController) module.getSteerMotor()).referenceAngle;
+    }
+
+    /**
+     * Sets the angle the module's steer controller reports.
+     */
+    public static void setSteerAngle(SwerveModule module, double angle) {
+        ((FakeSteerController) module.getSteerMotor()).stateAngle = angle;
+    }
+
+    private static class FakeDriveController implements DriveController {
+        private double voltage;
+
+        @Override
+        public Object getDriveMotor() {
+            return this;
+        }
+
+        @Override
+        public void setReferenceVoltage(double voltage) {
+            this.voltage = voltage;
+        }
+
+        @Override
+        public double getStateVelocity() {
+            return 0.0;
+        }
+    }
+
+    private static class FakeSteerController implements SteerController {
+        private double referenceAngle;
+        private double stateAngle;
+
+        @Override
+        public Object getSteerMotor() {
+            return this;
+        }
+
+        @Override
+        public AbsoluteEncoder getSteerEncoder() {
+            return null;
+        }
+
+        @Override
+        public double getReferenceAngle() {
+            return referenceAngle;
+        }
+
+        @Override
+        public void setReferenceAngle(double referenceAngleRadians) {
+            this.referenceAngle = referenceAngleRadians;
+        }
+
+        @Override
+        public double getStateAngle() {
+            return stateAngle;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.swervedrivespecialties.swervelib;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Times SwerveModule.set(), i.e. wrapping the target angle and flipping the
+ * drive when the module is more than 90 degrees off, against a spread of
+ * targets and current angles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwerveModuleBenchmark {
+    // A power of two so the index can wrap with a mask
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final double[] m_targetAngles = new double[SAMPLE_COUNT];
+    private final double[] m_currentAngles = new double[SAMPLE_COUNT];
+    private SwerveModule m_module;
+    private int m_index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2228);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            // Targets come in anywhere from -2pi to 2pi, the module's angle is [0, 2pi)
+            m_targetAngles[i] = (random.nextDouble() * 4.0 - 2.0) * Math.PI;
+            m_currentAngles[i] = random.nextDouble() * 2.0 * Math.PI;
+        }
+        m_module = BenchmarkModules.create();
+    }
+
+    @Benchmark
+    public double set() {
+        int index = m_index++ & (SAMPLE_COUNT - 1);
+        BenchmarkModules.setSteerAngle(m_module, m_currentAngles[index]);
+        m_module.set(6.0, m_targetAngles[index]);
+        return BenchmarkModules.getSteerReference(m_module) + BenchmarkModules.getDriveVoltage(m_module);
+    }
+}
@@ -0,0 +1,45 @@
+package com.swervedrivespecialties.swervelib.ctre;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Times moving a steer reference angle next to the Falcon's unwrapped angle,
+ * which every steer controller does on every setReferenceAngle().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SteerReferenceAngleBenchmark {
+    // A power of two so the index can wrap with a mask
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final double[] m_referenceAngles = new double[SAMPLE_COUNT];
+    private final double[] m_currentAngles = new double[SAMPLE_COUNT];
+    private int m_index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2228);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            m_referenceAngles[i] = random.nextDouble() * 2.0 * Math.PI;
+            // The Falcon keeps counting past one rotation, both ways
+            m_currentAngles[i] = (random.nextDouble() * 40.0 - 20.0) * Math.PI;
+        }
+    }
+
+    @Benchmark
+    public double adjustReferenceAngle() {
+        int index = m_index++ & (SAMPLE_COUNT - 1);
+        return Falcon500SteerControllerFactoryBuilder.adjustReferenceAngle(m_referenceAngles[index],
+                m_currentAngles[index]);
+    }
+}
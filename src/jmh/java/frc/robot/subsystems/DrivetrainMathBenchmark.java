@@ -0,0 +1,110 @@
+package frc.robot.subsystems;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.swervedrivespecialties.swervelib.BenchmarkModules;
+import com.swervedrivespecialties.swervelib.SwerveModule;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants;
+
+/**
+ * Times the math DrivetrainSubsystem does every loop: turning chassis speeds
+ * into module states, desaturating them and handing them to the modules, and
+ * the falconTo* sensor conversions odometry uses. Nothing here touches
+ * hardware, the modules are {@link BenchmarkModules}.
+ * <p>
+ * Run with the gc profiler (on by default in build.gradle) to see how much
+ * each one allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DrivetrainMathBenchmark {
+    // A power of two so the index can wrap with a mask
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final SwerveDriveKinematics m_kinematics = new SwerveDriveKinematics(
+            new Translation2d(Constants.DRIVETRAIN_TRACKWIDTH_METERS / 2.0, Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0),
+            new Translation2d(Constants.DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0),
+            new Translation2d(-Constants.DRIVETRAIN_TRACKWIDTH_METERS / 2.0, Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0),
+            new Translation2d(-Constants.DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0));
+
+    private final ChassisSpeeds[] m_chassisSpeeds = new ChassisSpeeds[SAMPLE_COUNT];
+    private final double[][] m_moduleSpeeds = new double[SAMPLE_COUNT][4];
+    private final Rotation2d[][] m_moduleAngles = new Rotation2d[SAMPLE_COUNT][4];
+    private final double[] m_counts = new double[SAMPLE_COUNT];
+    private final SwerveModuleState[] m_states = new SwerveModuleState[4];
+    private final SwerveModule[] m_modules = new SwerveModule[4];
+    private int m_index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2228);
+        double maxVelocity = DrivetrainSubsystem.MAX_VELOCITY_METERS_PER_SECOND;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            m_chassisSpeeds[i] = new ChassisSpeeds(
+                    (random.nextDouble() * 2.0 - 1.0) * maxVelocity,
+                    (random.nextDouble() * 2.0 - 1.0) * maxVelocity,
+                    (random.nextDouble() * 2.0 - 1.0) * DrivetrainSubsystem.MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND);
+            for (int module = 0; module < 4; module++) {
+                // Up to 1.5x too fast, so some of them need desaturating
+                m_moduleSpeeds[i][module] = (random.nextDouble() * 3.0 - 1.5) * maxVelocity;
+                m_moduleAngles[i][module] = new Rotation2d(random.nextDouble() * 2.0 * Math.PI);
+            }
+            m_counts[i] = (random.nextDouble() * 2.0 - 1.0) * 1.0e6;
+        }
+        for (int module = 0; module < 4; module++) {
+            m_states[module] = new SwerveModuleState();
+            m_modules[module] = BenchmarkModules.create();
+        }
+    }
+
+    @Benchmark
+    public SwerveModuleState[] toSwerveModuleStates() {
+        return m_kinematics.toSwerveModuleStates(m_chassisSpeeds[m_index++ & (SAMPLE_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public double setModuleStates() {
+        int index = m_index++ & (SAMPLE_COUNT - 1);
+        // Desaturating changes the states in place, so put fresh speeds in every time
+        for (int module = 0; module < 4; module++) {
+            m_states[module].speedMetersPerSecond = m_moduleSpeeds[index][module];
+            m_states[module].angle = m_moduleAngles[index][module];
+        }
+        DrivetrainSubsystem.setModuleStates(m_states, m_modules[0], m_modules[1], m_modules[2], m_modules[3]);
+        return BenchmarkModules.getDriveVoltage(m_modules[0]);
+    }
+
+    @Benchmark
+    public double falconToMeters() {
+        return DrivetrainSubsystem.falconToMeters(m_counts[m_index++ & (SAMPLE_COUNT - 1)],
+                DrivetrainSubsystem.MK4i_L2_wheelCircumference, DrivetrainSubsystem.MK4i_L2_angleGearRatio);
+    }
+
+    @Benchmark
+    public double falconToDegrees() {
+        return DrivetrainSubsystem.falconToDegrees(m_counts[m_index++ & (SAMPLE_COUNT - 1)],
+                DrivetrainSubsystem.MK4i_L2_angleGearRatio);
+    }
+
+    @Benchmark
+    public double falconToMPS() {
+        return DrivetrainSubsystem.falconToMPS(m_counts[m_index++ & (SAMPLE_COUNT - 1)],
+                DrivetrainSubsystem.MK4i_L2_wheelCircumference, DrivetrainSubsystem.MK4i_L2_angleGearRatio);
+    }
+}
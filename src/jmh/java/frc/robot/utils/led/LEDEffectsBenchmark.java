@@ -0,0 +1,127 @@
+package frc.robot.utils.led;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.wpilibj.util.Color;
+import frc.robot.utils.led.SegmentedLEDStrip.ColorPattern;
+import frc.robot.utils.led.SegmentedLEDStrip.GlowColor;
+import frc.robot.utils.led.SegmentedLEDStrip.Speed;
+
+/**
+ * Times one renderString() frame of every LED effect on a 150 pixel strip,
+ * for a few different ways of cutting it into segments. The strip sends its
+ * pixels to a stub instead of an AddressableLED, and time is moved forward
+ * one 20 ms loop per frame instead of coming from the FPGA.
+ * <p>
+ * Every segment in the layout runs the same effect, each with a different
+ * phase so they don't all land on the same cached frame. Run with the gc
+ * profiler (on by default in build.gradle) for bytes allocated per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LEDEffectsBenchmark {
+    private static final int STRIP_LENGTH = 150;
+    private static final double LOOP_SECONDS = 0.02;
+
+    public enum Effect {
+        Solid,
+        Rainbow,
+        Snake,
+        MovingColors,
+        Glow,
+        Tween
+    }
+
+    public enum Layout {
+        /** One segment for the whole strip, like auto */
+        Whole(150),
+        /** The uprights, top and chassis, like teleop */
+        Teleop(31, 12, 25, 82),
+        /** Lots of little segments */
+        Tens(15, 15, 15, 15, 15, 15, 15, 15, 15, 15);
+
+        private final int[] sizes;
+
+        Layout(int... sizes) {
+            this.sizes = sizes;
+        }
+    }
+
+    @Param
+    public Effect effect;
+
+    @Param
+    public Layout layout;
+
+    private final StubOutput m_output = new StubOutput();
+    private SegmentedLEDStrip m_strip;
+    private double m_now;
+
+    @Setup
+    public void setup() {
+        m_strip = new SegmentedLEDStrip(m_output, STRIP_LENGTH);
+
+        LEDBufferSegment[] segments = new LEDBufferSegment[layout.sizes.length];
+        int start = 0;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new LEDBufferSegment("segment" + i, start, layout.sizes[i]);
+            segments[i].setPhaseOffset(i * 0.13);
+            start += layout.sizes[i];
+            startEffect(segments[i]);
+        }
+        m_strip.setLayout(m_strip.registerLayout(segments));
+        m_now = 0.0;
+    }
+
+    private void startEffect(LEDBufferSegment segment) {
+        switch (effect) {
+            case Solid:
+                m_strip.setColor(segment, Color.kOrange, Color.kBlack);
+                break;
+            case Rainbow:
+                segment.doRainbow();
+                break;
+            case Snake:
+                segment.doSnake(Speed.Ludicrous, Color.kBlack, ColorPattern.SnakePacman);
+                break;
+            case MovingColors:
+                segment.doMovingColors(Speed.Ludicrous, ColorPattern.Patriotic);
+                break;
+            case Glow:
+                segment.doGlow(GlowColor.Blue);
+                break;
+            case Tween:
+                segment.doTween(1.0, Color.kRed, Color.kBlue, Color.kGreen);
+                break;
+        }
+    }
+
+    @Benchmark
+    public int renderFrame() {
+        m_now += LOOP_SECONDS;
+        m_strip.renderString(m_now);
+        return m_output.sendCount;
+    }
+
+    /**
+     * Stands in for the AddressableLED, just counts how often it's sent data.
+     */
+    private static class StubOutput implements LEDOutput {
+        private int sendCount;
+
+        @Override
+        public void setData(byte[] data) {
+            sendCount++;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package frc.robot.utils.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A trajectory stored in the compact binary format written by
+ * {@link TrajectoryConverter}, read straight out of a memory mapped file.
+ * <p>
+ * This only exists for {@link TrajectoryFormatBenchmark}, to see whether a
+ * binary format would be worth it over PathPlanner.loadPath(). Nothing on the
+ * robot reads or writes it, the autos use the PathPlannerTrajectory from
+ * {@link TrajectoryRegistry}. A follower would also need the path's event
+ * markers, which aren't stored here.
+ * <p>
+ * The file is a 16 byte header followed by every sample back to back:
+ * <pre>
+ * int    magic          'CTTJ'
+ * int    version        {@link #VERSION}
+ * int    sample count
+ * int    fields per sample
+ * double samples[sample count][fields per sample]
+ * </pre>
+ * all little endian, which is what both the roboRIO and desktops use. The
+ * fields are in the order of the FIELD_ constants below, in meters, seconds
+ * and radians except where noted. Fields added on the end don't need a new
+ * version, readers skip the ones they don't know about since the field count
+ * is in the header. Any other change bumps {@link #VERSION}, and files with a
+ * different version are rejected.
+ * <p>
+ * Opening one only maps the file, nothing is parsed and no per-state objects
+ * are made. Samples are read right out of the mapping when they're asked for.
+ */
+public class BinaryTrajectory {
+    public static final int MAGIC = 0x4354544A;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final String FILE_EXTENSION = ".traj";
+
+    public static final int FIELD_TIME = 0;
+    public static final int FIELD_X = 1;
+    public static final int FIELD_Y = 2;
+    /** Direction of travel, radians */
+    public static final int FIELD_HEADING = 3;
+    public static final int FIELD_VELOCITY = 4;
+    public static final int FIELD_ACCELERATION = 5;
+    public static final int FIELD_CURVATURE = 6;
+    /** Direction the robot faces, degrees */
+    public static final int FIELD_HOLONOMIC_ROTATION = 7;
+    public static final int FIELD_ANGULAR_VELOCITY = 8;
+    public static final int FIELD_HOLONOMIC_ANGULAR_VELOCITY = 9;
+    public static final int FIELD_COUNT = 10;
+
+    private final ByteBuffer m_buffer;
+    private final int m_sampleCount;
+    private final int m_sampleBytes;
+
+    private BinaryTrajectory(ByteBuffer buffer) throws IOException {
+        m_buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (m_buffer.capacity() < HEADER_BYTES || m_buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary trajectory");
+        }
+        if (m_buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary trajectory version " + m_buffer.getInt(4));
+        }
+
+        m_sampleCount = m_buffer.getInt(8);
+        int fieldCount = m_buffer.getInt(12);
+        if (m_sampleCount < 1 || fieldCount < FIELD_COUNT) {
+            throw new IOException("Binary trajectory has " + m_sampleCount + " samples of " + fieldCount + " fields");
+        }
+        m_sampleBytes = fieldCount * Double.BYTES;
+        if (m_buffer.capacity() < HEADER_BYTES + (long) m_sampleCount * m_sampleBytes) {
+            throw new IOException("Binary trajectory is truncated");
+        }
+    }
+
+    /**
+     * Maps a converted trajectory file.
+     */
+    public static BinaryTrajectory open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new BinaryTrajectory(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getSampleCount() {
+        return m_sampleCount;
+    }
+
+    public double getTotalTimeSeconds() {
+        return get(m_sampleCount - 1, FIELD_TIME);
+    }
+
+    /**
+     * Gets one field of one sample.
+     */
+    public double get(int sample, int field) {
+        return m_buffer.getDouble(HEADER_BYTES + sample * m_sampleBytes + field * Double.BYTES);
+    }
+
+    /**
+     * Works out the state at a time by interpolating between the samples
+     * around it, the same way PathPlanner does. Times before the start or
+     * after the end give the first or last sample.
+     *
+     * @param timeSeconds time since the start of the trajectory
+     * @param state       gets every field, indexed by the FIELD_ constants. Has
+     *                    to hold at least {@link #FIELD_COUNT} values
+     */
+    public void sample(double timeSeconds, double[] state) {
+        if (timeSeconds <= get(0, FIELD_TIME)) {
+            copySample(0, state);
+            return;
+        }
+        if (timeSeconds >= getTotalTimeSeconds()) {
+            copySample(m_sampleCount - 1, state);
+            return;
+        }
+
+        // Find the first sample at or after the time
+        int low = 1;
+        int high = m_sampleCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (get(middle, FIELD_TIME) < timeSeconds) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int previous = low - 1;
+        double previousTime = get(previous, FIELD_TIME);
+        double fraction = (timeSeconds - previousTime) / (get(low, FIELD_TIME) - previousTime);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            double from = get(previous, field);
+            double to = get(low, field);
+            if (field == FIELD_HEADING) {
+                state[field] = from + fraction * wrap(to - from, Math.PI);
+            } else if (field == FIELD_HOLONOMIC_ROTATION) {
+                state[field] = from + fraction * wrap(to - from, 180.0);
+            } else {
+                state[field] = from + fraction * (to - from);
+            }
+        }
+        state[FIELD_TIME] = timeSeconds;
+    }
+
+    private void copySample(int sample, double[] state) {
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            state[field] = get(sample, field);
+        }
+    }
+
+    /**
+     * Wraps an angle difference so rotations take the short way around.
+     */
+    private static double wrap(double difference, double halfTurn) {
+        double turn = 2.0 * halfTurn;
+        difference %= turn;
+        if (difference > halfTurn) {
+            difference -= turn;
+        } else if (difference < -halfTurn) {
+            difference += turn;
+        }
+        return difference;
+    }
+}
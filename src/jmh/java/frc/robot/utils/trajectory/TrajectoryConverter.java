@@ -0,0 +1,50 @@
+package frc.robot.utils.trajectory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.pathplanner.lib.PathPlannerTrajectory;
+import com.pathplanner.lib.PathPlannerTrajectory.PathPlannerState;
+
+/**
+ * Turns a PathPlanner trajectory into the binary format
+ * {@link BinaryTrajectory} reads.
+ * <p>
+ * It converts the trajectory PathPlanner.loadPath() generates from the .path
+ * file, not the .wpilib.json PathPlanner writes next to it. The JSON is
+ * generated with the constraints set in the PathPlanner app, while the autos
+ * pass their own constraints in code, so only the generated trajectory
+ * matches what the robot actually drives.
+ */
+public class TrajectoryConverter {
+    /**
+     * Writes every state of a trajectory out in the binary format.
+     */
+    public static byte[] convert(PathPlannerTrajectory trajectory) {
+        int stateCount = trajectory.getStates().size();
+        ByteBuffer buffer = ByteBuffer
+                .allocate(BinaryTrajectory.HEADER_BYTES
+                        + stateCount * BinaryTrajectory.FIELD_COUNT * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(BinaryTrajectory.MAGIC);
+        buffer.putInt(BinaryTrajectory.VERSION);
+        buffer.putInt(stateCount);
+        buffer.putInt(BinaryTrajectory.FIELD_COUNT);
+
+        for (int i = 0; i < stateCount; i++) {
+            PathPlannerState state = trajectory.getState(i);
+            // Same order as the BinaryTrajectory.FIELD_ constants
+            buffer.putDouble(state.timeSeconds);
+            buffer.putDouble(state.poseMeters.getX());
+            buffer.putDouble(state.poseMeters.getY());
+            buffer.putDouble(state.poseMeters.getRotation().getRadians());
+            buffer.putDouble(state.velocityMetersPerSecond);
+            buffer.putDouble(state.accelerationMetersPerSecondSq);
+            buffer.putDouble(state.curvatureRadPerMeter);
+            buffer.putDouble(state.holonomicRotation.getDegrees());
+            buffer.putDouble(state.angularVelocityRadPerSec);
+            buffer.putDouble(state.holonomicAngularVelocityRadPerSec);
+        }
+        return buffer.array();
+    }
+}
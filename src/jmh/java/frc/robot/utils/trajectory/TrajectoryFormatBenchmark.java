@@ -0,0 +1,116 @@
+package frc.robot.utils.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.pathplanner.lib.PathConstraints;
+import com.pathplanner.lib.PathPlanner;
+import com.pathplanner.lib.PathPlannerTrajectory;
+
+import frc.robot.commands.AutoOneCommand;
+import frc.robot.commands.AutoThreeCommand;
+
+/**
+ * Compares what the autos do now, PathPlanner.loadPath() with the constraints
+ * set in code, against mapping the same trajectory converted to a
+ * {@link BinaryTrajectory}. Both the one time load and sampling the
+ * trajectory once a loop, like a follower would, are timed.
+ * <p>
+ * loadPath() reads the .path out of src/main/deploy, so run it from the
+ * project directory. Run with the gc profiler (on by default in build.gradle)
+ * for bytes allocated per load and per sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrajectoryFormatBenchmark {
+    private static final double LOOP_SECONDS = 0.02;
+
+    public enum Auto {
+        One(AutoOneCommand.PATH_NAME, AutoOneCommand.MAX_VELOCITY, AutoOneCommand.MAX_ACCELERATION),
+        Three(AutoThreeCommand.PATH_NAME, AutoThreeCommand.MAX_VELOCITY, AutoThreeCommand.MAX_ACCELERATION);
+
+        final String pathName;
+        final PathConstraints constraints;
+
+        private Auto(String pathName, double maxVelocity, double maxAcceleration) {
+            this.pathName = pathName;
+            this.constraints = new PathConstraints(maxVelocity, maxAcceleration);
+        }
+    }
+
+    @Param
+    public Auto m_auto;
+
+    private File m_binaryFile;
+    private PathPlannerTrajectory m_trajectory;
+    private BinaryTrajectory m_binaryTrajectory;
+    private final double[] m_state = new double[BinaryTrajectory.FIELD_COUNT];
+    private double m_time;
+
+    @Setup
+    public void setup() throws IOException {
+        m_trajectory = PathPlanner.loadPath(m_auto.pathName, m_auto.constraints);
+        if (m_trajectory == null) {
+            throw new IOException("Path " + m_auto.pathName + " wasn't found, run from the project directory");
+        }
+
+        m_binaryFile = File.createTempFile(m_auto.pathName, BinaryTrajectory.FILE_EXTENSION);
+        m_binaryFile.deleteOnExit();
+        Files.write(m_binaryFile.toPath(), TrajectoryConverter.convert(m_trajectory));
+        m_binaryTrajectory = BinaryTrajectory.open(m_binaryFile);
+    }
+
+    @Benchmark
+    public PathPlannerTrajectory loadPath() {
+        return PathPlanner.loadPath(m_auto.pathName, m_auto.constraints);
+    }
+
+    /**
+     * Maps the file and reads every sample, so the binary side pays for
+     * actually touching the data too.
+     */
+    @Benchmark
+    public double openBinary() throws IOException {
+        BinaryTrajectory trajectory = BinaryTrajectory.open(m_binaryFile);
+        double total = 0.0;
+        for (int sample = 0; sample < trajectory.getSampleCount(); sample++) {
+            total += trajectory.get(sample, BinaryTrajectory.FIELD_X);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Object samplePathPlanner() {
+        return m_trajectory.sample(nextTime(m_trajectory.getTotalTimeSeconds()));
+    }
+
+    @Benchmark
+    public double sampleBinary() {
+        m_binaryTrajectory.sample(nextTime(m_binaryTrajectory.getTotalTimeSeconds()), m_state);
+        return m_state[BinaryTrajectory.FIELD_X];
+    }
+
+    /**
+     * Steps through the trajectory one loop at a time, starting over at the
+     * end.
+     */
+    private double nextTime(double totalTime) {
+        m_time += LOOP_SECONDS;
+        if (m_time > totalTime) {
+            m_time = 0.0;
+        }
+        return m_time;
+    }
+}
@@ -1,6 +1,5 @@
 package com.swervedrivespecialties.swervelib;
 
-@FunctionalInterface
 public interface AbsoluteEncoder {
     /**
      * Gets the current angle reading of the encoder in radians.
@@ -8,4 +7,11 @@ public interface AbsoluteEncoder {
      * @return The current angle in radians. Range: [0, 2pi)
      */
     double getAbsoluteAngle();
+
+    /**
+     * Gets the underlying sensor object, e.g. a CANCoder.
+     *
+     * @return The vendor object backing this encoder
+     */
+    Object getInternal();
 }
@@ -1,27 +1,47 @@
 package com.swervedrivespecialties.swervelib;
 
 import com.swervedrivespecialties.swervelib.ctre.*;
+import com.swervedrivespecialties.swervelib.sim.SimulatedAbsoluteEncoderFactory;
+import com.swervedrivespecialties.swervelib.sim.SimulatedDriveControllerFactory;
+import com.swervedrivespecialties.swervelib.sim.SimulatedSteerControllerFactory;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
 
 public final class Mk4iSwerveModuleHelper {
+    private static final double STEER_PROPORTIONAL_CONSTANT = 0.2;
+
     private Mk4iSwerveModuleHelper() {
     }
 
     private static DriveControllerFactory<?, Integer> getFalcon500DriveFactory(Mk4ModuleConfiguration configuration) {
-        return new Falcon500DriveControllerFactoryBuilder()
+        DriveControllerFactory<?, Integer> factory = new Falcon500DriveControllerFactoryBuilder()
                 .withVoltageCompensation(configuration.getNominalVoltage())
                 .withCurrentLimit(configuration.getDriveCurrentLimit())
                 .build();
+        if (RobotBase.isSimulation()) {
+            return new SimulatedDriveControllerFactory<>(factory, configuration.getNominalVoltage());
+        }
+        return factory;
     }
 
     private static SteerControllerFactory<?, Falcon500SteerConfiguration<CanCoderAbsoluteConfiguration>> getFalcon500SteerFactory(Mk4ModuleConfiguration configuration) {
-        return new Falcon500SteerControllerFactoryBuilder()
+        AbsoluteEncoderFactory<CanCoderAbsoluteConfiguration> encoderFactory = new CanCoderFactoryBuilder()
+                .withReadingUpdatePeriod(100)
+                .build();
+        if (RobotBase.isSimulation()) {
+            encoderFactory = new SimulatedAbsoluteEncoderFactory(encoderFactory);
+        }
+
+        SteerControllerFactory<?, Falcon500SteerConfiguration<CanCoderAbsoluteConfiguration>> factory = new Falcon500SteerControllerFactoryBuilder()
                 .withVoltageCompensation(configuration.getNominalVoltage())
-                .withPidConstants(0.2, 0.0, 0.1)
+                .withPidConstants(STEER_PROPORTIONAL_CONSTANT, 0.0, 0.1)
                 .withCurrentLimit(configuration.getSteerCurrentLimit())
-                .build(new CanCoderFactoryBuilder()
-                        .withReadingUpdatePeriod(100)
-                        .build());
+                .build(encoderFactory);
+        if (RobotBase.isSimulation()) {
+            return new SimulatedSteerControllerFactory<>(factory, STEER_PROPORTIONAL_CONSTANT,
+                    configuration.getNominalVoltage());
+        }
+        return factory;
     }
 
     /**
@@ -58,6 +58,11 @@ public class CanCoderFactoryBuilder {
 
             return angle;
         }
+
+        @Override
+        public Object getInternal() {
+            return this.encoder;
+        }
     }
 
     public enum Direction {
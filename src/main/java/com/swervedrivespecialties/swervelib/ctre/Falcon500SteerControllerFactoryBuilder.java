@@ -148,6 +148,31 @@ public final class Falcon500SteerControllerFactoryBuilder {
         }
     }
 
+    /**
+     * Moves a reference angle in the range [0, 2pi) to wherever it's closest to
+     * the motor's current angle, which isn't limited to one rotation.
+     *
+     * @param referenceAngleRadians The angle to turn to, in the range [0, 2pi).
+     * @param currentAngleRadians   The motor's current angle, unwrapped.
+     * @return The angle to set on the motor.
+     */
+    public static double adjustReferenceAngle(double referenceAngleRadians, double currentAngleRadians) {
+        double currentAngleRadiansMod = currentAngleRadians % (2.0 * Math.PI);
+        if (currentAngleRadiansMod < 0.0) {
+            currentAngleRadiansMod += 2.0 * Math.PI;
+        }
+
+        // The reference angle has the range [0, 2pi) but the Falcon's encoder can go above that
+        double adjustedReferenceAngleRadians = referenceAngleRadians + currentAngleRadians - currentAngleRadiansMod;
+        if (referenceAngleRadians - currentAngleRadiansMod > Math.PI) {
+            adjustedReferenceAngleRadians -= 2.0 * Math.PI;
+        } else if (referenceAngleRadians - currentAngleRadiansMod < -Math.PI) {
+            adjustedReferenceAngleRadians += 2.0 * Math.PI;
+        }
+
+        return adjustedReferenceAngleRadians;
+    }
+
     private static class ControllerImplementation implements SteerController {
         private static final int ENCODER_RESET_ITERATIONS = 50;
         private static final double ENCODER_RESET_MAX_ANGULAR_VELOCITY = Math.toRadians(0.5);
@@ -209,19 +234,7 @@ public final class Falcon500SteerControllerFactoryBuilder {
                 }
             }
 
-            double currentAngleRadiansMod = currentAngleRadians % (2.0 * Math.PI);
-            if (currentAngleRadiansMod < 0.0) {
-                currentAngleRadiansMod += 2.0 * Math.PI;
-            }
-
-            // The reference angle has the range [0, 2pi) but the Falcon's encoder can go above that
-            double adjustedReferenceAngleRadians = referenceAngleRadians + currentAngleRadians - currentAngleRadiansMod;
-            if (referenceAngleRadians - currentAngleRadiansMod > Math.PI) {
-                adjustedReferenceAngleRadians -= 2.0 * Math.PI;
-            } else if (referenceAngleRadians - currentAngleRadiansMod < -Math.PI) {
-                adjustedReferenceAngleRadians += 2.0 * Math.PI;
-            }
-
+            double adjustedReferenceAngleRadians = adjustReferenceAngle(referenceAngleRadians, currentAngleRadians);
             motor.set(motorControlMode, adjustedReferenceAngleRadians / motorEncoderPositionCoefficient);
 
 
@@ -0,0 +1,55 @@
+package com.swervedrivespecialties.swervelib.sim;
+
+import com.ctre.phoenix.sensors.CANCoder;
+import com.ctre.phoenix.sensors.CANCoderSimCollection;
+import com.swervedrivespecialties.swervelib.AbsoluteEncoder;
+
+/**
+ * An absolute encoder that reads the angle the steer simulation turned the
+ * module to. The CANCoder is still created and fed the same angle for anything
+ * that reads it directly.
+ */
+public class SimulatedAbsoluteEncoder implements AbsoluteEncoder {
+    private static final double COUNTS_PER_ROTATION = 4096.0;
+
+    private final AbsoluteEncoder encoder;
+    private final CANCoderSimCollection simCollection;
+    private final double offset;
+
+    private double angle = 0.0;
+
+    SimulatedAbsoluteEncoder(AbsoluteEncoder encoder, double offset) {
+        this.encoder = encoder;
+        this.simCollection = ((CANCoder) encoder.getInternal()).getSimCollection();
+        this.offset = offset;
+    }
+
+    @Override
+    public double getAbsoluteAngle() {
+        return angle;
+    }
+
+    @Override
+    public Object getInternal() {
+        return encoder.getInternal();
+    }
+
+    /**
+     * Sets the angle the encoder should read once its magnet offset is applied.
+     *
+     * @param angle           The module's angle in radians.
+     * @param angularVelocity The module's angular velocity in radians per second.
+     */
+    void setAngle(double angle, double angularVelocity) {
+        this.angle = angle % (2.0 * Math.PI);
+        if (this.angle < 0.0) {
+            this.angle += 2.0 * Math.PI;
+        }
+
+        // The CANCoder adds the magnet offset on top of the raw reading
+        double rawRotations = (angle - offset) / (2.0 * Math.PI);
+        simCollection.setRawPosition((int) Math.round(rawRotations * COUNTS_PER_ROTATION));
+        // Velocity is in counts per 100 ms
+        simCollection.setVelocity((int) Math.round(angularVelocity / (2.0 * Math.PI) * COUNTS_PER_ROTATION / 10.0));
+    }
+}
@@ -0,0 +1,27 @@
+package com.swervedrivespecialties.swervelib.sim;
+
+import com.swervedrivespecialties.swervelib.AbsoluteEncoder;
+import com.swervedrivespecialties.swervelib.AbsoluteEncoderFactory;
+import com.swervedrivespecialties.swervelib.ctre.CanCoderAbsoluteConfiguration;
+
+/**
+ * Wraps a CANCoder factory so the encoders it makes can be pointed at whatever
+ * angle the simulated steer motor has turned the module to.
+ */
+public class SimulatedAbsoluteEncoderFactory implements AbsoluteEncoderFactory<CanCoderAbsoluteConfiguration> {
+    private final AbsoluteEncoderFactory<CanCoderAbsoluteConfiguration> factory;
+
+    public SimulatedAbsoluteEncoderFactory(AbsoluteEncoderFactory<CanCoderAbsoluteConfiguration> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public AbsoluteEncoder create(CanCoderAbsoluteConfiguration configuration) {
+        SimulatedAbsoluteEncoder encoder = new SimulatedAbsoluteEncoder(factory.create(configuration),
+                configuration.getOffset());
+        // Every module starts out pointed straight ahead
+        encoder.setAngle(0.0, 0.0);
+
+        return encoder;
+    }
+}
@@ -0,0 +1,97 @@
+package com.swervedrivespecialties.swervelib.sim;
+
+import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.swervedrivespecialties.swervelib.DriveController;
+import com.swervedrivespecialties.swervelib.ModuleConfiguration;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+/**
+ * A drive controller that's just a DC motor model.
+ * <p>
+ * The voltage the module asks for goes straight into the model and the state
+ * comes straight out of it, Phoenix isn't involved. Its simulated firmware runs
+ * on the wall clock, so it can't keep up when the simulation is stepped faster
+ * than real time. The TalonFX is still created and its sensor gets fed from the
+ * model for anything that reads the motor directly, but it is never commanded.
+ */
+public class SimulatedDriveController implements DriveController {
+    private static final double TICKS_PER_ROTATION = 2048.0;
+
+    private final DriveController controller;
+    private final TalonFX motor;
+    private final DCMotorSim physics;
+    private final double nominalVoltage;
+    private final double wheelRadius;
+    // The model's angle is at the wheel, the sensor is on the rotor
+    private final double rotorTicksPerWheelRadian;
+
+    private double voltage = 0.0;
+    // What the TalonFX's integrated sensor would read, noise included
+    private double sensorPosition = 0.0;
+    private long reportedTicks = 0;
+
+    SimulatedDriveController(DriveController controller, ModuleConfiguration moduleConfiguration,
+                             double momentOfInertia, double nominalVoltage) {
+        this.controller = controller;
+        this.motor = (TalonFX) controller.getDriveMotor();
+        this.physics = new DCMotorSim(DCMotor.getFalcon500(1), 1.0 / moduleConfiguration.getDriveReduction(),
+                momentOfInertia);
+        this.nominalVoltage = nominalVoltage;
+        this.wheelRadius = moduleConfiguration.getWheelDiameter() / 2.0;
+        this.rotorTicksPerWheelRadian = TICKS_PER_ROTATION / (2.0 * Math.PI * moduleConfiguration.getDriveReduction());
+    }
+
+    @Override
+    public Object getDriveMotor() {
+        return controller.getDriveMotor();
+    }
+
+    @Override
+    public void setReferenceVoltage(double voltage) {
+        this.voltage = voltage;
+    }
+
+    @Override
+    public double getStateVelocity() {
+        return physics.getAngularVelocityRadPerSec() * wheelRadius;
+    }
+
+    /**
+     * @return The position the TalonFX's integrated sensor would report, in ticks.
+     */
+    double getSensorPosition() {
+        return sensorPosition;
+    }
+
+    TalonFX getMotor() {
+        return motor;
+    }
+
+    void update(double dtSeconds) {
+        // Voltage compensation caps the output at the nominal voltage, and the
+        // motor can't put out more than the battery has
+        double batteryVoltage = RobotController.getBatteryVoltage();
+        double maxVoltage = Math.min(nominalVoltage, batteryVoltage);
+        physics.setInputVoltage(MathUtil.clamp(voltage, -maxVoltage, maxVoltage));
+        physics.update(dtSeconds);
+
+        sensorPosition = Math.round(physics.getAngularPositionRad() * rotorTicksPerWheelRadian
+                + SwerveSimulation.sampleEncoderNoise());
+
+        // The Phoenix sim values are in the rotor's direction, the TalonFX
+        // applies its invert on top like it does on the robot
+        double direction = motor.getInverted() ? -1.0 : 1.0;
+        long ticks = (long) (direction * sensorPosition);
+        TalonFXSimCollection simCollection = motor.getSimCollection();
+        simCollection.setBusVoltage(batteryVoltage);
+        simCollection.addIntegratedSensorPosition((int) (ticks - reportedTicks));
+        reportedTicks = ticks;
+        // Velocity is in ticks per 100 ms
+        simCollection.setIntegratedSensorVelocity((int) Math.round(
+                direction * physics.getAngularVelocityRadPerSec() * rotorTicksPerWheelRadian / 10.0));
+    }
+}
@@ -0,0 +1,57 @@
+package com.swervedrivespecialties.swervelib.sim;
+
+import com.swervedrivespecialties.swervelib.DriveController;
+import com.swervedrivespecialties.swervelib.DriveControllerFactory;
+import com.swervedrivespecialties.swervelib.ModuleConfiguration;
+
+/**
+ * Wraps a CTRE drive controller factory so the modules it makes are driven by
+ * a physics model in simulation.
+ * <p>
+ * The real Falcon 500 controller is still created so everything that talks to
+ * the TalonFX directly keeps working, but the module itself is run by a DC
+ * motor model.
+ */
+public class SimulatedDriveControllerFactory<DriveConfiguration>
+        implements DriveControllerFactory<SimulatedDriveController, DriveConfiguration> {
+    /**
+     * About a quarter of a 55 kg robot on a 4" wheel, each module pushes
+     * its share of the robot around.
+     */
+    public static final double DEFAULT_MOMENT_OF_INERTIA = 0.035;
+
+    private final DriveControllerFactory<?, DriveConfiguration> factory;
+    private final double momentOfInertia;
+    private final double nominalVoltage;
+
+    /**
+     * @param factory        The real drive controller factory to wrap.
+     * @param nominalVoltage The voltage compensation the real controller uses.
+     */
+    public SimulatedDriveControllerFactory(DriveControllerFactory<?, DriveConfiguration> factory,
+                                           double nominalVoltage) {
+        this(factory, DEFAULT_MOMENT_OF_INERTIA, nominalVoltage);
+    }
+
+    /**
+     * @param factory         The real drive controller factory to wrap.
+     * @param momentOfInertia The moment of inertia at the wheel in kg m^2.
+     * @param nominalVoltage  The voltage compensation the real controller uses.
+     */
+    public SimulatedDriveControllerFactory(DriveControllerFactory<?, DriveConfiguration> factory,
+                                           double momentOfInertia, double nominalVoltage) {
+        this.factory = factory;
+        this.momentOfInertia = momentOfInertia;
+        this.nominalVoltage = nominalVoltage;
+    }
+
+    @Override
+    public SimulatedDriveController create(DriveConfiguration driveConfiguration, ModuleConfiguration moduleConfiguration) {
+        DriveController controller = factory.create(driveConfiguration, moduleConfiguration);
+        SimulatedDriveController simulatedController = new SimulatedDriveController(controller, moduleConfiguration,
+                momentOfInertia, nominalVoltage);
+        SwerveSimulation.register(simulatedController);
+
+        return simulatedController;
+    }
+}
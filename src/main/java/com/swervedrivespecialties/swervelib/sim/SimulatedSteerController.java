@@ -0,0 +1,136 @@
+package com.swervedrivespecialties.swervelib.sim;
+
+import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.swervedrivespecialties.swervelib.AbsoluteEncoder;
+import com.swervedrivespecialties.swervelib.ModuleConfiguration;
+import com.swervedrivespecialties.swervelib.SteerController;
+import com.swervedrivespecialties.swervelib.ctre.Falcon500SteerControllerFactoryBuilder;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+/**
+ * A steer controller that's just a DC motor model with a position loop.
+ * <p>
+ * The position loop the TalonFX would run is run here on the model's angle,
+ * with the same proportional gain and units, so the module turns like it
+ * would on the robot without going through Phoenix's simulated firmware. The
+ * TalonFX's sensor and the module's absolute encoder are fed from the model
+ * for anything that reads them directly.
+ */
+public class SimulatedSteerController implements SteerController {
+    private static final double TICKS_PER_ROTATION = 2048.0;
+    // Full output on a TalonFX is 1023
+    private static final double TALON_FULL_OUTPUT = 1023.0;
+    // The TalonFX closes its loop a lot faster than the robot loop, so the
+    // loop here is run a few times per update
+    private static final double LOOP_PERIOD_SECONDS = 0.005;
+
+    private final SteerController controller;
+    private final TalonFX motor;
+    private final SimulatedAbsoluteEncoder absoluteEncoder;
+    private final DCMotorSim physics;
+    private final double proportionalConstant;
+    private final double nominalVoltage;
+    // The model's angle is the module's, the sensor is on the rotor
+    private final double rotorTicksPerModuleRadian;
+
+    private double referenceAngleRadians = 0.0;
+    // Unwrapped angle the loop is turning towards
+    private double targetAngleRadians = 0.0;
+    private double sensorPosition = 0.0;
+    private long reportedTicks = 0;
+
+    SimulatedSteerController(SteerController controller, ModuleConfiguration moduleConfiguration,
+                             double momentOfInertia, double proportionalConstant, double nominalVoltage) {
+        this.controller = controller;
+        this.motor = (TalonFX) controller.getSteerMotor();
+        this.absoluteEncoder = controller.getSteerEncoder() instanceof SimulatedAbsoluteEncoder
+                ? (SimulatedAbsoluteEncoder) controller.getSteerEncoder() : null;
+        this.physics = new DCMotorSim(DCMotor.getFalcon500(1), 1.0 / moduleConfiguration.getSteerReduction(),
+                momentOfInertia);
+        this.proportionalConstant = proportionalConstant;
+        this.nominalVoltage = nominalVoltage;
+        this.rotorTicksPerModuleRadian = TICKS_PER_ROTATION / (2.0 * Math.PI * moduleConfiguration.getSteerReduction());
+    }
+
+    @Override
+    public Object getSteerMotor() {
+        return controller.getSteerMotor();
+    }
+
+    @Override
+    public AbsoluteEncoder getSteerEncoder() {
+        return controller.getSteerEncoder();
+    }
+
+    @Override
+    public double getReferenceAngle() {
+        return referenceAngleRadians;
+    }
+
+    @Override
+    public void setReferenceAngle(double referenceAngleRadians) {
+        targetAngleRadians = Falcon500SteerControllerFactoryBuilder.adjustReferenceAngle(referenceAngleRadians,
+                getSensorAngle());
+        this.referenceAngleRadians = referenceAngleRadians;
+    }
+
+    @Override
+    public double getStateAngle() {
+        double angle = getSensorAngle() % (2.0 * Math.PI);
+        if (angle < 0.0) {
+            angle += 2.0 * Math.PI;
+        }
+        return angle;
+    }
+
+    /**
+     * @return The position the TalonFX's integrated sensor would report, in ticks.
+     */
+    double getSensorPosition() {
+        return sensorPosition;
+    }
+
+    TalonFX getMotor() {
+        return motor;
+    }
+
+    private double getSensorAngle() {
+        return sensorPosition / rotorTicksPerModuleRadian;
+    }
+
+    void update(double dtSeconds) {
+        double batteryVoltage = RobotController.getBatteryVoltage();
+        double maxVoltage = Math.min(nominalVoltage, batteryVoltage);
+
+        int steps = (int) Math.ceil(dtSeconds / LOOP_PERIOD_SECONDS);
+        for (int step = 0; step < steps; step++) {
+            // kP is in TalonFX output units per tick of error
+            double errorTicks = (targetAngleRadians - physics.getAngularPositionRad()) * rotorTicksPerModuleRadian;
+            double output = proportionalConstant * errorTicks / TALON_FULL_OUTPUT * nominalVoltage;
+            physics.setInputVoltage(MathUtil.clamp(output, -maxVoltage, maxVoltage));
+            physics.update(dtSeconds / steps);
+        }
+
+        sensorPosition = Math.round(physics.getAngularPositionRad() * rotorTicksPerModuleRadian
+                + SwerveSimulation.sampleEncoderNoise());
+
+        // The Phoenix sim values are in the rotor's direction
+        double direction = motor.getInverted() ? -1.0 : 1.0;
+        long ticks = (long) (direction * sensorPosition);
+        TalonFXSimCollection simCollection = motor.getSimCollection();
+        simCollection.setBusVoltage(batteryVoltage);
+        simCollection.addIntegratedSensorPosition((int) (ticks - reportedTicks));
+        reportedTicks = ticks;
+        // Velocity is in ticks per 100 ms
+        simCollection.setIntegratedSensorVelocity((int) Math.round(
+                direction * physics.getAngularVelocityRadPerSec() * rotorTicksPerModuleRadian / 10.0));
+
+        if (absoluteEncoder != null) {
+            absoluteEncoder.setAngle(physics.getAngularPositionRad(), physics.getAngularVelocityRadPerSec());
+        }
+    }
+}
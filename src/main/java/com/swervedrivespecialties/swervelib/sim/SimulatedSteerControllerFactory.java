@@ -0,0 +1,57 @@
+package com.swervedrivespecialties.swervelib.sim;
+
+import com.swervedrivespecialties.swervelib.ModuleConfiguration;
+import com.swervedrivespecialties.swervelib.SteerController;
+import com.swervedrivespecialties.swervelib.SteerControllerFactory;
+
+/**
+ * Wraps a CTRE steer controller factory so the modules it makes are turned by
+ * a physics model in simulation. Use it with a
+ * {@link SimulatedAbsoluteEncoderFactory} so the module's absolute encoder
+ * follows along.
+ */
+public class SimulatedSteerControllerFactory<SteerConfiguration>
+        implements SteerControllerFactory<SimulatedSteerController, SteerConfiguration> {
+    /** Roughly a Mk4i module turning about its steering axis */
+    public static final double DEFAULT_MOMENT_OF_INERTIA = 0.004;
+
+    private final SteerControllerFactory<?, SteerConfiguration> factory;
+    private final double momentOfInertia;
+    private final double proportionalConstant;
+    private final double nominalVoltage;
+
+    /**
+     * @param factory              The real steer controller factory to wrap.
+     * @param proportionalConstant The kP the real controller's TalonFX uses.
+     * @param nominalVoltage       The voltage compensation the real controller uses.
+     */
+    public SimulatedSteerControllerFactory(SteerControllerFactory<?, SteerConfiguration> factory,
+                                           double proportionalConstant, double nominalVoltage) {
+        this(factory, DEFAULT_MOMENT_OF_INERTIA, proportionalConstant, nominalVoltage);
+    }
+
+    /**
+     * @param factory              The real steer controller factory to wrap.
+     * @param momentOfInertia      The moment of inertia of the module in kg m^2.
+     * @param proportionalConstant The kP the real controller's TalonFX uses.
+     * @param nominalVoltage       The voltage compensation the real controller uses.
+     */
+    public SimulatedSteerControllerFactory(SteerControllerFactory<?, SteerConfiguration> factory,
+                                           double momentOfInertia, double proportionalConstant,
+                                           double nominalVoltage) {
+        this.factory = factory;
+        this.momentOfInertia = momentOfInertia;
+        this.proportionalConstant = proportionalConstant;
+        this.nominalVoltage = nominalVoltage;
+    }
+
+    @Override
+    public SimulatedSteerController create(SteerConfiguration steerConfiguration, ModuleConfiguration moduleConfiguration) {
+        SteerController controller = factory.create(steerConfiguration, moduleConfiguration);
+        SimulatedSteerController simulatedController = new SimulatedSteerController(controller, moduleConfiguration,
+                momentOfInertia, proportionalConstant, nominalVoltage);
+        SwerveSimulation.register(simulatedController);
+
+        return simulatedController;
+    }
+}
@@ -0,0 +1,91 @@
+package com.swervedrivespecialties.swervelib.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+
+/**
+ * Steps the physics of every simulated drive and steer controller.
+ * <p>
+ * The simulated factories register each controller they create here. Call
+ * {@link #update(double)} once per loop from simulation code (e.g. a
+ * subsystem's simulationPeriodic()) to move every module forward in time.
+ * <p>
+ * The models don't go through Phoenix's simulated firmware, which runs on the
+ * wall clock, so code that wants up to date sensor readings while the
+ * simulation is stepped faster than real time should read them with
+ * {@link #getSensorPosition(TalonFX)} instead of asking the TalonFX.
+ */
+public final class SwerveSimulation {
+    private static final List<SimulatedDriveController> driveControllers = new ArrayList<>();
+    private static final List<SimulatedSteerController> steerControllers = new ArrayList<>();
+
+    private static Random noiseRandom = null;
+    private static double encoderNoiseTicks = 0.0;
+
+    private SwerveSimulation() {
+    }
+
+    static synchronized void register(SimulatedDriveController controller) {
+        driveControllers.add(controller);
+    }
+
+    static synchronized void register(SimulatedSteerController controller) {
+        steerControllers.add(controller);
+    }
+
+    /**
+     * Adds random noise to every simulated motor sensor reading. The noise is
+     * on each reading, it doesn't build up in the reported position.
+     *
+     * @param random            Where the noise comes from, or null to turn it off.
+     * @param encoderNoiseTicks Standard deviation of the noise in sensor ticks.
+     */
+    public static synchronized void setSensorNoise(Random random, double encoderNoiseTicks) {
+        SwerveSimulation.noiseRandom = random;
+        SwerveSimulation.encoderNoiseTicks = encoderNoiseTicks;
+    }
+
+    static double sampleEncoderNoise() {
+        if (noiseRandom == null) {
+            return 0.0;
+        }
+        return noiseRandom.nextGaussian() * encoderNoiseTicks;
+    }
+
+    /**
+     * Gets what a simulated module motor's integrated sensor reads right now.
+     *
+     * @param motor A drive or steer motor made by one of the simulated factories.
+     * @return The sensor position in ticks, or NaN if the motor isn't simulated.
+     */
+    public static synchronized double getSensorPosition(TalonFX motor) {
+        for (int i = 0; i < driveControllers.size(); i++) {
+            if (driveControllers.get(i).getMotor() == motor) {
+                return driveControllers.get(i).getSensorPosition();
+            }
+        }
+        for (int i = 0; i < steerControllers.size(); i++) {
+            if (steerControllers.get(i).getMotor() == motor) {
+                return steerControllers.get(i).getSensorPosition();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Runs the physics of every registered module.
+     *
+     * @param dtSeconds How much time to simulate.
+     */
+    public static synchronized void update(double dtSeconds) {
+        for (SimulatedDriveController controller : driveControllers) {
+            controller.update(dtSeconds);
+        }
+        for (SimulatedSteerController controller : steerControllers) {
+            controller.update(dtSeconds);
+        }
+    }
+}
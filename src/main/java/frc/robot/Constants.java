@@ -62,6 +62,18 @@ public final class Constants {
     public static final double BACK_RIGHT_MODULE_STEER_OFFSET = -Math.toRadians(211); 
     public static final int DRIVETRAIN_PIGEON_ID = 61; // Set Pigeon ID
 
+    // Sample the drive sensors on a background thread instead of once per loop
+    public static final boolean ODOMETRY_THREAD_ENABLED = true;
+    public static final double ODOMETRY_THREAD_FREQUENCY_HZ = 200.0;
+    // How far back we keep odometry poses for latency compensation
+    public static final double POSE_HISTORY_SECONDS = 1.5;
+    // Fuse external pose measurements (vision) into getPose()
+    public static final boolean VISION_FUSION_ENABLED = true;
+    // How much we trust odometry when blending in a measurement (meters, meters, radians)
+    public static final double ODOMETRY_STD_DEV_X = 0.1;
+    public static final double ODOMETRY_STD_DEV_Y = 0.1;
+    public static final double ODOMETRY_STD_DEV_THETA = 0.1;
+
     // arm stuff
 
     public enum ArmDestination {
@@ -94,6 +106,13 @@ public final class Constants {
 
     public static final int GRABBING_SENSOR_DIO = 4;
 
+    // Digital input filtering, in seconds. Limit switches only drop bounces so
+    // they still react right away, the beam sensor also ignores flicker
+    public static final double LIMIT_SWITCH_GLITCH_SECONDS = 0.002;
+    public static final double LIMIT_SWITCH_DEBOUNCE_SECONDS = 0.0;
+    public static final double GRABBING_SENSOR_GLITCH_SECONDS = 0.005;
+    public static final double GRABBING_SENSOR_DEBOUNCE_SECONDS = 0.1;
+
     // Read left to right from corresponding driver station
     public enum AutoPosition {
         Position1,
@@ -110,6 +129,19 @@ public final class Constants {
     public static final double GRID_BACK_OFF_DISTANCE_CM = 5.0;
     public static final double GRID_BACK_OFF_SPEED = 0.1;
 
+    // Warn when a CAN profile is estimated to use more of the bus than this
+    public static final double CAN_BUS_UTILIZATION_THRESHOLD = 0.7;
+    // Approximate periodic traffic of the REV hubs, their frame rates aren't configurable
+    public static final double PNEUMATIC_HUB_FRAMES_PER_SECOND = 100.0;
+    public static final double PDH_FRAMES_PER_SECOND = 80.0;
+
+    // Record telemetry to a .wpilog file (USB stick if there is one) every loop
+    public static final boolean TELEMETRY_LOG_ENABLED = true;
+
+    // Render the LEDs on their own thread instead of in the LED subsystem's periodic
+    public static final boolean LED_RENDER_THREAD_ENABLED = true;
+    public static final double LED_RENDER_FREQUENCY_HZ = 50.0;
+
     // PDH Constants
     public static final int WINCH_MOTOR_PDH_PORT = 14;
     public static final int ELEVATOR_MOTOR_PDH_PORT = 5;
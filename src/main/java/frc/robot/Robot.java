@@ -10,6 +10,11 @@ import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.robot.subsystems.DrivetrainSubsystem;
+import frc.robot.utils.can.CanBusProfile;
+import frc.robot.utils.interrupts.InterruptDispatcher;
+import frc.robot.utils.logging.LogSite;
+import frc.robot.utils.profiling.LoopProfiler;
+import frc.robot.utils.sim.MatchReplayHarness;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -25,6 +30,10 @@ public class Robot extends TimedRobot {
 
     private RobotContainer m_robotContainer;
 
+    private LoopProfiler.Section m_telemetrySection;
+
+    private static final LogSite END_OF_AUTO_LOG = new LogSite("End of Auto!");
+
     /**
      * This function is run when the robot is first started up and should be used
      * for any
@@ -36,6 +45,8 @@ public class Robot extends TimedRobot {
         // and put our
         // autonomous chooser on the dashboard.
         m_robotContainer = new RobotContainer();
+
+        m_telemetrySection = RobotContainer.getLoopProfiler().registerSection("Telemetry");
     }
 
     /**
@@ -58,7 +69,18 @@ public class Robot extends TimedRobot {
         // and running subsystem periodic() methods. This must be called from the
         // robot's periodic
         // block in order for anything in the Command-based framework to work.
+        RobotContainer.getLoopProfiler().startLoop();
+        // Hand out any digital input edges before the subsystems and commands
+        // run so they see them this loop
+        InterruptDispatcher.getInstance().dispatch();
         CommandScheduler.getInstance().run();
+
+        if (RobotContainer.getTelemetryRecorder() != null) {
+            m_telemetrySection.begin();
+            RobotContainer.getTelemetryRecorder().record();
+            m_telemetrySection.end();
+        }
+        RobotContainer.getLoopProfiler().endLoop();
     }
 
     /** This function is called once each time the robot enters Disabled mode. */
@@ -69,6 +91,8 @@ public class Robot extends TimedRobot {
         // they don't fire up in Teleop next time we enable
         CommandScheduler.getInstance().cancelAll();
 
+        RobotContainer.getCanBusProfileManager().apply(CanBusProfile.DISABLED_IDLE);
+
         RobotContainer.getDrivetrainSubsystem().stopMotors();
         RobotContainer.getDrivetrainSubsystem().setMotorsToCoast();
         RobotContainer.getPneumaticSubsystem().closeGripper();
@@ -77,6 +101,8 @@ public class Robot extends TimedRobot {
 
     @Override
     public void disabledPeriodic() {
+        // Have the auto ready before autonomousInit, and rebuilt if the pick changes
+        RobotContainer.prebuildAutonomousCommand();
     }
 
     /**
@@ -85,6 +111,8 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void autonomousInit() {
+        RobotContainer.getCanBusProfileManager().apply(CanBusProfile.AUTO_PRECISION);
+
         RobotContainer.getDrivetrainSubsystem().setMotorsToBrake();
         RobotContainer.getDrivetrainSubsystem().primeDrivetrain();
 
@@ -100,13 +128,15 @@ public class Robot extends TimedRobot {
     @Override
     public void autonomousPeriodic() {
         if (DriverStation.getMatchTime() < 1) {
-            System.out.println("End of Auto!");
+            END_OF_AUTO_LOG.log();
             RobotContainer.getDrivetrainSubsystem().lockWheels();
         }
     }
 
     @Override
     public void teleopInit() {
+        RobotContainer.getCanBusProfileManager().apply(CanBusProfile.TELEOP);
+
         RobotContainer.getDrivetrainSubsystem().setMotorsToBrake();
         RobotContainer.getDrivetrainSubsystem().primeDrivetrain();
         RobotContainer.getDrivetrainSubsystem().setPathPlannerDriving(false);
@@ -135,6 +165,8 @@ public class Robot extends TimedRobot {
     public void testInit() {
         // Cancels all running commands at the start of test mode.
         CommandScheduler.getInstance().cancelAll();
+
+        RobotContainer.getCanBusProfileManager().apply(CanBusProfile.TELEOP);
     }
 
     /** This function is called periodically during test mode. */
@@ -145,6 +177,12 @@ public class Robot extends TimedRobot {
     /** This function is called once when the robot is first started up. */
     @Override
     public void simulationInit() {
+        // Replays the autos and quits instead of starting the normal loop
+        if (MatchReplayHarness.isRequested()) {
+            new MatchReplayHarness(this::loopFunc,
+                    () -> m_autonomousCommand != null && m_autonomousCommand.isScheduled()).run();
+            System.exit(0);
+        }
     }
 
     /** This function is called periodically whilst in simulation. */
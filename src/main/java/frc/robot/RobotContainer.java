@@ -7,6 +7,7 @@ package frc.robot;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.PowerDistribution.ModuleType;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
@@ -31,6 +32,13 @@ import frc.robot.subsystems.LEDStripSubsystem;
 import frc.robot.subsystems.ShuffleboardSubsystem;
 import frc.robot.subsystems.ButtonBoardSubsystem;
 import frc.robot.subsystems.PneumaticSubsystem;
+import frc.robot.utils.can.CanBusProfile;
+import frc.robot.utils.can.CanBusProfileManager;
+import frc.robot.utils.can.CanBusReport;
+import frc.robot.utils.logging.LogSite;
+import frc.robot.utils.logging.TelemetryRecorder;
+import frc.robot.utils.profiling.LoopProfiler;
+import frc.robot.utils.trajectory.TrajectoryRegistry;
 
 /**
  * This class is where the bulk of the robot should be declared. Since
@@ -44,11 +52,18 @@ import frc.robot.subsystems.PneumaticSubsystem;
 public class RobotContainer {
     // The robot's subsystems and commands are defined here...
 
+    // This has to exist before any of the subsystems, they register their
+    // periodic timing sections with it when they are constructed.
+    private final static LoopProfiler m_loopProfiler = new LoopProfiler("LoopProfiler", TimedRobot.kDefaultPeriod);
+
     // The Shuffleboard stuff needs to be called early because some of the data
     // updates by other subsystems in their periodics make calls to Shuffleboard.
     private final static ShuffleboardTab m_chargedUpTab = Shuffleboard.getTab("ChargedUp!");
     private final static ShuffleboardSubsystem m_shuffleboardSubsystem = new ShuffleboardSubsystem(m_chargedUpTab);
 
+    // Auto trajectories are loaded on its own thread while we sit disabled
+    private final static TrajectoryRegistry m_trajectoryRegistry = new TrajectoryRegistry();
+
     private final static DrivetrainSubsystem m_drivetrainSubsystem = new DrivetrainSubsystem();
 
     private final static XboxController m_controller = new XboxController(0);
@@ -66,6 +81,19 @@ public class RobotContainer {
 
     private final static PowerDistribution m_pdh = new PowerDistribution(1, ModuleType.kRev);
 
+    private final static CanBusProfileManager m_canBusProfileManager = new CanBusProfileManager(
+            Constants.CAN_BUS_UTILIZATION_THRESHOLD);
+    private static CanBusReport m_canBusReport;
+    // Null when telemetry logging is turned off
+    private static TelemetryRecorder m_telemetryRecorder;
+
+    // The auto for whatever's picked on Shuffleboard, built ahead of time so
+    // autonomousInit doesn't have to
+    private static Command m_prebuiltAutoCommand;
+    private static Constants.AutoPosition m_prebuiltAutoPosition;
+
+    private static final LogSite PREBUILT_AUTO_LOG = new LogSite("Prebuilt auto for %s");
+
     /**
      * The container for the robot. Contains subsystems, OI devices, and commands.
      */
@@ -73,6 +101,13 @@ public class RobotContainer {
 
         DriverStation.silenceJoystickConnectionWarning(true);
 
+        // Start loading every path the autos use. AutoTwoCommand and
+        // AutoConeOnlyCommand don't follow any paths
+        m_trajectoryRegistry.preload(AutoOneCommand.PATH_NAME, AutoOneCommand.MAX_VELOCITY,
+                AutoOneCommand.MAX_ACCELERATION);
+        m_trajectoryRegistry.preload(AutoThreeCommand.PATH_NAME, AutoThreeCommand.MAX_VELOCITY,
+                AutoThreeCommand.MAX_ACCELERATION);
+
         // This has to be called first to setup the Shuffleboard controls which
         // are used in the configureButtonBindings method.
         m_shuffleboardSubsystem.configureShuffleboard();
@@ -93,6 +128,26 @@ public class RobotContainer {
 
         // Configure the button bindings
         configureButtonBindings();
+
+        // Bound after all of the buttons so command timing starts after them
+        m_loopProfiler.bindCommandTiming(CommandScheduler.getInstance());
+
+        // Every CTRE device's status frames are managed from one place so we
+        // can trade bus load for sensor freshness depending on the mode
+        m_drivetrainSubsystem.registerCanDevices(m_canBusProfileManager);
+        m_elevatorSubsystem.registerCanDevices(m_canBusProfileManager);
+        m_extendoSubsystem.registerCanDevices(m_canBusProfileManager);
+        m_pneumaticSubsystem.registerCanDevices(m_canBusProfileManager);
+        m_canBusProfileManager.registerFixedRateDevice("PDH " + m_pdh.getModule(), Constants.PDH_FRAMES_PER_SECOND);
+        m_canBusProfileManager.apply(CanBusProfile.DISABLED_IDLE);
+
+        m_canBusReport = new CanBusReport(m_canBusProfileManager, Shuffleboard.getTab("CAN Bus (Debug)"));
+
+        if (Constants.TELEMETRY_LOG_ENABLED) {
+            m_telemetryRecorder = new TelemetryRecorder(m_drivetrainSubsystem, m_elevatorSubsystem,
+                    m_extendoSubsystem, m_pneumaticSubsystem);
+            m_telemetryRecorder.bindCommandEvents(CommandScheduler.getInstance());
+        }
     }
 
     /**
@@ -157,6 +212,39 @@ public class RobotContainer {
      */
 
     public static Command getAutonomousCommand() {
+        // Each command only gets run once, the next one is built while disabled
+        Command prebuiltAutoCommand = m_prebuiltAutoCommand;
+        Constants.AutoPosition prebuiltAutoPosition = m_prebuiltAutoPosition;
+        m_prebuiltAutoCommand = null;
+        m_prebuiltAutoPosition = null;
+        if (prebuiltAutoCommand != null && prebuiltAutoPosition == m_shuffleboardSubsystem.getAutoPosition()) {
+            return prebuiltAutoCommand;
+        }
+        return buildAutonomousCommand();
+    }
+
+    /**
+     * Builds the auto picked on Shuffleboard whenever the pick changes, so it's
+     * ready to go before autonomousInit. Call this from disabledPeriodic.
+     */
+    public static void prebuildAutonomousCommand() {
+        // Building the command before its paths are loaded would just wait on
+        // them here instead
+        if (!m_trajectoryRegistry.isLoaded()) {
+            return;
+        }
+
+        Constants.AutoPosition autoPosition = m_shuffleboardSubsystem.getAutoPosition();
+        if (m_prebuiltAutoCommand != null && autoPosition == m_prebuiltAutoPosition) {
+            return;
+        }
+
+        m_prebuiltAutoCommand = buildAutonomousCommand();
+        m_prebuiltAutoPosition = autoPosition;
+        PREBUILT_AUTO_LOG.log(autoPosition);
+    }
+
+    private static Command buildAutonomousCommand() {
         if (m_shuffleboardSubsystem.getAutoPosition() == Constants.AutoPosition.Position1) {
             return new AutoOneCommand(m_elevatorSubsystem, m_extendoSubsystem, m_drivetrainSubsystem,
                     m_pneumaticSubsystem);
@@ -243,4 +331,20 @@ public class RobotContainer {
         return m_pdh;
     }
 
+    public static LoopProfiler getLoopProfiler() {
+        return m_loopProfiler;
+    }
+
+    public static CanBusProfileManager getCanBusProfileManager() {
+        return m_canBusProfileManager;
+    }
+
+    public static TelemetryRecorder getTelemetryRecorder() {
+        return m_telemetryRecorder;
+    }
+
+    public static TrajectoryRegistry getTrajectoryRegistry() {
+        return m_trajectoryRegistry;
+    }
+
 }
@@ -24,6 +24,10 @@ public class AutoOneCommand extends SequentialCommandGroup {
 
     private double m_startTime = 0;
 
+    public static final String PATH_NAME = "auto1_NoReturn";
+    public static final double MAX_VELOCITY = Constants.MAX_AUTO_VELOCITY;
+    public static final double MAX_ACCELERATION = Constants.MAX_AUTO_ACCELERATION;
+
     public AutoOneCommand(ElevatorSubsystem elevatorSubsystem, ExtendoSubsystem extendoSubsystem,
             DrivetrainSubsystem drivetrainSubystem,
             PneumaticSubsystem pneumaticSubsystem) {
@@ -54,8 +58,8 @@ public class AutoOneCommand extends SequentialCommandGroup {
                     new InstantCommand(() -> m_pneumaticSubsystem.openGripper())
                 ),
                 new InstantCommand(() -> m_pneumaticSubsystem.openGripper()),
-                new FollowTrajectoryCommand(m_drivetrainSubsystem, "auto1_NoReturn", m_eventMap,
-                        Constants.MAX_AUTO_VELOCITY, Constants.MAX_AUTO_ACCELERATION, true)
+                new FollowTrajectoryCommand(m_drivetrainSubsystem, PATH_NAME, m_eventMap,
+                        MAX_VELOCITY, MAX_ACCELERATION, true)
             ),
             new InstantCommand(() -> m_pneumaticSubsystem.closeGripper()),
             new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.transit),
@@ -17,6 +17,10 @@ import frc.robot.subsystems.PneumaticSubsystem;
 public class AutoThreeCommand extends SequentialCommandGroup {
 
     private double m_startTime = 0;
+
+    public static final String PATH_NAME = "auto3_NoReturn";
+    public static final double MAX_VELOCITY = 4;
+    public static final double MAX_ACCELERATION = 3;
     private static ElevatorSubsystem m_elevatorSubsystem;
     private static ExtendoSubsystem m_extendoSubsystem;
     private static DrivetrainSubsystem m_drivetrainSubsystem;
@@ -50,8 +54,8 @@ public class AutoThreeCommand extends SequentialCommandGroup {
                     new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.home),
                     new InstantCommand(() -> m_pneumaticSubsystem.openGripper())
                 ),
-                new FollowTrajectoryCommand(m_drivetrainSubsystem, "auto3_NoReturn", m_eventMap,
-                        4, 3, true)
+                new FollowTrajectoryCommand(m_drivetrainSubsystem, PATH_NAME, m_eventMap,
+                        MAX_VELOCITY, MAX_ACCELERATION, true)
             ),
             new InstantCommand(() -> m_drivetrainSubsystem.reverseGyroscope()),
             new InstantCommand(() -> printEndCommand()));
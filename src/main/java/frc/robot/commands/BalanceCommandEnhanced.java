@@ -6,6 +6,7 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.DrivetrainSubsystem;
 import frc.robot.subsystems.LEDStripSubsystem;
+import frc.robot.utils.logging.LogSite;
 
 import static frc.robot.Constants.DRIVETRAIN_WHEEL_CIRCUMFERENCE_CM;
 import static frc.robot.Constants.DRIVETRAIN_TICKS_PER_ROTATION;
@@ -27,6 +28,13 @@ public class BalanceCommandEnhanced extends CommandBase{
     private static final double RAMP_ANGLE = 8;
     private static final double RAMP_ANGLE_DESC = 6;
 
+    // These run every loop while balancing, keep them off the console thread
+    private static final LogSite STATE_LOG = new LogSite("Balance State %s --> %s");
+    private static final LogSite ROLL_LOG = new LogSite("roll: %.2f", 0.1);
+    private static final LogSite ENCODER_COUNT_LOG = new LogSite("encoder count: currentEncoderCount: %.0f, %.0f");
+    private static final LogSite VOLTAGE_LOG = new LogSite("Auto engage PID voltage: %.3f", 0.1);
+    private static final LogSite AT_GOAL_LOG = new LogSite("At goal! : %.0f");
+
     private final double kP = 0.10;
     private final double kI = 0.00;
     private final double kD = 0.0;
@@ -69,7 +77,7 @@ public class BalanceCommandEnhanced extends CommandBase{
     }
 
     private void stateTransition(state newState) {
-        System.out.println("Balance State " + m_currentState + " --> " + newState);
+        STATE_LOG.log(m_currentState, newState);
         m_currentState = newState;
     }
 
@@ -120,7 +128,7 @@ public class BalanceCommandEnhanced extends CommandBase{
             case GOING_OUT_CLIMB:
                 /// We have started to climb the charging station heading towards the middle of the field
                 /// we will stay in this state until we start to descend
-                System.out.println("roll: " + m_drivetrainSubsystem.getRoll());
+                ROLL_LOG.log(m_drivetrainSubsystem.getRoll());
                 if (m_drivetrainSubsystem.getRoll() < -RAMP_ANGLE_DESC) {
                     stateTransition(state.GOING_OUT_DECENDING);
                     // System.out.println("roll: " + m_drivetrainSubsystem.getRoll());
@@ -146,8 +154,7 @@ public class BalanceCommandEnhanced extends CommandBase{
 
                 if (Math.abs(currentEncoderCount - m_encoderCountStart) > EXITING_COMMUNITY_ENCODER_DISTANCE) {
                     stateTransition(state.GOING_BACK_FLAT);
-                    System.out.println( "encoder count: currentEncoderCount: " +
-                        currentEncoderCount + ", " + m_encoderCountStart);
+                    ENCODER_COUNT_LOG.log(currentEncoderCount, m_encoderCountStart);
                 } else {
                     drive(GOING_OUT_EXITING_COMMUNITY_SPEED);
                 }
@@ -186,11 +193,11 @@ public class BalanceCommandEnhanced extends CommandBase{
                     voltage = -1.175;
                 }
 
-                System.out.println( "Auto engage PID voltage: " + voltage);
+                VOLTAGE_LOG.log(voltage);
 
                 m_drivetrainSubsystem.driveRaw(voltage, voltage, voltage, voltage, 0, 0, 0, 0);
                 if (m_pidController.atSetpoint()){
-                    System.out.println("At goal! : " + m_engaged_count);
+                    AT_GOAL_LOG.log(m_engaged_count);
                     // 20ms * 50 times says we're properly engaged
                     if (m_engaged_count++ > 20) {
                         /* We are fully level (and have been for a period of time)
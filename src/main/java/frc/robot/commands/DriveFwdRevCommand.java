@@ -2,6 +2,7 @@ package frc.robot.commands;
 
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.RobotContainer;
 import frc.robot.subsystems.DrivetrainSubsystem;
 
 import static frc.robot.Constants.DRIVETRAIN_WHEEL_CIRCUMFERENCE_CM;
@@ -16,12 +17,6 @@ public class DriveFwdRevCommand extends CommandBase {
     double m_startEncoderCount;
     double m_distanceInEncoderCounts;
 
-    // We need to increase the frequency of the encoder status messages
-    // on the drive motors to get a consistently accurate 'distance
-    // covered' measurement.
-    private final static int ORIGINAL_FRAME_STATUS_PERIOD = 20;
-    private final static int FAST_STATUS_FRAME_PERIOD = 10;
-
     /**
      * 
      * @param distance Distance in CM to drive, should always be positive
@@ -52,9 +47,10 @@ public class DriveFwdRevCommand extends CommandBase {
             m_speed = 0.0;
         }
 
-        // Increase the status frame period just for the life of this command
-        // in order to try to get more accuracy in the encoder tick count
-        m_drivetrainSubsystem.setDriveMotorStatusFramePeriod(FAST_STATUS_FRAME_PERIOD);
+        // We need to increase the frequency of the encoder status messages
+        // on the drive motors to get a consistently accurate 'distance
+        // covered' measurement, just for the life of this command
+        RobotContainer.getCanBusProfileManager().setDriveFeedbackBoost(true);
 
         m_distanceInEncoderCounts = ((m_distanceCM / DRIVETRAIN_WHEEL_CIRCUMFERENCE_CM) * DRIVETRAIN_TICKS_PER_ROTATION);
 
@@ -83,8 +79,8 @@ public class DriveFwdRevCommand extends CommandBase {
         m_drivetrainSubsystem.stopMotors();
         m_drivetrainSubsystem.setMotorsToBrake();
 
-        // Return the status frame period back to its original value
-        m_drivetrainSubsystem.setDriveMotorStatusFramePeriod(ORIGINAL_FRAME_STATUS_PERIOD);
+        // Return the status frame rates back to what they were
+        RobotContainer.getCanBusProfileManager().setDriveFeedbackBoost(false);
 
         if (interrupted) {
             System.out.println("DriveFwdRevCommand interrupted");
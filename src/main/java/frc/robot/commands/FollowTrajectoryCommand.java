@@ -1,7 +1,6 @@
 
 package frc.robot.commands;
 
-import com.pathplanner.lib.PathPlanner;
 import com.pathplanner.lib.PathPlannerTrajectory;
 import com.pathplanner.lib.commands.FollowPathWithEvents;
 import com.pathplanner.lib.commands.PPSwerveControllerCommand;
@@ -9,18 +8,19 @@ import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.RobotContainer;
 import frc.robot.subsystems.DrivetrainSubsystem;
 
 import java.util.HashMap;
 
-import com.pathplanner.lib.PathConstraints;
-
 public class FollowTrajectoryCommand extends SequentialCommandGroup {
 
     public FollowTrajectoryCommand(DrivetrainSubsystem drivetrain, String pathName, HashMap<String, Command> eventMap,
             double maxVelocity, double maxAcceleration, boolean isFirstPath) {
 
-        PathPlannerTrajectory path = PathPlanner.loadPath(pathName, new PathConstraints(maxVelocity, maxAcceleration));
+        // Normally already loaded in the background while the robot was disabled
+        PathPlannerTrajectory path = RobotContainer.getTrajectoryRegistry().get(pathName, maxVelocity,
+                maxAcceleration);
         Command swerveCommand = new PPSwerveControllerCommand(
             path,
             drivetrain::getPose, // Pose supplier
@@ -41,8 +41,7 @@ public class FollowTrajectoryCommand extends SequentialCommandGroup {
             new InstantCommand(() -> {
                 // Reset odometry for the first path you run during auto
                 if (isFirstPath){
-                    drivetrain.getOdometry().resetPosition(drivetrain.getGyroscopeRotation(),
-                            drivetrain.getSwerveModulePositions(), path.getInitialHolonomicPose());
+                    drivetrain.resetOdometry(path.getInitialHolonomicPose());
                 }
             }),
             command,
@@ -1,6 +1,5 @@
 package frc.robot.commands;
 
-import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
@@ -9,20 +8,32 @@ import frc.robot.Constants.ArmDestination;
 import frc.robot.subsystems.ElevatorSubsystem;
 import frc.robot.subsystems.ExtendoSubsystem;
 import frc.robot.subsystems.PneumaticSubsystem;
+import frc.robot.utils.CT_DigitalInput;
 
 public class SensorGrabbingCommand extends CommandBase{
     PneumaticSubsystem m_pneumaticSubsystem;
     ExtendoSubsystem m_extendoSubsystem;
     ElevatorSubsystem m_elevatorSubsystem;
 
-    DigitalInput m_sensor;
+    // The DIO can only be opened once, every instance of the command shares it
+    private static CT_DigitalInput m_sensor;
+
+    private long m_startTripCount;
 
     public SensorGrabbingCommand(){
-        m_sensor = new DigitalInput(Constants.GRABBING_SENSOR_DIO);
+        if (m_sensor == null) {
+            m_sensor = new CT_DigitalInput(Constants.GRABBING_SENSOR_DIO);
+            m_sensor.enableFilter(Constants.GRABBING_SENSOR_GLITCH_SECONDS,
+                    Constants.GRABBING_SENSOR_DEBOUNCE_SECONDS);
+        }
     }
 
     @Override
     public void initialize() {
+        // The filter counts the beam being broken even if it's only for a
+        // moment between loops, as long as it isn't just flicker
+        m_startTripCount = m_sensor.getFilter().getRisingEdgeCount();
+
         new SequentialCommandGroup(
             new InstantCommand(() -> m_pneumaticSubsystem.closeGripper()),
             new SetArmReachCommand(m_extendoSubsystem, ArmDestination.home),
@@ -38,7 +49,7 @@ public class SensorGrabbingCommand extends CommandBase{
 
     @Override
     public boolean isFinished() {
-        if(m_sensor.get()){
+        if(m_sensor.getFiltered() || m_sensor.getFilter().getRisingEdgeCount() != m_startTripCount){
             return true;
         } else {
             return false;
@@ -1,6 +1,7 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.ConditionalCommand;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
@@ -17,9 +18,12 @@ import frc.robot.commands.SensorGrabbingCommand;
 import frc.robot.commands.SetArmHeightCommand;
 import frc.robot.commands.SetArmReachCommand;
 import frc.robot.commands.StrafeCommand;
+import frc.robot.utils.profiling.LoopProfiler;
 
 public class ButtonBoardSubsystem extends SubsystemBase {
 
+    private final LoopProfiler.Section m_loopSection = RobotContainer.getLoopProfiler().registerSection("ButtonBoard");
+
     private enum ButtonBoardOperationMode {
         Fine,
         Coarse
@@ -31,6 +35,35 @@ public class ButtonBoardSubsystem extends SubsystemBase {
     private Joystick m_joystick1;
     private Joystick m_joystick2;
 
+    // Joystick #1 Buttons
+    private final JoystickButton m_armShelfButton;
+    private final JoystickButton m_armTransitButton;
+    private final JoystickButton m_armHomeButton;
+    private final JoystickButton m_armLowButton;
+    private final JoystickButton m_coneFloorButton;
+    private final JoystickButton m_armMiddleButton;
+    private final JoystickButton m_pickUpCubeButton;
+    private final JoystickButton m_armHighButton;
+
+    // Joystick #2 Buttons
+    private final JoystickButton m_rotateLeftButton;
+    private final JoystickButton m_rotateRightButton;
+    private final JoystickButton m_armUpButton;
+    private final JoystickButton m_armRetractButton;
+    private final JoystickButton m_armDownButton;
+    private final JoystickButton m_armExtendButton;
+    private final JoystickButton m_operationToggleSwitch;
+    private final JoystickButton m_toggleGripperButton;
+
+    // The joystick nudges are made once and rescheduled every time. Coarse
+    // strafing has always used the fine distance.
+    private final StrafeCommand m_strafeRightCommand;
+    private final StrafeCommand m_strafeLeftCommand;
+    private final DriveFwdRevCommand m_fineReverseCommand;
+    private final DriveFwdRevCommand m_coarseReverseCommand;
+    private final DriveFwdRevCommand m_fineForwardCommand;
+    private final DriveFwdRevCommand m_coarseForwardCommand;
+
     private ButtonBoardOperationMode m_operationMode;
 
     private double m_fwdRevJoystick;
@@ -66,74 +99,33 @@ public class ButtonBoardSubsystem extends SubsystemBase {
         m_extendoSubsystem = extendoSubsystem;
         m_pneumaticSubsystem = pneumaticSubsystem;
         m_drivetrainSubsystem = drivetrainSubsystem;
-    }
-
-    // Joystick #1 Buttons
-
-    private JoystickButton getArmShelfButton() {
-        return new JoystickButton(m_joystick1, 1);
-    }
-
-    private JoystickButton getArmTransitButton() {
-        return new JoystickButton(m_joystick1, 2);
-    }
-
-    private JoystickButton getArmHomeButton() {
-        return new JoystickButton(m_joystick1, 3);
-    }
-
-    private JoystickButton getArmLowButton() {
-        return new JoystickButton(m_joystick1, 4);
-    }
-
-    private JoystickButton getConeFloorButton() {
-        return new JoystickButton(m_joystick1, 5);
-    }
-
-    private JoystickButton getArmMiddleButton() {
-        return new JoystickButton(m_joystick1, 6);
-    }
-
-    private JoystickButton getPickUpCubeButton() {
-        return new JoystickButton(m_joystick1, 7);
-    }
-
-    private JoystickButton getArmHighButton() {
-        return new JoystickButton(m_joystick1, 8);
-    }
-
-    // Joystick #2 Buttons
 
-    private JoystickButton getRotateLeftButton() {
-        return new JoystickButton(m_joystick2, 1);
-    }
-
-    private JoystickButton getRotateRightButton() {
-        return new JoystickButton(m_joystick2, 2);
-    }
-
-    private JoystickButton getArmUpButton() {
-        return new JoystickButton(m_joystick2, 3);
-    }
-
-    private JoystickButton getArmRetractButton() {
-        return new JoystickButton(m_joystick2, 6);
-    }
-
-    private JoystickButton getArmDownButton() {
-        return new JoystickButton(m_joystick2, 5);
-    }
-
-    private JoystickButton getArmExtendButton() {
-        return new JoystickButton(m_joystick2, 4);
-    }
-
-    private JoystickButton getOperationToggleSwitch() {
-        return new JoystickButton(m_joystick2, 7);
-    }
-
-    private JoystickButton getToggleGripperButton() {
-        return new JoystickButton(m_joystick2, 8);
+        m_armShelfButton = new JoystickButton(m_joystick1, 1);
+        m_armTransitButton = new JoystickButton(m_joystick1, 2);
+        m_armHomeButton = new JoystickButton(m_joystick1, 3);
+        m_armLowButton = new JoystickButton(m_joystick1, 4);
+        m_coneFloorButton = new JoystickButton(m_joystick1, 5);
+        m_armMiddleButton = new JoystickButton(m_joystick1, 6);
+        m_pickUpCubeButton = new JoystickButton(m_joystick1, 7);
+        m_armHighButton = new JoystickButton(m_joystick1, 8);
+
+        m_rotateLeftButton = new JoystickButton(m_joystick2, 1);
+        m_rotateRightButton = new JoystickButton(m_joystick2, 2);
+        m_armUpButton = new JoystickButton(m_joystick2, 3);
+        m_armExtendButton = new JoystickButton(m_joystick2, 4);
+        m_armDownButton = new JoystickButton(m_joystick2, 5);
+        m_armRetractButton = new JoystickButton(m_joystick2, 6);
+        m_operationToggleSwitch = new JoystickButton(m_joystick2, 7);
+        m_toggleGripperButton = new JoystickButton(m_joystick2, 8);
+
+        m_strafeRightCommand = new StrafeCommand(FINE_STRAFE_DISTANCE_CM, -STRAFE_SPEED, m_drivetrainSubsystem);
+        m_strafeLeftCommand = new StrafeCommand(FINE_STRAFE_DISTANCE_CM, STRAFE_SPEED, m_drivetrainSubsystem);
+        m_fineReverseCommand = new DriveFwdRevCommand(FINE_DRIVE_DISTANCE_CM, -DRIVE_SPEED, m_drivetrainSubsystem);
+        m_coarseReverseCommand = new DriveFwdRevCommand(COARSE_DRIVE_DISTANCE_CM, -DRIVE_SPEED,
+                m_drivetrainSubsystem);
+        m_fineForwardCommand = new DriveFwdRevCommand(FINE_DRIVE_DISTANCE_CM, DRIVE_SPEED, m_drivetrainSubsystem);
+        m_coarseForwardCommand = new DriveFwdRevCommand(COARSE_DRIVE_DISTANCE_CM, DRIVE_SPEED,
+                m_drivetrainSubsystem);
     }
 
     private boolean isFineOperationMode() {
@@ -141,7 +133,7 @@ public class ButtonBoardSubsystem extends SubsystemBase {
     }
 
     private void setOperationMode() {
-        if (getOperationToggleSwitch().getAsBoolean()) {
+        if (m_operationToggleSwitch.getAsBoolean()) {
             m_operationMode = ButtonBoardOperationMode.Fine;
         } else {
             m_operationMode = ButtonBoardOperationMode.Coarse;
@@ -150,6 +142,7 @@ public class ButtonBoardSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
+        m_loopSection.begin();
 
         setOperationMode();
 
@@ -164,21 +157,9 @@ public class ButtonBoardSubsystem extends SubsystemBase {
         // position.
         if (m_strafeReset) {
             if (m_strafeJoystick == 1.0) { // Right
-                if (isFineOperationMode()) {
-                    new StrafeCommand(FINE_STRAFE_DISTANCE_CM, -STRAFE_SPEED,
-                            m_drivetrainSubsystem).schedule();
-                } else {
-                    new StrafeCommand(FINE_STRAFE_DISTANCE_CM, -STRAFE_SPEED,
-                            m_drivetrainSubsystem).schedule();
-                }
+                restart(m_strafeRightCommand);
             } else if (m_strafeJoystick == -1.0) { // Left
-                if (isFineOperationMode()) {
-                    new StrafeCommand(FINE_STRAFE_DISTANCE_CM, STRAFE_SPEED,
-                            m_drivetrainSubsystem).schedule();
-                } else {
-                    new StrafeCommand(FINE_STRAFE_DISTANCE_CM, STRAFE_SPEED,
-                            m_drivetrainSubsystem).schedule();
-                }
+                restart(m_strafeLeftCommand);
             }
             m_strafeReset = false;
         }
@@ -197,21 +178,9 @@ public class ButtonBoardSubsystem extends SubsystemBase {
         // position one step at a time and not continuously drive.
         if (m_fwdRevReset) {
             if (m_fwdRevJoystick == 1.0) { // Reverse
-                if (isFineOperationMode()) {
-                    new DriveFwdRevCommand(FINE_DRIVE_DISTANCE_CM,
-                            -DRIVE_SPEED, m_drivetrainSubsystem).schedule();
-                } else {
-                    new DriveFwdRevCommand(COARSE_DRIVE_DISTANCE_CM,
-                            -DRIVE_SPEED, m_drivetrainSubsystem).schedule();
-                }
+                restart(isFineOperationMode() ? m_fineReverseCommand : m_coarseReverseCommand);
             } else if (m_fwdRevJoystick == -1.0) { // Forward
-                if (isFineOperationMode()) {
-                    new DriveFwdRevCommand(FINE_DRIVE_DISTANCE_CM,
-                            DRIVE_SPEED, m_drivetrainSubsystem).schedule();
-                } else {
-                    new DriveFwdRevCommand(COARSE_DRIVE_DISTANCE_CM,
-                            DRIVE_SPEED, m_drivetrainSubsystem).schedule();
-                }
+                restart(isFineOperationMode() ? m_fineForwardCommand : m_coarseForwardCommand);
             }
             m_fwdRevReset = false;
         }
@@ -222,6 +191,19 @@ public class ButtonBoardSubsystem extends SubsystemBase {
         if ((m_fwdRevJoystick < 1.0) && (m_fwdRevJoystick > -1.0)) {
             m_fwdRevReset = true;
         }
+
+        m_loopSection.end();
+    }
+
+    /**
+     * Starts a command that's built once over from the beginning, even if it's
+     * already running, the same as scheduling a brand new one would.
+     */
+    private void restart(Command command) {
+        if (command.isScheduled()) {
+            command.cancel();
+        }
+        command.schedule();
     }
 
     public void configureButtonBindings() {
@@ -231,13 +213,13 @@ public class ButtonBoardSubsystem extends SubsystemBase {
         // **********************************
         // Gripper Button Handling
         // **********************************
-        getToggleGripperButton().onTrue(
+        m_toggleGripperButton.onTrue(
                 new InstantCommand(() -> m_pneumaticSubsystem.toggleGripper()));
 
         // **********************************
         // Arm Button Handling
         // **********************************
-        getArmUpButton().onTrue(
+        m_armUpButton.onTrue(
                 new ConditionalCommand(
                         // True command
                         new InstantCommand(() -> {
@@ -253,7 +235,7 @@ public class ButtonBoardSubsystem extends SubsystemBase {
                         // variable
                         this::isFineOperationMode));
 
-        getArmDownButton().onTrue(
+        m_armDownButton.onTrue(
                 new ConditionalCommand(
                         // True command
                         new InstantCommand(() -> {
@@ -269,7 +251,7 @@ public class ButtonBoardSubsystem extends SubsystemBase {
                         // variable
                         this::isFineOperationMode));
 
-        getArmExtendButton().onTrue(
+        m_armExtendButton.onTrue(
                 new ConditionalCommand(
                         // True command
                         new InstantCommand(() -> {
@@ -285,7 +267,7 @@ public class ButtonBoardSubsystem extends SubsystemBase {
                         // variable
                         this::isFineOperationMode));
 
-        getArmRetractButton().onTrue(
+        m_armRetractButton.onTrue(
                 new ConditionalCommand(
                         // True command
                         new InstantCommand(() -> {
@@ -301,60 +283,64 @@ public class ButtonBoardSubsystem extends SubsystemBase {
                         // variable
                         this::isFineOperationMode));
 
-        getArmShelfButton().onTrue(
+        m_armShelfButton.onTrue(
                 new SequentialCommandGroup(
                     new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.shelf),
                     new InstantCommand(() -> m_pneumaticSubsystem.openGripper())
                 ));
 
-        getArmTransitButton().onTrue(
+        m_armTransitButton.onTrue(
                 new SequentialCommandGroup(
                         new SetArmReachCommand(m_extendoSubsystem, ArmDestination.home),
                         new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.transit)
                 ));
 
-        getArmHomeButton().onTrue(
+        m_armHomeButton.onTrue(
                 new SequentialCommandGroup(
                         new InstantCommand(() -> m_pneumaticSubsystem.closeGripper()),
                         new SetArmReachCommand(m_extendoSubsystem, ArmDestination.home),
                         new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.home),
                         new InstantCommand(() -> m_pneumaticSubsystem.openGripper())));
 
-        getArmLowButton().onTrue(
+        m_armLowButton.onTrue(
                 new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.low));
 
-        getArmMiddleButton().onTrue(
+        m_armMiddleButton.onTrue(
                 new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.middle));
 
-        getArmHighButton().onTrue(
+        m_armHighButton.onTrue(
                 new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.high));
         
-        getPickUpCubeButton().onTrue(
+        // The floor pickups are built once here and only scheduled when the
+        // arm is high enough. Each press starts them over, like a new one did
+        Command pickUpCubeCommand = new SequentialCommandGroup(
+                new InstantCommand(() -> m_pneumaticSubsystem.openGripper()),
+                new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.cube),
+                new InstantCommand(() -> m_pneumaticSubsystem.closeGripper()),
+                new WaitCommand(.35),
+                new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.transit)
+        );
+        m_pickUpCubeButton.onTrue(
                 new InstantCommand(() -> {
                     if(m_elevatorSubsystem.getMeasurement() > 20){
-                        new SequentialCommandGroup(
-                            new InstantCommand(() -> m_pneumaticSubsystem.openGripper()),
-                            new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.cube),
-                            new InstantCommand(() -> m_pneumaticSubsystem.closeGripper()),
-                            new WaitCommand(.35),
-                            new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.transit)
-                        ).schedule();
+                        restart(pickUpCubeCommand);
                     }
                 })
         );
         
-        getConeFloorButton().onTrue(
+        Command coneFloorCommand = new SequentialCommandGroup(
+                new InstantCommand(() -> m_pneumaticSubsystem.closeGripper()),
+                //new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.cone_floor),
+                new SetArmReachCommand(m_extendoSubsystem, ArmDestination.cone_floor),
+                new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.cone_floor),
+                new InstantCommand(() -> m_pneumaticSubsystem.openGripper())
+                // new WaitCommand(.35),
+                // new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.transit)
+        );
+        m_coneFloorButton.onTrue(
             new InstantCommand(() -> {
                 if(m_elevatorSubsystem.getMeasurement() > 20){
-                    new SequentialCommandGroup(
-                        new InstantCommand(() -> m_pneumaticSubsystem.closeGripper()),
-                        //new ParallelArmCommand(m_extendoSubsystem, m_elevatorSubsystem, ArmDestination.cone_floor),
-                        new SetArmReachCommand(m_extendoSubsystem, ArmDestination.cone_floor),
-                        new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.cone_floor),
-                        new InstantCommand(() -> m_pneumaticSubsystem.openGripper())
-                        // new WaitCommand(.35),
-                        // new SetArmHeightCommand(m_elevatorSubsystem, ArmDestination.transit)
-                    ).schedule();
+                    restart(coneFloorCommand);
                 }
             })
         );
@@ -365,7 +351,7 @@ public class ButtonBoardSubsystem extends SubsystemBase {
         // **********************************
         // Bot Rotation Handling
         // **********************************
-        getRotateLeftButton().onTrue(
+        m_rotateLeftButton.onTrue(
                 new ConditionalCommand(
                         // True command
                         new RotateBotCommand(FINE_TURN_DEGREES, ANGULAR_VELOCITY, m_drivetrainSubsystem),
@@ -375,7 +361,7 @@ public class ButtonBoardSubsystem extends SubsystemBase {
                         // variable
                         this::isFineOperationMode));
 
-        getRotateRightButton().onTrue(
+        m_rotateRightButton.onTrue(
                 new ConditionalCommand(
                         // True command
                         new RotateBotCommand(FINE_TURN_DEGREES, -ANGULAR_VELOCITY, m_drivetrainSubsystem),
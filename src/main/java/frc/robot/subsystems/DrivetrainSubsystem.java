@@ -4,31 +4,46 @@
 
 package frc.robot.subsystems;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
-import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.sensors.CANCoder;
 import com.ctre.phoenix.sensors.PigeonIMU;
 import com.swervedrivespecialties.swervelib.Mk4iSwerveModuleHelper;
 import com.swervedrivespecialties.swervelib.SdsModuleConfigurations;
 import com.swervedrivespecialties.swervelib.SwerveModule;
+import com.swervedrivespecialties.swervelib.sim.SwerveSimulation;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.RobotContainer;
+import frc.robot.utils.can.CanBusProfileManager;
+import frc.robot.utils.can.CanBusProfile.FalconRole;
+import frc.robot.utils.odometry.OdometrySample;
+import frc.robot.utils.odometry.OdometryThread;
+import frc.robot.utils.odometry.PoseHistory;
+import frc.robot.utils.odometry.SwerveOdometry;
+import frc.robot.utils.odometry.VisionPoseEstimator;
+import frc.robot.utils.profiling.LoopProfiler;
+import frc.robot.utils.logging.LogSite;
 
 public class DrivetrainSubsystem extends SubsystemBase {
     /**
@@ -68,7 +83,7 @@ public class DrivetrainSubsystem extends SubsystemBase {
             Math.hypot(Constants.DRIVETRAIN_TRACKWIDTH_METERS / 2.0,
                     Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0);
 
-    private final SwerveDriveKinematics m_kinematics = new SwerveDriveKinematics(
+    private static final Translation2d[] MODULE_LOCATIONS = {
             // Front left
             new Translation2d(Constants.DRIVETRAIN_TRACKWIDTH_METERS / 2.0,
                     Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0),
@@ -80,7 +95,10 @@ public class DrivetrainSubsystem extends SubsystemBase {
                     Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0),
             // Back right
             new Translation2d(-Constants.DRIVETRAIN_TRACKWIDTH_METERS / 2.0,
-                    -Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0));
+                    -Constants.DRIVETRAIN_WHEELBASE_METERS / 2.0)
+    };
+
+    private final SwerveDriveKinematics m_kinematics = new SwerveDriveKinematics(MODULE_LOCATIONS);
 
     // By default we use a Pigeon for our gyroscope. But if you use another
     // gyroscope, like a NavX, you can change this.
@@ -95,6 +113,15 @@ public class DrivetrainSubsystem extends SubsystemBase {
     private final SwerveModule m_backLeftModule;
     private final SwerveModule m_backRightModule;
 
+    // Only used by simulationPeriodic()
+    private final SwerveModuleState[] m_simModuleStates = {
+            new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState()
+    };
+    private Random m_simGyroDriftRandom = null;
+    private double m_simGyroDriftDegrees = 0.0;
+    // The simulated pigeon only updates in real time, so the heading is kept here
+    private double m_simFusedHeading = 0.0;
+
     private final TalonFX m_frontLeftDriveMotor;
     private final TalonFX m_frontRightDriveMotor;
     private final TalonFX m_backLeftDriveMotor;
@@ -105,22 +132,80 @@ public class DrivetrainSubsystem extends SubsystemBase {
     private final TalonFX m_backLeftSteerMotor;
     private final TalonFX m_backRightSteerMotor;
 
+    // Module order matches the kinematics: front left, front right, back left, back right
+    private final TalonFX[] m_driveMotors;
+    private final TalonFX[] m_steerMotors;
+
+    // Odometry reads the module positions from these every loop, drive distance in
+    // meters and steer angle in radians. They are updated in place so that the
+    // periodic odometry update doesn't create any garbage on the roboRIO.
+    private final double[] m_moduleDistances = new double[4];
+    private final double[] m_moduleAngles = new double[4];
+
+    // Only filled in when someone asks for getSwerveModulePositions()
+    private final SwerveModulePosition[] m_modulePositions = new SwerveModulePosition[] {
+            new SwerveModulePosition(),
+            new SwerveModulePosition(),
+            new SwerveModulePosition(),
+            new SwerveModulePosition()
+    };
+    private final double[] m_lastModuleAngles = new double[] { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+
+    private double m_lastFusedHeading = Double.NaN;
+    private Rotation2d m_gyroRotation = new Rotation2d();
+
+    // Sensor snapshot. The gyro and module encoders are read once at the start
+    // of every loop and all of the getters below return these values, so
+    // everything running in the same loop sees the same readings.
+    private final double[] m_yawPitchRoll = new double[3];
+    private double m_fusedHeading;
+    private final double[] m_driveCounts = new double[4];
+    private final double[] m_steerCounts = new double[4];
+
     private ChassisSpeeds m_chassisSpeeds = new ChassisSpeeds(0.0, 0.0, 0.0);
 
     private static final double CLOSED_LOOP_RAMP = 0; // seconds
     private static final double VOLTAGE_COMPENSATION_SATURATION = 12;//11.0; // volts
 
-    private SwerveDriveOdometry m_odometry;
+    private SwerveOdometry m_odometry;
+
+    // Null when the odometry thread is disabled, in which case odometry is
+    // updated straight from the sensors in periodic()
+    private final OdometryThread m_odometryThread;
+    private final OdometrySample m_odometrySample = new OdometrySample(4);
+
+    // Recent odometry poses so late measurements can be matched to where we were
+    private final PoseHistory m_poseHistory = new PoseHistory(
+            (int) Math.ceil(Constants.POSE_HISTORY_SECONDS * (Constants.ODOMETRY_THREAD_ENABLED
+                    ? Constants.ODOMETRY_THREAD_FREQUENCY_HZ
+                    : 1.0 / TimedRobot.kDefaultPeriod)));
+
+    // Corrects the odometry pose with delayed measurements looked up in the pose history
+    private final VisionPoseEstimator m_poseEstimator = new VisionPoseEstimator(m_poseHistory,
+            Constants.ODOMETRY_STD_DEV_X, Constants.ODOMETRY_STD_DEV_Y, Constants.ODOMETRY_STD_DEV_THETA);
+    private boolean m_isVisionFusionEnabled = Constants.VISION_FUSION_ENABLED;
+    // The estimated field pose as x, y and theta, only turned into a Pose2d
+    // (m_estimatedPose) when someone asks for it and it has changed
+    private final double[] m_estimatedPoseValues = new double[3];
+    private final double[] m_estimatedPoseUpdate = new double[3];
+    private Pose2d m_estimatedPose = new Pose2d();
 
     private boolean m_isPathPlannerDriving;
 
     private boolean m_isBoostModeSet; // Cranks the drive speed to the max
 
+    private final LoopProfiler.Section m_loopSection = RobotContainer.getLoopProfiler().registerSection("Drivetrain");
+
     private static double kXYNormalSpeed = 1;//0.75;
     private static double kRotationalNormalSpeed = 0.4;
     private static final double kXYBoostSpeed = 1.0;
     private static final double kRotationalBoostSpeed = 0.6;
 
+    // These get called every loop from some commands
+    private static final LogSite STOP_MOTORS_LOG = new LogSite("stopMotors");
+    private static final LogSite BRAKE_LOG = new LogSite("setMotorsToBrake");
+    private static final LogSite LOCK_WHEELS_LOG = new LogSite("lock Wheels");
+
 
     public DrivetrainSubsystem() {
         // ShuffleboardTab tab = Shuffleboard.getTab("Drivetrain");
@@ -194,6 +279,11 @@ public class DrivetrainSubsystem extends SubsystemBase {
         m_backLeftSteerMotor = (TalonFX) m_backLeftModule.getSteerMotor();
         m_backRightSteerMotor = (TalonFX) m_backRightModule.getSteerMotor();
 
+        m_driveMotors = new TalonFX[] { m_frontLeftDriveMotor, m_frontRightDriveMotor,
+                m_backLeftDriveMotor, m_backRightDriveMotor };
+        m_steerMotors = new TalonFX[] { m_frontLeftSteerMotor, m_frontRightSteerMotor,
+                m_backLeftSteerMotor, m_backRightSteerMotor };
+
         configureDriveMotor(m_frontLeftDriveMotor);
         configureDriveMotor(m_frontRightDriveMotor);
         configureDriveMotor(m_backLeftDriveMotor);
@@ -204,10 +294,21 @@ public class DrivetrainSubsystem extends SubsystemBase {
 
         zeroGyroscope();
 
-        m_odometry = new SwerveDriveOdometry(m_kinematics, getGyroscopeRotation(), getSwerveModulePositions(),
-                new Pose2d());
-        
-        
+        // The odometry thread hasn't been created yet so this reads the encoders too
+        refreshSensorSnapshot();
+        updateModulePositions();
+
+        m_odometry = new SwerveOdometry(MODULE_LOCATIONS, toGyroAngle(m_fusedHeading), m_moduleDistances,
+                m_moduleAngles, new Pose2d());
+
+        // The thread reads the motors directly, which doesn't work with the simulated modules
+        if (Constants.ODOMETRY_THREAD_ENABLED && RobotBase.isReal()) {
+            m_odometryThread = new OdometryThread(m_driveMotors, m_steerMotors, m_pigeon,
+                    Constants.ODOMETRY_THREAD_FREQUENCY_HZ);
+            m_odometryThread.start();
+        } else {
+            m_odometryThread = null;
+        }
     }
 
     private void configureDriveMotor(TalonFX motor) {
@@ -223,55 +324,127 @@ public class DrivetrainSubsystem extends SubsystemBase {
     // the 2023 WPILib changes. The original code can be found here:
     // https://github.com/Spectrum3847/Flash-2023/blob/main/src/main/java/frc/robot/swerve/SwerveModule.java
 
-    private static final double MK4i_L2_angleGearRatio = (50.0 / 14.0) * (60.0 / 10.0);
+    static final double MK4i_L2_angleGearRatio = (50.0 / 14.0) * (60.0 / 10.0);
 
-    private double falconToRPM(double velocityCounts, double gearRatio) {
+    static double falconToRPM(double velocityCounts, double gearRatio) {
         double motorRPM = velocityCounts * (600.0 / 2048.0);
         double mechRPM = motorRPM / gearRatio;
         return mechRPM;
     }
 
-    private double falconToMPS(
+    static double falconToMPS(
             double velocitycounts, double circumference, double gearRatio) {
         double wheelRPM = falconToRPM(velocitycounts, gearRatio);
         double wheelMPS = (wheelRPM * circumference) / 60;
         return wheelMPS;
     }
 
-    private double falconToDegrees(double counts, double gearRatio) {
+    static double falconToDegrees(double counts, double gearRatio) {
         return counts * (360.0 / (gearRatio * 2048.0));
     }
 
-    private double falconToMeters(double falconTiks, double circumference, double gearRatio) {
+    static double falconToMeters(double falconTiks, double circumference, double gearRatio) {
         double wheelRevs = (falconTiks / 2048.0) / gearRatio;
         double meters = wheelRevs * circumference;
         return meters;
     }
 
-    private SwerveModuleState getState(TalonFX driveMotor, TalonFX angleMotor) {
-        double velocity = falconToMPS(
-                driveMotor.getSelectedSensorVelocity(),
-                SdsModuleConfigurations.MK4I_L2.getWheelDiameter() * Math.PI,
-                MK4i_L2_angleGearRatio);
-        Rotation2d angle = Rotation2d.fromDegrees(
-                falconToDegrees(
-                        angleMotor.getSelectedSensorPosition(),
-                        MK4i_L2_angleGearRatio));
-        return new SwerveModuleState(velocity, angle);
+    static final double MK4i_L2_wheelCircumference = SdsModuleConfigurations.MK4I_L2.getWheelDiameter() * Math.PI;
+
+    /**
+     * Updates one entry of the module position buffer from raw Falcon sensor
+     * counts. Only the drive distance and steer angle are read here since that is
+     * all odometry needs.
+     */
+    private void updateModulePosition(int module, double driveCounts, double steerCounts) {
+        m_moduleDistances[module] = falconToMeters(driveCounts, MK4i_L2_wheelCircumference, MK4i_L2_angleGearRatio);
+        m_moduleAngles[module] = Math.toRadians(falconToDegrees(steerCounts, MK4i_L2_angleGearRatio));
     }
 
-    private SwerveModulePosition getPosition(TalonFX driveMotor, TalonFX angleMotor) {
-        SwerveModuleState moduleState = getState(driveMotor, angleMotor);
+    private void updateModulePositions() {
+        for (int module = 0; module < m_moduleDistances.length; module++) {
+            updateModulePosition(module, m_driveCounts[module], m_steerCounts[module]);
+        }
+    }
 
-        double position = falconToMeters(
-                driveMotor.getSelectedSensorPosition(),
-                SdsModuleConfigurations.MK4I_L2.getWheelDiameter() * Math.PI,
-                MK4i_L2_angleGearRatio);
-        return new SwerveModulePosition(position, moduleState.angle);
+    /**
+     * Runs odometry off this loop's sensor snapshot and records the pose. This is
+     * everything periodic() does for odometry when the odometry thread is off,
+     * and none of it allocates.
+     */
+    void updateOdometry() {
+        refreshSensorSnapshot();
+        updateModulePositions();
+        m_odometry.update(toGyroAngle(m_fusedHeading), m_moduleDistances, m_moduleAngles);
+        m_poseHistory.add(Timer.getFPGATimestamp(), m_odometry.getX(), m_odometry.getY(), m_odometry.getTheta());
     }
 
     // ---- End of "inspired" code from Team Spectrum 3847
 
+    /**
+     * Reads the gyro once for this loop. The module encoders are read here too
+     * unless the odometry thread is running, in which case its newest sample is
+     * used instead (see {@link #drainOdometrySamples()}).
+     */
+    private void refreshSensorSnapshot() {
+        if (RobotBase.isSimulation()) {
+            refreshSimulatedSensorSnapshot();
+            return;
+        }
+
+        m_pigeon.getYawPitchRoll(m_yawPitchRoll);
+        m_fusedHeading = m_pigeon.getFusedHeading();
+
+        if (m_odometryThread == null) {
+            for (int module = 0; module < m_driveMotors.length; module++) {
+                m_driveCounts[module] = m_driveMotors[module].getSelectedSensorPosition();
+                m_steerCounts[module] = m_steerMotors[module].getSelectedSensorPosition();
+            }
+        }
+    }
+
+    /**
+     * Phoenix's simulated devices update on the wall clock, which falls behind
+     * when the simulation is stepped faster than real time, so in simulation the
+     * snapshot comes straight from the module models.
+     */
+    private void refreshSimulatedSensorSnapshot() {
+        m_yawPitchRoll[0] = m_simFusedHeading;
+        m_yawPitchRoll[1] = 0.0;
+        m_yawPitchRoll[2] = 0.0;
+        m_fusedHeading = m_simFusedHeading;
+
+        for (int module = 0; module < m_driveMotors.length; module++) {
+            m_driveCounts[module] = SwerveSimulation.getSensorPosition(m_driveMotors[module]);
+            m_steerCounts[module] = SwerveSimulation.getSensorPosition(m_steerMotors[module]);
+        }
+    }
+
+    /**
+     * Applies every sample the odometry thread has queued since the last loop, in
+     * the order they were taken. The newest sample's encoder counts become this
+     * loop's snapshot.
+     */
+    private void drainOdometrySamples() {
+        boolean drained = false;
+        while (m_odometryThread.getQueue().poll(m_odometrySample)) {
+            for (int module = 0; module < m_moduleDistances.length; module++) {
+                updateModulePosition(module,
+                        m_odometrySample.driveCounts[module],
+                        m_odometrySample.steerCounts[module]);
+            }
+            m_odometry.update(toGyroAngle(m_odometrySample.gyroFusedHeading), m_moduleDistances, m_moduleAngles);
+            m_poseHistory.add(m_odometrySample.timestamp, m_odometry.getX(), m_odometry.getY(),
+                    m_odometry.getTheta());
+            drained = true;
+        }
+
+        if (drained) {
+            System.arraycopy(m_odometrySample.driveCounts, 0, m_driveCounts, 0, m_driveCounts.length);
+            System.arraycopy(m_odometrySample.steerCounts, 0, m_steerCounts, 0, m_steerCounts.length);
+        }
+    }
+
     /*
      * This method is used to determine if the robot has stopped moving
      * during an autonomous command being run inside a thread. We need
@@ -280,20 +453,69 @@ public class DrivetrainSubsystem extends SubsystemBase {
      * monitor its movement.
      */
     public double getEncoderCount() {
-        return m_backLeftDriveMotor.getSelectedSensorPosition();
+        // Back left drive motor
+        return m_driveCounts[2];
     }
 
-    public void setDriveMotorStatusFramePeriod(int period) {
-        m_backLeftDriveMotor.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, period);
+    /**
+     * Hands all of the drivetrain's CAN devices to the profile manager so their
+     * status frame rates can be switched together.
+     */
+    public void registerCanDevices(CanBusProfileManager canBusProfileManager) {
+        for (TalonFX motor : m_driveMotors) {
+            canBusProfileManager.registerFalcon(motor, FalconRole.SWERVE_DRIVE);
+        }
+        for (TalonFX motor : m_steerMotors) {
+            canBusProfileManager.registerFalcon(motor, FalconRole.SWERVE_STEER);
+        }
+        canBusProfileManager.registerCANCoder((CANCoder) m_frontLeftModule.getSteerEncoder().getInternal());
+        canBusProfileManager.registerCANCoder((CANCoder) m_frontRightModule.getSteerEncoder().getInternal());
+        canBusProfileManager.registerCANCoder((CANCoder) m_backLeftModule.getSteerEncoder().getInternal());
+        canBusProfileManager.registerCANCoder((CANCoder) m_backRightModule.getSteerEncoder().getInternal());
+        canBusProfileManager.registerPigeon(m_pigeon);
     }
 
+    /**
+     * Gets the module positions from this loop's sensor snapshot.
+     * <p>
+     * The returned array is a shared buffer that gets overwritten on the next
+     * update, so copy it if the values need to be kept around.
+     */
     public SwerveModulePosition[] getSwerveModulePositions() {
-        return new SwerveModulePosition[] {
-                getPosition(m_frontLeftDriveMotor, m_frontLeftSteerMotor),
-                getPosition(m_frontRightDriveMotor, m_frontRightSteerMotor),
-                getPosition(m_backLeftDriveMotor, m_backLeftSteerMotor),
-                getPosition(m_backRightDriveMotor, m_backRightSteerMotor)
-        };
+        updateModulePositions();
+        for (int module = 0; module < m_modulePositions.length; module++) {
+            SwerveModulePosition position = m_modulePositions[module];
+            position.distanceMeters = m_moduleDistances[module];
+
+            // Rotation2d is immutable, so only build a new one when the module has
+            // actually turned since the last call.
+            if (m_moduleAngles[module] != m_lastModuleAngles[module]) {
+                position.angle = new Rotation2d(m_moduleAngles[module]);
+                m_lastModuleAngles[module] = m_moduleAngles[module];
+            }
+        }
+        return m_modulePositions;
+    }
+
+    /**
+     * Fills in the position of each module from this loop's sensor snapshot,
+     * as angle (radians) and drive distance (meters) pairs, front left, front
+     * right, back left, back right. Nothing is read from the CAN bus.
+     * 
+     * @param positions An array of at least 8 elements to fill in
+     */
+    public void getModulePositions(double[] positions) {
+        for (int module = 0; module < m_moduleDistances.length; module++) {
+            positions[module * 2] = m_moduleAngles[module];
+            positions[module * 2 + 1] = m_moduleDistances[module];
+        }
+    }
+
+    /**
+     * Gets the chassis speeds the drivetrain was last asked to drive at.
+     */
+    public ChassisSpeeds getChassisSpeeds() {
+        return m_chassisSpeeds;
     }
 
     /**
@@ -303,36 +525,48 @@ public class DrivetrainSubsystem extends SubsystemBase {
      */
     public void zeroGyroscope() {
         m_pigeon.setFusedHeading(0.0);
+        // Don't make the rest of this loop wait for the next snapshot
+        m_fusedHeading = 0.0;
+        m_simFusedHeading = 0.0;
     }
 
     public void reverseGyroscope() {
         System.out.println("Reversing Gyro");
         m_pigeon.setFusedHeading(11520.0);
+        m_fusedHeading = 11520.0;
+        m_simFusedHeading = 11520.0;
     }
 
     public Rotation2d getGyroscopeRotation() {
+        return toGyroRotation(m_fusedHeading);
+    }
+
+    private static double toGyroAngle(double fusedHeading) {
         // The pigeon was mounted differently on Pi vs the Proto Bot
-        return Rotation2d.fromDegrees(-m_pigeon.getFusedHeading());
+        return Math.toRadians(-fusedHeading);
+    }
+
+    private Rotation2d toGyroRotation(double fusedHeading) {
+        // Reuse the last rotation while the heading hasn't changed
+        if (fusedHeading != m_lastFusedHeading) {
+            m_gyroRotation = new Rotation2d(toGyroAngle(fusedHeading));
+            m_lastFusedHeading = fusedHeading;
+        }
+        return m_gyroRotation;
     }
 
     public double getYaw() {
-        double[] ypr = new double[3];
-        m_pigeon.getYawPitchRoll(ypr);
-        return ypr[0];
+        return m_yawPitchRoll[0];
         // return Math.IEEEremainder(ypr[0], 360.0d);
     }
 
     public double getPitch() {
-        double[] ypr = new double[3];
-        m_pigeon.getYawPitchRoll(ypr);
-        return ypr[1];
+        return m_yawPitchRoll[1];
         // return Math.IEEEremainder(ypr[0], 360.0d);
     }
 
     public double getRoll() {
-        double[] ypr = new double[3];
-        m_pigeon.getYawPitchRoll(ypr);
-        return ypr[2];
+        return m_yawPitchRoll[2];
         // return Math.IEEEremainder(ypr[0], 360.0d);
     }
 
@@ -341,7 +575,7 @@ public class DrivetrainSubsystem extends SubsystemBase {
     }
 
     public void stopMotors() {
-        System.out.println("stopMotors");
+        STOP_MOTORS_LOG.log();
         drive(new ChassisSpeeds(0.0, 0.0, 0.0));
     }
 
@@ -359,7 +593,7 @@ public class DrivetrainSubsystem extends SubsystemBase {
     }
 
     public void setMotorsToBrake() {
-        System.out.println("setMotorsToBrake");
+        BRAKE_LOG.log();
         m_frontLeftDriveMotor.setNeutralMode(NeutralMode.Brake);
         m_frontRightDriveMotor.setNeutralMode(NeutralMode.Brake);
         m_backLeftDriveMotor.setNeutralMode(NeutralMode.Brake);
@@ -408,10 +642,80 @@ public class DrivetrainSubsystem extends SubsystemBase {
         drive(chassisSpeeds);
     }
 
+    /**
+     * Gets the best estimate of the robot's field pose. This is the odometry pose
+     * corrected by any vision measurements when fusion is enabled.
+     */
     public Pose2d getPose() {
+        if (m_estimatedPose == null) {
+            m_estimatedPose = new Pose2d(m_estimatedPoseValues[0], m_estimatedPoseValues[1],
+                    new Rotation2d(m_estimatedPoseValues[2]));
+        }
+        return m_estimatedPose;
+    }
+
+    /**
+     * Gets the pose from wheel odometry alone.
+     */
+    public Pose2d getOdometryPose() {
         return m_odometry.getPoseMeters();
     }
 
+    /**
+     * Fuses a field pose measurement that was captured at some point in the recent
+     * past, e.g. from a camera pipeline.
+     * 
+     * @param visionPose Where the measurement says the robot was
+     * @param timestamp FPGA timestamp of when the measurement was captured, in seconds
+     * @param stdDevX Measurement standard deviation in x, in meters
+     * @param stdDevY Measurement standard deviation in y, in meters
+     * @param stdDevTheta Measurement standard deviation in heading, in radians
+     * @return true if the measurement was used
+     */
+    public boolean addVisionMeasurement(Pose2d visionPose, double timestamp, double stdDevX, double stdDevY,
+            double stdDevTheta) {
+        if (!m_isVisionFusionEnabled) {
+            return false;
+        }
+        boolean used = m_poseEstimator.addMeasurement(visionPose, timestamp, stdDevX, stdDevY, stdDevTheta);
+        if (used) {
+            updateEstimatedPose();
+        }
+        return used;
+    }
+
+    public void setVisionFusionEnabled(boolean isVisionFusionEnabled) {
+        m_isVisionFusionEnabled = isVisionFusionEnabled;
+        updateEstimatedPose();
+    }
+
+    private void updateEstimatedPose() {
+        if (m_isVisionFusionEnabled) {
+            m_poseEstimator.getEstimatedPose(m_odometry.getX(), m_odometry.getY(), m_odometry.getTheta(),
+                    m_estimatedPoseUpdate);
+        } else {
+            m_estimatedPoseUpdate[0] = m_odometry.getX();
+            m_estimatedPoseUpdate[1] = m_odometry.getY();
+            m_estimatedPoseUpdate[2] = m_odometry.getTheta();
+        }
+
+        if (!Arrays.equals(m_estimatedPoseUpdate, m_estimatedPoseValues)) {
+            System.arraycopy(m_estimatedPoseUpdate, 0, m_estimatedPoseValues, 0, m_estimatedPoseValues.length);
+            m_estimatedPose = null;
+        }
+    }
+
+    /**
+     * Gets where odometry thought the robot was at some point in the recent past.
+     * 
+     * @param timestamp FPGA timestamp in seconds
+     * @return The interpolated pose, or null if the timestamp is older than the
+     *         history or from before the last odometry reset
+     */
+    public Pose2d getPoseAt(double timestamp) {
+        return m_poseHistory.getPoseAt(timestamp);
+    }
+
     // set the drive motors using raw voltage values and angles in radians
     // note, if setPathPlannerDriving is not set, these values will get overridden in the periodic
     public void driveRaw(double flVoltage, double frVoltage, double blVoltage, double brVoltage,
@@ -424,15 +728,24 @@ public class DrivetrainSubsystem extends SubsystemBase {
     }
 
     public void setModuleStates(SwerveModuleState[] states) {
+        setModuleStates(states, m_frontLeftModule, m_frontRightModule, m_backLeftModule, m_backRightModule);
+    }
+
+    /**
+     * Desaturates the states and sends them to the modules. Doesn't touch any
+     * of the subsystem's state, so it can be benchmarked on its own.
+     */
+    static void setModuleStates(SwerveModuleState[] states, SwerveModule frontLeftModule,
+            SwerveModule frontRightModule, SwerveModule backLeftModule, SwerveModule backRightModule) {
         SwerveDriveKinematics.desaturateWheelSpeeds(states, MAX_VELOCITY_METERS_PER_SECOND);
 
-        m_frontLeftModule.set(states[0].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
+        frontLeftModule.set(states[0].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
                 states[0].angle.getRadians());
-        m_frontRightModule.set(states[1].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
+        frontRightModule.set(states[1].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
                 states[1].angle.getRadians());
-        m_backLeftModule.set(states[2].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
+        backLeftModule.set(states[2].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
                 states[2].angle.getRadians());
-        m_backRightModule.set(states[3].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
+        backRightModule.set(states[3].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE,
                 states[3].angle.getRadians());
     }
 
@@ -440,7 +753,7 @@ public class DrivetrainSubsystem extends SubsystemBase {
         m_isPathPlannerDriving = isPathPlannerDriving;
     }
 
-    public SwerveDriveOdometry getOdometry() {
+    public SwerveOdometry getOdometry() {
         return m_odometry;
     }
 
@@ -449,7 +762,16 @@ public class DrivetrainSubsystem extends SubsystemBase {
     }
 
     public void resetOdometry(Pose2d pose) {
-        m_odometry.resetPosition(getGyroscopeRotation(), getSwerveModulePositions(), pose);
+        // Anything still queued was measured before the reset
+        if (m_odometryThread != null) {
+            m_odometryThread.getQueue().clear();
+        }
+        // Poses from before the reset are in a different frame
+        m_poseHistory.clear();
+        updateModulePositions();
+        m_odometry.resetPosition(toGyroAngle(m_fusedHeading), m_moduleDistances, m_moduleAngles, pose);
+        m_poseEstimator.reset();
+        updateEstimatedPose();
     }
 
     public void setBoostMode(boolean boostModeSet) {
@@ -462,7 +784,7 @@ public class DrivetrainSubsystem extends SubsystemBase {
      *            \   /
      */
     public void lockWheels() {
-        System.out.println("lock Wheels");
+        LOCK_WHEELS_LOG.log();
         // Rotate the wheels
         drive(
             ChassisSpeeds.fromFieldRelativeSpeeds(0.0,
@@ -483,8 +805,15 @@ public class DrivetrainSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
+        m_loopSection.begin();
 
-        m_odometry.update(getGyroscopeRotation(), getSwerveModulePositions());
+        if (m_odometryThread != null) {
+            refreshSensorSnapshot();
+            drainOdometrySamples();
+        } else {
+            updateOdometry();
+        }
+        updateEstimatedPose();
 
         if (!m_isPathPlannerDriving) {
             SwerveModuleState[] states = m_kinematics.toSwerveModuleStates(m_chassisSpeeds);
@@ -506,5 +835,45 @@ public class DrivetrainSubsystem extends SubsystemBase {
         // } else {
         // // System.out.println("Robot Is Level");
         // }
+
+        m_loopSection.end();
+    }
+
+    @Override
+    public void simulationPeriodic() {
+        SwerveSimulation.update(TimedRobot.kDefaultPeriod);
+
+        // There's no gyro physics, so turn the pigeon by however much the
+        // simulated modules say the robot turned
+        m_simModuleStates[0].angle = new Rotation2d(m_frontLeftModule.getSteerAngle());
+        m_simModuleStates[0].speedMetersPerSecond = m_frontLeftModule.getDriveVelocity();
+        m_simModuleStates[1].angle = new Rotation2d(m_frontRightModule.getSteerAngle());
+        m_simModuleStates[1].speedMetersPerSecond = m_frontRightModule.getDriveVelocity();
+        m_simModuleStates[2].angle = new Rotation2d(m_backLeftModule.getSteerAngle());
+        m_simModuleStates[2].speedMetersPerSecond = m_backLeftModule.getDriveVelocity();
+        m_simModuleStates[3].angle = new Rotation2d(m_backRightModule.getSteerAngle());
+        m_simModuleStates[3].speedMetersPerSecond = m_backRightModule.getDriveVelocity();
+        double omegaRadiansPerSecond = m_kinematics.toChassisSpeeds(m_simModuleStates).omegaRadiansPerSecond;
+
+        // The gyro rotation is the negative of the fused heading
+        double headingChangeDegrees = -Math.toDegrees(omegaRadiansPerSecond * TimedRobot.kDefaultPeriod);
+        if (m_simGyroDriftRandom != null) {
+            headingChangeDegrees += m_simGyroDriftRandom.nextGaussian() * m_simGyroDriftDegrees;
+        }
+        m_simFusedHeading += headingChangeDegrees;
+        // For anything that reads the pigeon directly
+        m_pigeon.getSimCollection().addHeading(headingChangeDegrees);
+    }
+
+    /**
+     * Makes the simulated gyro wander off a random amount every loop, on top of
+     * how far the robot actually turned.
+     *
+     * @param random       Where the drift comes from, or null to turn it off
+     * @param driftDegrees Standard deviation of the drift per loop in degrees
+     */
+    public void setSimulatedGyroDrift(Random random, double driftDegrees) {
+        m_simGyroDriftRandom = random;
+        m_simGyroDriftDegrees = driftDegrees;
     }
 }
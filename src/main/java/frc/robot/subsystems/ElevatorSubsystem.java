@@ -11,23 +11,43 @@ import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.ProfiledPIDSubsystem;
 import frc.robot.Constants;
+import frc.robot.RobotContainer;
 import frc.robot.utils.CT_DigitalInput;
+import frc.robot.utils.can.CanBusProfileManager;
+import frc.robot.utils.can.CanBusProfile.FalconRole;
+import frc.robot.utils.interrupts.InterruptDispatcher.EdgeListener;
+import frc.robot.utils.profiling.LoopProfiler;
+import frc.robot.utils.sim.SimulatedMechanism;
+import frc.robot.utils.logging.LogSite;
 
 public class ElevatorSubsystem extends ProfiledPIDSubsystem {
 
+    private final LoopProfiler.Section m_loopSection = RobotContainer.getLoopProfiler().registerSection("Elevator");
+
     private ShuffleboardTab m_sbTab;
     private WPI_TalonFX m_elevatorMotor;
     private CT_DigitalInput m_elevatorDownLimit;
     private CT_DigitalInput m_elevatorUpLimit;
-    private ElevatorState m_elevatorState = ElevatorState.stopped;
+    // Read by the limit switches' interrupt listeners
+    private volatile ElevatorState m_elevatorState = ElevatorState.stopped;
     private DutyCycleEncoder m_elevatorEncoder;
     private double m_feedforwardVal = 0;
 
     private double m_elevatorHeight;
+    // What the motor was last told to put out, for the simulation
+    private volatile double m_motorVolts = 0;
+
+    // Only used in simulation, see simulationPeriodic()
+    private SimulatedMechanism m_sim;
+    private DIOSim m_simDownLimit;
+    private DIOSim m_simUpLimit;
 
     // https://docs.wpilib.org/en/stable/docs/software/advanced-controls/introduction/tuning-vertical-arm.html
     // Steps for tuning the feedforward values Kg and Kv (leave others at 0)
@@ -77,6 +97,19 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
 
     private static final double HEIGHT_MAX = 45;
 
+    // The simulated elevator, in the same units as the height. The limits trip
+    // just inside either end of its travel.
+    private static final double SIM_KV = 0.2;
+    private static final double SIM_KA = 0.02;
+    private static final double SIM_LOWER_LIMIT_HEIGHT = 18.0;
+    private static final double SIM_UPPER_LIMIT_HEIGHT = 44.0;
+    private static final double SIM_MIN_HEIGHT = 17.5;
+    private static final double SIM_MAX_HEIGHT = 44.5;
+
+    private static final LogSite UPPER_LIMIT_LOG = new LogSite("Elevator Upper Limit Reached");
+    private static final LogSite LOWER_LIMIT_LOG = new LogSite("Elevator Lower Limit Reached");
+    private static final LogSite STOPPING_LOG = new LogSite("stopping elevator");
+
     private static final ProfiledPIDController pidController = new ProfiledPIDController(
             kP, kI, kD,
             new TrapezoidProfile.Constraints(
@@ -94,6 +127,42 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
         lowering
     };
 
+    // These run on the interrupt thread the moment a limit is reached, so the
+    // elevator doesn't keep driving into it until the next loop notices. They
+    // take the raw edge, if it was only a glitch the PID drives the motor
+    // again on the next loop
+    private final EdgeListener m_upperLimitInterruptListener = (risingEdge, timestamp) -> {
+        if (m_elevatorState == ElevatorState.raising) {
+            stopMotor();
+        }
+    };
+
+    private final EdgeListener m_lowerLimitInterruptListener = (risingEdge, timestamp) -> {
+        if (m_elevatorState == ElevatorState.lowering) {
+            stopMotor();
+        }
+    };
+
+    // These run on the main loop before the scheduler, and turn off the PID
+    // so it doesn't drive the motor again. The raw edge might just be noise,
+    // so only give up on the move if the filtered limit agrees. If it can't
+    // tell yet, periodic() checks again.
+    private final EdgeListener m_upperLimitListener = (risingEdge, timestamp) -> {
+        if (m_elevatorState == ElevatorState.raising && isElevatorUpperLimitReached()) {
+            UPPER_LIMIT_LOG.log();
+            disable();
+            stopElevator();
+        }
+    };
+
+    private final EdgeListener m_lowerLimitListener = (risingEdge, timestamp) -> {
+        if (m_elevatorState == ElevatorState.lowering && isElevatorLowerLimitReached()) {
+            LOWER_LIMIT_LOG.log();
+            disable();
+            stopElevator();
+        }
+    };
+
     public ElevatorSubsystem(PneumaticSubsystem pneumaticSubsystem) {
         super(pidController, 0);
 
@@ -102,11 +171,30 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
         m_pneumaticSubsystem = pneumaticSubsystem;
         m_elevatorDownLimit = new CT_DigitalInput(Constants.ELEVATOR_LOWER_LIMIT_DIO);
         m_elevatorUpLimit = new CT_DigitalInput(Constants.ELEVATOR_UPPER_LIMIT_DIO);
+        // Have the FPGA timestamp the limit switch edges. The limits read low
+        // when they're reached, so reaching one is a falling edge
+        m_elevatorDownLimit.enableEdgeCapture();
+        m_elevatorUpLimit.enableEdgeCapture();
+        m_elevatorDownLimit.enableFilter(Constants.LIMIT_SWITCH_GLITCH_SECONDS, Constants.LIMIT_SWITCH_DEBOUNCE_SECONDS);
+        m_elevatorUpLimit.enableFilter(Constants.LIMIT_SWITCH_GLITCH_SECONDS, Constants.LIMIT_SWITCH_DEBOUNCE_SECONDS);
+        m_elevatorUpLimit.subscribeToEdgesImmediately(m_upperLimitInterruptListener, false, true);
+        m_elevatorDownLimit.subscribeToEdgesImmediately(m_lowerLimitInterruptListener, false, true);
+        m_elevatorUpLimit.subscribeToEdges(m_upperLimitListener, false, true);
+        m_elevatorDownLimit.subscribeToEdges(m_lowerLimitListener, false, true);
         m_elevatorMotor = new WPI_TalonFX(Constants.ELEVATOR_MOTOR_ID);
         m_elevatorMotor.setNeutralMode(NeutralMode.Brake);
         m_elevatorMotor.setInverted(true);
         m_elevatorEncoder = new DutyCycleEncoder(6);
 
+        if (RobotBase.isSimulation()) {
+            // Starts out sitting on the lower limit
+            m_sim = new SimulatedMechanism(SIM_KV, SIM_KA, kGVolts, SIM_MIN_HEIGHT, SIM_MAX_HEIGHT,
+                    SIM_LOWER_LIMIT_HEIGHT);
+            m_simDownLimit = new DIOSim(Constants.ELEVATOR_LOWER_LIMIT_DIO);
+            m_simUpLimit = new DIOSim(Constants.ELEVATOR_UPPER_LIMIT_DIO);
+            updateSimulatedLimits();
+        }
+
         m_sbTab = Shuffleboard.getTab("Elevator (Debug)");
 
         m_sbTab.addDouble("Encoder", new DoubleSupplier() {
@@ -166,11 +254,20 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
         });
     }
 
+    public void registerCanDevices(CanBusProfileManager canBusProfileManager) {
+        canBusProfileManager.registerFalcon(m_elevatorMotor, FalconRole.MECHANISM);
+    }
+
     @Override
     public void periodic() {
+        m_loopSection.begin();
         super.periodic();
 
-        m_elevatorHeight = m_elevatorEncoder.getAbsolutePosition() * 100;
+        if (m_sim != null) {
+            m_elevatorHeight = m_sim.getPosition();
+        } else {
+            m_elevatorHeight = m_elevatorEncoder.getAbsolutePosition() * 100;
+        }
 
 
         // Boundary check the distance sensor's range values
@@ -185,17 +282,18 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
         if (DriverStation.isDisabled()) {
             pidController.setGoal(getMeasurement());
             disable();
-            m_elevatorMotor.set(0);
+            setMotorVoltage(0);
             m_elevatorMotor.setNeutralMode(NeutralMode.Coast);
+            m_loopSection.end();
             return;
         }
 
         if (isElevatorUpperLimitReached() && (m_elevatorState == ElevatorState.raising)) {
-            System.out.println("Elevator Upper Limit Reached");
+            UPPER_LIMIT_LOG.log();
             disable();
             stopElevator();
         } else if (isElevatorLowerLimitReached() && (m_elevatorState == ElevatorState.lowering)) {
-            System.out.println("Elevator Lower Limit Reached");
+            LOWER_LIMIT_LOG.log();
             disable();
             stopElevator();
         }
@@ -205,6 +303,8 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
             m_pneumaticSubsystem.closeElevatorBrake();
             disable();
         }
+
+        m_loopSection.end();
     }
 
     public boolean atGoal() {
@@ -216,12 +316,22 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
 
     private void stopElevator() {
         if (m_elevatorState != ElevatorState.stopped) {
-            System.out.println("stopping elevator");
+            STOPPING_LOG.log();
             m_elevatorState = ElevatorState.stopped;
-            m_elevatorMotor.stopMotor();
+            stopMotor();
         }
     }
 
+    private void setMotorVoltage(double volts) {
+        m_motorVolts = volts;
+        m_elevatorMotor.setVoltage(volts);
+    }
+
+    private void stopMotor() {
+        m_motorVolts = 0;
+        m_elevatorMotor.stopMotor();
+    }
+
     public void setElevatorPosition(double height) {
         m_pneumaticSubsystem.openElevatorBrake();
         if (height > m_elevatorHeight) {
@@ -239,11 +349,11 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
     }
 
     public boolean isElevatorUpperLimitReached() {
-        return !m_elevatorUpLimit.get();
+        return !m_elevatorUpLimit.getFiltered();
     }
 
     public boolean isElevatorLowerLimitReached() {
-        return !m_elevatorDownLimit.get();
+        return !m_elevatorDownLimit.getFiltered();
     }
 
     public boolean isStopped() {
@@ -266,11 +376,33 @@ public class ElevatorSubsystem extends ProfiledPIDSubsystem {
             val = Math.min(kMotorVoltageLimit, newOutput);
         }
 
-        m_elevatorMotor.setVoltage(val);
+        setMotorVoltage(val);
     }
 
     @Override
     public double getMeasurement() {
         return m_elevatorHeight;
     }
+
+    @Override
+    public void simulationPeriodic() {
+        m_sim.setBraked(!m_pneumaticSubsystem.isElevatorBrakeOpen());
+        m_sim.setInputVoltage(m_motorVolts);
+        m_sim.update(TimedRobot.kDefaultPeriod);
+        updateSimulatedLimits();
+    }
+
+    /**
+     * Puts the simulated elevator back down on its lower limit.
+     */
+    public void resetSimulation() {
+        m_sim.reset(SIM_LOWER_LIMIT_HEIGHT);
+        updateSimulatedLimits();
+    }
+
+    private void updateSimulatedLimits() {
+        // The limits read low when they're reached
+        m_simDownLimit.setValue(m_sim.getPosition() > SIM_LOWER_LIMIT_HEIGHT);
+        m_simUpLimit.setValue(m_sim.getPosition() < SIM_UPPER_LIMIT_HEIGHT);
+    }
 }
@@ -11,24 +11,66 @@ import edu.wpi.first.math.controller.ElevatorFeedforward;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.ProfiledPIDSubsystem;
 import frc.robot.Constants;
 import frc.robot.RobotContainer;
 import frc.robot.utils.CT_DigitalInput;
+import frc.robot.utils.DigitalInputFilter;
+import frc.robot.utils.can.CanBusProfileManager;
+import frc.robot.utils.can.CanBusProfile.FalconRole;
+import frc.robot.utils.interrupts.InterruptDispatcher.EdgeListener;
+import frc.robot.utils.logging.LogSite;
+import frc.robot.utils.profiling.LoopProfiler;
+import frc.robot.utils.sim.SimulatedMechanism;
 
 public class ExtendoSubsystem extends ProfiledPIDSubsystem {
 
+    private final LoopProfiler.Section m_loopSection = RobotContainer.getLoopProfiler().registerSection("Extendo");
+
     private PneumaticSubsystem m_pneumaticSubsystem;
 
     private WPI_TalonFX m_extendoMotor;
     private ShuffleboardTab m_sbTab;
 
     private CT_DigitalInput m_extendoHomeLimit;
-    private ExtendoState m_extendoState = ExtendoState.stopped;
+    private DigitalInputFilter m_homeLimitFilter;
+    // Read by the home limit's interrupt listener
+    private volatile ExtendoState m_extendoState = ExtendoState.stopped;
+
+    // Where the arm was when the interrupt thread saw the home limit edge.
+    // m_homeEdgeTime is written last, so reading it first makes the rest safe
+    // to read on the main loop.
+    private double m_homeEdgeSensorPosition;
+    private double m_homeEdgeSensorVelocity;
+    private double m_homeEdgeReadTime;
+    private volatile double m_homeEdgeTime = Double.NEGATIVE_INFINITY;
+    // Only touched by the interrupt thread, for ignoring bounces
+    private double m_lastRawHomeEdgeTime = Double.NEGATIVE_INFINITY;
+    // The filter's edge counts the last time periodic() looked
+    private long m_homeFallingEdgeCount = 0;
+    private long m_homeRisingEdgeCount = 0;
+    // When the filter last saw the arm leave the home limit
+    private double m_homeLeftTime = Double.NEGATIVE_INFINITY;
+    // Set once the sensor's been zeroed right where the home limit tripped,
+    // cleared when the arm leaves the limit
+    private boolean m_isZeroedAtHomeEdge = false;
 
     private double m_currentArmReach;
+    // What the motor was last told to put out, for the simulation
+    private volatile double m_motorVolts = 0;
+
+    // Only used in simulation, see simulationPeriodic(). The sensor reads the
+    // simulated reach minus wherever it was last zeroed.
+    private SimulatedMechanism m_sim;
+    private DIOSim m_simHomeLimit;
+    private volatile double m_simSensorOffset = 0;
 
     private static final double kSVolts = 0;
     private static final double kGVolts = 0; //-0.5;
@@ -62,6 +104,18 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
 
     private static final double MAX_DISTANCE = 950.0;
 
+    // The simulated arm, in the same units as the reach. The home limit trips
+    // at zero and the arm can be pulled a little past it.
+    private static final double SIM_KV = 0.01;
+    private static final double SIM_KA = 0.001;
+    private static final double SIM_MIN_REACH = -10.0;
+    private static final double SIM_MAX_REACH = MAX_DISTANCE;
+
+    // The Falcon reports velocity in ticks per 100 ms
+    private static final double VELOCITY_UNITS_PER_SECOND = 10.0;
+
+    private static final LogSite HOME_LIMIT_LOG = new LogSite("Extendo home limit reached");
+
     private double m_feedforwardVal = 0;
 
     private static final ProfiledPIDController pidController = new ProfiledPIDController(
@@ -83,6 +137,28 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
         retracting
     };
 
+    // Runs on the interrupt thread the moment the arm reaches home, so it
+    // doesn't keep reeling in until the next loop notices. These are raw edges,
+    // so a bouncing switch fires it a few times in a row. Only the first edge
+    // of a bounce is kept, the zero is set from it once the filter agrees the
+    // limit was really reached (see updateHomeZero()).
+    private final EdgeListener m_homeLimitInterruptListener = (risingEdge, timestamp) -> {
+        boolean isBounce = timestamp - m_lastRawHomeEdgeTime < Constants.LIMIT_SWITCH_GLITCH_SECONDS;
+        m_lastRawHomeEdgeTime = timestamp;
+        if (isBounce) {
+            return;
+        }
+
+        m_homeEdgeSensorPosition = getSensorPosition();
+        m_homeEdgeSensorVelocity = getSensorVelocity();
+        // The reading is from the last feedback frame, not from right now
+        m_homeEdgeReadTime = Timer.getFPGATimestamp() - getSensorFrameAge();
+        m_homeEdgeTime = timestamp;
+        if (m_extendoState == ExtendoState.retracting) {
+            stopMotor();
+        }
+    };
+
     public ExtendoSubsystem(PneumaticSubsystem pneumaticSubsystem) {
         super(pidController, 0);
 
@@ -91,9 +167,22 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
         pidController.setTolerance(kPositionErrorTolerance);
 
         m_extendoHomeLimit = new CT_DigitalInput(Constants.EXTENDO_HOME_LIMIT_DIO);
+        // Have the FPGA timestamp the limit switch edges. The limit reads low
+        // when it's reached, so reaching home is a falling edge
+        m_extendoHomeLimit.enableEdgeCapture();
+        m_homeLimitFilter = m_extendoHomeLimit.enableFilter(Constants.LIMIT_SWITCH_GLITCH_SECONDS,
+                Constants.LIMIT_SWITCH_DEBOUNCE_SECONDS);
+        m_extendoHomeLimit.subscribeToEdgesImmediately(m_homeLimitInterruptListener, false, true);
         m_extendoMotor = new WPI_TalonFX(Constants.EXTENDO_MOTOR_ID);
         m_extendoMotor.setNeutralMode(NeutralMode.Brake);
 
+        if (RobotBase.isSimulation()) {
+            // Starts out sitting on the home limit
+            m_sim = new SimulatedMechanism(SIM_KV, SIM_KA, kGVolts, SIM_MIN_REACH, SIM_MAX_REACH, 0.0);
+            m_simHomeLimit = new DIOSim(Constants.EXTENDO_HOME_LIMIT_DIO);
+            updateSimulatedLimit();
+        }
+
         resetSensorPosition();
 
         m_sbTab = Shuffleboard.getTab("Extendo (Debug)");
@@ -162,11 +251,17 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
         });
     }
 
+    public void registerCanDevices(CanBusProfileManager canBusProfileManager) {
+        canBusProfileManager.registerFalcon(m_extendoMotor, FalconRole.MECHANISM);
+    }
+
     @Override
     public void periodic() {
+        m_loopSection.begin();
         super.periodic();
 
-        m_currentArmReach = m_extendoMotor.getSelectedSensorPosition() / 100.0;
+        updateHomeZero();
+        m_currentArmReach = getSensorPosition() / 100.0;
         
 
         if (m_currentArmReach > MAX_DISTANCE) {
@@ -180,6 +275,7 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
         if (DriverStation.isDisabled()) {
             pidController.setGoal(getCurrentArmReach());
             disable();
+            m_loopSection.end();
             return;
         }
 
@@ -191,16 +287,14 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
         // arm to retract passed the limit switch.
         //System.out.println("Extendo State: " + m_extendoState);
 
-        if (isExtendoHomeLimitReached()) {
+        // The home limit's edge normally zeroes the sensor, this only catches
+        // the arm sitting on the limit without one, like right after boot
+        if (isExtendoHomeLimitReached() && !m_isZeroedAtHomeEdge) {
             resetSensorPosition();
         }
 
         if (isExtendoHomeLimitReached() && (m_extendoState == ExtendoState.retracting)) {
-            stopExtending();
-            disable();
-            m_pneumaticSubsystem.closeArmBrake();
-            m_extendoState = ExtendoState.stopped;
-            System.out.println("Extendo home limit reached");
+            stopAtHome();
         }
 
         if (pidController.atGoal()) {
@@ -208,10 +302,110 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
             m_pneumaticSubsystem.closeArmBrake();
             //disable();
         }
+
+        m_loopSection.end();
+    }
+
+    /**
+     * Zeroes the sensor where the home limit tripped, once the filter has
+     * taken the edge. Going by the filter's edge counts means a bouncing
+     * switch only zeroes it once.
+     */
+    private void updateHomeZero() {
+        // Updates the filter
+        boolean isHome = isExtendoHomeLimitReached();
+
+        long risingEdgeCount = m_homeLimitFilter.getRisingEdgeCount();
+        long fallingEdgeCount = m_homeLimitFilter.getFallingEdgeCount();
+        boolean hasLeftHome = risingEdgeCount != m_homeRisingEdgeCount;
+        boolean hasReachedHome = fallingEdgeCount != m_homeFallingEdgeCount;
+        m_homeRisingEdgeCount = risingEdgeCount;
+        m_homeFallingEdgeCount = fallingEdgeCount;
+
+        if (hasLeftHome && !isHome) {
+            m_homeLeftTime = m_homeLimitFilter.getLastEdgeTime();
+            m_isZeroedAtHomeEdge = false;
+        }
+        if (!hasReachedHome || !isHome) {
+            return;
+        }
+
+        double edgeTime = m_homeEdgeTime;
+        if (edgeTime < m_homeLeftTime) {
+            // The interrupt didn't catch this one, periodic() zeroes it where
+            // it is
+            return;
+        }
+
+        // The sensor was read a little after the edge, so back up by however
+        // far the arm moved in between to get where the limit actually tripped
+        double edgeSensorPosition = m_homeEdgeSensorPosition
+                - m_homeEdgeSensorVelocity * (m_homeEdgeReadTime - edgeTime);
+        double sensorPosition = getSensorPosition() + getSensorVelocity() * getSensorFrameAge();
+        setSensorPosition(sensorPosition - edgeSensorPosition);
+        m_isZeroedAtHomeEdge = true;
+
+        if (m_extendoState == ExtendoState.retracting) {
+            stopAtHome();
+        }
+    }
+
+    /**
+     * Gets roughly how old a sensor reading is. The feedback frame comes in
+     * once a period at some point we don't know, so on average it's half a
+     * period old.
+     */
+    private double getSensorFrameAge() {
+        if (m_sim != null) {
+            return 0.0;
+        }
+        return RobotContainer.getCanBusProfileManager().getFeedbackPeriodMs(FalconRole.MECHANISM) / 2000.0;
+    }
+
+    private void stopAtHome() {
+        stopExtending();
+        disable();
+        m_pneumaticSubsystem.closeArmBrake();
+        m_extendoState = ExtendoState.stopped;
+        HOME_LIMIT_LOG.log();
     }
 
     public void resetSensorPosition() {
-        m_extendoMotor.setSelectedSensorPosition(0.0);
+        setSensorPosition(0.0);
+    }
+
+    private double getSensorPosition() {
+        if (m_sim != null) {
+            return m_sim.getPosition() * 100.0 - m_simSensorOffset;
+        }
+        return m_extendoMotor.getSelectedSensorPosition();
+    }
+
+    /**
+     * @return the sensor velocity in ticks per second.
+     */
+    private double getSensorVelocity() {
+        if (m_sim != null) {
+            return m_sim.getVelocity() * 100.0;
+        }
+        return m_extendoMotor.getSelectedSensorVelocity() * VELOCITY_UNITS_PER_SECOND;
+    }
+
+    private void setSensorPosition(double position) {
+        if (m_sim != null) {
+            m_simSensorOffset = m_sim.getPosition() * 100.0 - position;
+        }
+        m_extendoMotor.setSelectedSensorPosition(position);
+    }
+
+    private void setMotorVoltage(double volts) {
+        m_motorVolts = volts;
+        m_extendoMotor.setVoltage(volts);
+    }
+
+    private void stopMotor() {
+        m_motorVolts = 0;
+        m_extendoMotor.stopMotor();
     }
 
     public void retractToHomePosition() {
@@ -219,6 +413,7 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
         if (RobotContainer.getElevatorSubsystem().getMeasurement() >= ElevatorSubsystem.HEIGHT_HOME) {
             m_pneumaticSubsystem.closeArmBrake();
             // Rewind the motor so until it hits the proximity sensor
+            m_motorVolts = -0.10 * RobotController.getBatteryVoltage();
             m_extendoMotor.set(-0.10);
         } else {
             System.out.println("Arm height is not sufficient to home extendo!");
@@ -256,7 +451,7 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
     }
 
     private void stopExtending() {
-        m_extendoMotor.stopMotor();
+        stopMotor();
         m_pneumaticSubsystem.closeArmBrake();
         m_extendoMotor.setNeutralMode(NeutralMode.Brake);
         //m_extendoState = ExtendoState.stopped;
@@ -265,7 +460,7 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
     }
 
     public boolean isExtendoHomeLimitReached() {
-        return !m_extendoHomeLimit.get();
+        return !m_extendoHomeLimit.getFiltered();
     }
 
     @Override
@@ -293,11 +488,33 @@ public class ExtendoSubsystem extends ProfiledPIDSubsystem {
             val = Math.min(kMotorVoltageLimit, newOutput);
         }
 
-        m_extendoMotor.setVoltage(val);
+        setMotorVoltage(val);
     }
 
     @Override
     public double getMeasurement() {
         return getCurrentArmReach();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void simulationPeriodic() {
+        m_sim.setBraked(!m_pneumaticSubsystem.isArmBrakeOpen());
+        m_sim.setInputVoltage(m_motorVolts);
+        m_sim.update(TimedRobot.kDefaultPeriod);
+        updateSimulatedLimit();
+    }
+
+    /**
+     * Pulls the simulated arm back in to its home limit and zeroes the sensor.
+     */
+    public void resetSimulation() {
+        m_sim.reset(0.0);
+        m_simSensorOffset = 0;
+        updateSimulatedLimit();
+    }
+
+    private void updateSimulatedLimit() {
+        // The limit reads low when it's reached
+        m_simHomeLimit.setValue(m_sim.getPosition() > 0.0);
+    }
+}
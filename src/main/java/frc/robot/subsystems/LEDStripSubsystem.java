@@ -8,33 +8,41 @@ import frc.robot.utils.led.SegmentedLEDStrip;
 import frc.robot.utils.led.SegmentedLEDStrip.ColorPattern;
 import frc.robot.utils.led.SegmentedLEDStrip.GlowColor;
 import frc.robot.utils.led.SegmentedLEDStrip.Speed;
+import frc.robot.Constants;
 import frc.robot.RobotContainer;
 import frc.robot.utils.led.LEDBufferSegment;
+import frc.robot.utils.profiling.LoopProfiler;
 
 public class LEDStripSubsystem extends SubsystemBase {
 
+    private final LoopProfiler.Section m_loopSection = RobotContainer.getLoopProfiler().registerSection("LEDStrip");
+
     private final static int LED_STRIP_PWM = 0;
 
     private static SegmentedLEDStrip m_ledStrip;
 
-    private LEDBufferSegment left_upright_segment;
-    private LEDBufferSegment top_segment;
-    private LEDBufferSegment right_upright_segment;
-    private LEDBufferSegment chassis_segment;
-    private LEDBufferSegment whole_strip_segment;
+    // The segments for every layout are made once, switching layouts just
+    // changes which ones get rendered
+    private final LEDBufferSegment left_upright_segment = new LEDBufferSegment("left_upright",0, 31 );
+    private final LEDBufferSegment top_segment = new LEDBufferSegment("top",31, 12 );
+    private final LEDBufferSegment right_upright_segment = new LEDBufferSegment("right_upright",43, 25 );
+    private final LEDBufferSegment chassis_segment = new LEDBufferSegment("chassis",68, 82 );
+    private final LEDBufferSegment whole_strip_segment = new LEDBufferSegment("whole_strip", 0, 150);
+
+    private final int m_teleLayout;
+    private final int m_autoLayout;
 
     public void initTeleStrip() {
-        m_ledStrip.clearSegments();
-        left_upright_segment = new LEDBufferSegment("left_upright",0, 31 );
+        left_upright_segment.clear();
         //left_upright_segment.doRainbow();
 
-        top_segment = new LEDBufferSegment("top",31, 12 );
+        top_segment.clear();
         //top_segment.doGlow(GlowColor.Red);
 
-        right_upright_segment = new LEDBufferSegment("right_upright",43, 25 );
+        right_upright_segment.clear();
         //right_upright_segment.doSnake(Speed.Fast, Color.kBlue, ColorPattern.SnakePacman);
 
-        chassis_segment = new LEDBufferSegment("chassis",68, 82 );
+        chassis_segment.clear();
         //chassis_segment.doMovingColors(Speed.Slow, ColorPattern.Patriotic);
 
         if (DriverStation.getAlliance() == Alliance.Blue) {
@@ -42,23 +50,31 @@ public class LEDStripSubsystem extends SubsystemBase {
         } else if (DriverStation.getAlliance() == Alliance.Red) {
             chassis_segment.doGlow(SegmentedLEDStrip.GlowColor.Red);
         }
-        
-        m_ledStrip.addSegment(left_upright_segment);
-        m_ledStrip.addSegment(top_segment);
-        m_ledStrip.addSegment(right_upright_segment);
-        m_ledStrip.addSegment(chassis_segment);
+
+        m_ledStrip.setLayout(m_teleLayout);
 
         m_ledStrip.printSegments();
     }
 
     public LEDStripSubsystem() {
         m_ledStrip  = new SegmentedLEDStrip(LED_STRIP_PWM);
+        m_teleLayout = m_ledStrip.registerLayout(left_upright_segment, top_segment, right_upright_segment,
+                chassis_segment);
+        m_autoLayout = m_ledStrip.registerLayout(whole_strip_segment);
         initTeleStrip();
+
+        if (Constants.LED_RENDER_THREAD_ENABLED) {
+            m_ledStrip.startRenderThread(Constants.LED_RENDER_FREQUENCY_HZ);
+        }
     }
 
     @Override
     public void periodic() {
-        m_ledStrip.renderString();
+        m_loopSection.begin();
+        if (!m_ledStrip.isRenderThreadRunning()) {
+            m_ledStrip.renderString();
+        }
+        m_loopSection.end();
     }
 
     public void gripperLights(boolean isOpen){
@@ -84,9 +100,8 @@ public class LEDStripSubsystem extends SubsystemBase {
     }
 
     public void autoPretty(){
-        m_ledStrip.clearSegments();
-        whole_strip_segment = new LEDBufferSegment("whole_strip", 0, 150);
-        m_ledStrip.addSegment(whole_strip_segment);
+        whole_strip_segment.clear();
+        m_ledStrip.setLayout(m_autoLayout);
         m_ledStrip.doRainbow(whole_strip_segment);
     }
 
@@ -2,6 +2,8 @@ package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.utils.can.CanBusProfileManager;
+import frc.robot.utils.logging.LogSite;
 
 import java.util.function.DoubleSupplier;
 
@@ -23,6 +25,10 @@ public class PneumaticSubsystem extends SubsystemBase {
     }
     private BrakeState m_armBrakeState = BrakeState.unknown;
 
+    // The arm brake gets set from ExtendoSubsystem.periodic() every loop
+    private static final LogSite OPEN_ARM_BRAKE_LOG = new LogSite("Open Arm Brake: %s");
+    private static final LogSite CLOSE_ARM_BRAKE_LOG = new LogSite("Close Arm Brake: %s");
+
     PneumaticHub m_pneumaticHub;
     LEDStripSubsystem m_ledStripSubsystem;
     private ShuffleboardTab m_sbTab;
@@ -54,6 +60,11 @@ public class PneumaticSubsystem extends SubsystemBase {
         });
     }
 
+    public void registerCanDevices(CanBusProfileManager canBusProfileManager) {
+        canBusProfileManager.registerFixedRateDevice("PneumaticHub " + Constants.PCM_CAN_ID,
+                Constants.PNEUMATIC_HUB_FRAMES_PER_SECOND);
+    }
+
     public void openGripper() {
         System.out.println("Open Gripper");
         m_gripper.set(true);
@@ -80,8 +91,12 @@ public class PneumaticSubsystem extends SubsystemBase {
         m_elevatorBrake.set(false);
     }
 
+    public boolean isElevatorBrakeOpen() {
+        return m_elevatorBrake.get();
+    }
+
     public void openArmBrake() {
-        System.out.println("Open Arm Brake: " + m_armBrakeState);
+        OPEN_ARM_BRAKE_LOG.log(m_armBrakeState);
         if (m_armBrakeState != BrakeState.open) {
             m_armBrakeState = BrakeState.open;
             m_armBrake.set(true);
@@ -89,7 +104,7 @@ public class PneumaticSubsystem extends SubsystemBase {
     }
 
     public void closeArmBrake() {
-       System.out.println("Close Arm Brake: " + m_armBrakeState);
+        CLOSE_ARM_BRAKE_LOG.log(m_armBrakeState);
         //m_armBrake.set(true);
         if (m_armBrakeState != BrakeState.closed) {
             m_armBrakeState = BrakeState.closed;
@@ -97,6 +112,10 @@ public class PneumaticSubsystem extends SubsystemBase {
         }
     }
 
+    public boolean isArmBrakeOpen() {
+        return m_armBrake.get();
+    }
+
     public void toggleArmBrake() {
         m_armBrake.toggle();
     }
@@ -11,13 +11,19 @@ import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.RobotContainer;
+import frc.robot.utils.profiling.LoopProfiler;
 
 public class ShuffleboardSubsystem extends SubsystemBase {
 
+    private final LoopProfiler.Section m_loopSection = RobotContainer.getLoopProfiler().registerSection("Shuffleboard");
+
     private static ShuffleboardTab m_chargedUpTab;
     private GenericEntry m_speedSlider;
 
     private static SendableChooser<Constants.AutoPosition> m_positionChooser = new SendableChooser<>();
+    // Picks the auto instead of the chooser when there's no dashboard, e.g. in
+    // the match replay harness
+    private Constants.AutoPosition m_autoPositionOverride = null;
 
     public ShuffleboardSubsystem(ShuffleboardTab chargedUpTab) {
 
@@ -70,14 +76,26 @@ public class ShuffleboardSubsystem extends SubsystemBase {
     }
 
     public Constants.AutoPosition getAutoPosition() {
+        if (m_autoPositionOverride != null) {
+            return m_autoPositionOverride;
+        }
         return m_positionChooser.getSelected();
     }
 
+    /**
+     * Picks the auto without the dashboard, null goes back to using the chooser.
+     */
+    public void setAutoPositionOverride(Constants.AutoPosition autoPosition) {
+        m_autoPositionOverride = autoPosition;
+    }
+
     public double getSpeedSlider(){
         return m_speedSlider.get().getDouble();
     }
 
     @Override
     public void periodic() {
+        m_loopSection.begin();
+        m_loopSection.end();
     }
 }
\ No newline at end of file
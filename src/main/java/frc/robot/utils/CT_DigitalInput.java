@@ -1,11 +1,9 @@
 package frc.robot.utils;
 
 import edu.wpi.first.wpilibj.DigitalInput;
-
-import java.util.function.BiConsumer;
-
-import edu.wpi.first.wpilibj.AsynchronousInterrupt;
 import edu.wpi.first.wpilibj.Timer;
+import frc.robot.utils.interrupts.InterruptDispatcher;
+import frc.robot.utils.interrupts.InterruptDispatcher.EdgeListener;
 
 public class CT_DigitalInput {
     private DigitalInput m_digitalInput;
@@ -16,12 +14,22 @@ public class CT_DigitalInput {
     private boolean m_negateLogic;
     private double m_startTime;
 
-    private double m_ignoringInterruptIteration;
+    private double m_ignoreInterruptsStartTime;
     private boolean m_needToRelatchInterrupt;
 
     private boolean m_handleInterrupts;
     private String m_lastEdgeTriggered;
 
+    // -1 until the input is registered with the InterruptDispatcher
+    private int m_interruptHandle = -1;
+
+    // null until enableFilter() is called
+    private DigitalInputFilter m_filter;
+    // Feeds the filter the exact time of every edge, so short pulses between
+    // loops still count
+    private final EdgeListener m_filterListener = (risingEdge, timestamp) -> m_filter.update(
+            risingEdge != m_negateLogic, timestamp);
+
     /**
      * The sole reason for seperate interrupt "state" flags (m_handleInterrupts and
      * m_isInterruptLatched)
@@ -102,7 +110,7 @@ public class CT_DigitalInput {
         m_lastMethodToRun = m_methodToRun;
         m_isInterruptLatched = false;
         m_startTime = 0;
-        m_ignoringInterruptIteration = 0;
+        m_ignoreInterruptsStartTime = 0;
         m_needToRelatchInterrupt = false;
         m_handleInterrupts = false;
         m_lastEdgeTriggered = "None";
@@ -161,12 +169,100 @@ public class CT_DigitalInput {
         }
     }
 
+    /**
+     * Starts capturing this input's edges with the shared
+     * {@link InterruptDispatcher}. The other interrupt methods do this
+     * themselves, calling it more than once is fine.
+     * 
+     * @return the input's handle in the dispatcher.
+     */
+    public int enableEdgeCapture() {
+        if (m_interruptHandle < 0) {
+            m_interruptHandle = InterruptDispatcher.getInstance().registerChannel(m_digitalInput);
+        }
+        return m_interruptHandle;
+    }
+
+    /**
+     * Calls the listener from the main loop with every matching edge on this
+     * input, along with the FPGA time the edge actually happened. Edges are the
+     * raw electrical edges, negateLogic doesn't change them.
+     * 
+     * @param listener      gets called with each edge.
+     * @param onRisingEdge  call the listener for rising edges.
+     * @param onFallingEdge call the listener for falling edges.
+     */
+    public void subscribeToEdges(EdgeListener listener, boolean onRisingEdge, boolean onFallingEdge) {
+        InterruptDispatcher.getInstance().subscribe(enableEdgeCapture(), listener, onRisingEdge, onFallingEdge);
+    }
+
+    public void unsubscribeFromEdges(EdgeListener listener) {
+        if (m_interruptHandle >= 0) {
+            InterruptDispatcher.getInstance().unsubscribe(m_interruptHandle, listener);
+        }
+    }
+
+    /**
+     * Calls the listener on the interrupt dispatcher's thread as soon as a
+     * matching edge is seen, instead of waiting for the main loop. The listener
+     * has to be quick and thread safe, e.g. just stopping a motor.
+     * 
+     * @param listener      gets called with each edge.
+     * @param onRisingEdge  call the listener for rising edges.
+     * @param onFallingEdge call the listener for falling edges.
+     */
+    public void subscribeToEdgesImmediately(EdgeListener listener, boolean onRisingEdge, boolean onFallingEdge) {
+        InterruptDispatcher.getInstance().subscribeImmediate(enableEdgeCapture(), listener, onRisingEdge,
+                onFallingEdge);
+    }
+
+    /**
+     * Runs this input through a {@link DigitalInputFilter}, fed with every edge
+     * and with each call to getFiltered(). Calling it again just returns the
+     * filter it already has.
+     * 
+     * @param glitchSeconds   how long a new value has to hold before it's
+     *                        believed.
+     * @param debounceSeconds how long to hold the filtered value after it
+     *                        changes.
+     * @return the filter, for its edge counts and pulse widths.
+     */
+    public DigitalInputFilter enableFilter(double glitchSeconds, double debounceSeconds) {
+        if (m_filter == null) {
+            m_filter = new DigitalInputFilter(glitchSeconds, debounceSeconds);
+            m_filter.update(get(), Timer.getFPGATimestamp());
+            subscribeToEdges(m_filterListener, true, true);
+        }
+        return m_filter;
+    }
+
+    /**
+     * @return the filter from enableFilter(), or null if it hasn't been called.
+     */
+    public DigitalInputFilter getFilter() {
+        return m_filter;
+    }
+
+    /**
+     * Gets the filtered status of the digital input, negated the same way as
+     * get(). Falls back to get() if enableFilter() was never called.
+     * 
+     * @return the filtered status of the digital input.
+     */
+    public boolean getFiltered() {
+        if (m_filter == null) {
+            return get();
+        }
+        return m_filter.update(get(), Timer.getFPGATimestamp());
+    }
+
     /**
      * Sets an interrupt for the digital input. Can be used in conjunction with the
      * onlyHandleInterruptsWhen() method to only run the method when certain
      * conditions are met.
      * To use a command, for example use: "() -> new PrintCommand("Interrupt
      * Fired").schedule" for the runnable.
+     * The runnable is run from the main loop by the {@link InterruptDispatcher}.
      * 
      * @param runnable               the runnable that will run when the interrupt
      *                               is fired.
@@ -174,14 +270,8 @@ public class CT_DigitalInput {
      * @param interruptOnFallingEdge fire interrupt on the falling edge.
      */
     public void setInterrupt(Runnable runnable, boolean interruptOnRisingEdge, boolean interruptOnFallingEdge) {
-
-        BiConsumer<Boolean, Boolean> callback = (risingEdge, fallingEdge) -> runInterruptMethod(runnable, risingEdge,
-                fallingEdge);
-        try (AsynchronousInterrupt interrupt = new AsynchronousInterrupt(m_digitalInput, callback)) {
-            interrupt.setInterruptEdges(interruptOnRisingEdge, interruptOnFallingEdge);
-
-            interrupt.enable();
-        }
+        subscribeToEdges((risingEdge, timestamp) -> runInterruptMethod(runnable, risingEdge, !risingEdge),
+                interruptOnRisingEdge, interruptOnFallingEdge);
         setInterruptLatched(true);
         m_handleInterrupts = true;
     }
@@ -217,13 +307,9 @@ public class CT_DigitalInput {
      */
     public void setTimedInterrupt(Runnable runnable, boolean interruptOnRisingEdge, boolean interruptOnFallingEdge,
             double time) {
-        BiConsumer<Boolean, Boolean> callback = (risingEdge, fallingEdge) -> runTimedInterruptMethod(runnable,
-                risingEdge, fallingEdge, time);
-        try (AsynchronousInterrupt interrupt = new AsynchronousInterrupt(m_digitalInput, callback)) {
-            interrupt.setInterruptEdges(interruptOnRisingEdge, interruptOnFallingEdge);
-
-            interrupt.enable();
-        }
+        subscribeToEdges(
+                (risingEdge, timestamp) -> runTimedInterruptMethod(runnable, risingEdge, !risingEdge, timestamp, time),
+                interruptOnRisingEdge, interruptOnFallingEdge);
         setInterruptLatched(true);
         m_handleInterrupts = true;
     }
@@ -232,7 +318,8 @@ public class CT_DigitalInput {
      * Runs the runnable given by the user when the interrupt is fired and
      * sets the m_lastEdgeTriggered variable to what edge just ran.
      */
-    private void runTimedInterruptMethod(Runnable runnable, boolean risingEdge, boolean fallingEdge, double time) {
+    private void runTimedInterruptMethod(Runnable runnable, boolean risingEdge, boolean fallingEdge,
+            double timestamp, double time) {
         if (risingEdge) {
             m_lastEdgeTriggered = "Rising Edge";
         } else if (fallingEdge) {
@@ -241,12 +328,14 @@ public class CT_DigitalInput {
             System.out.println("Unexpected output for edge callback");
         }
 
-        if ((Timer.getFPGATimestamp() - m_startTime) >= time) {
+        // Timed from when the edges actually happened, not when they were
+        // dispatched
+        if ((timestamp - m_startTime) >= time) {
             if (m_isInterruptLatched && m_handleInterrupts) {
                 runnable.run();
-                // System.out.println("FPGA Time: " + Timer.getFPGATimestamp());
+                // System.out.println("FPGA Time: " + timestamp);
                 // System.out.println("Start Time: " + m_startTime);
-                m_startTime = Timer.getFPGATimestamp();
+                m_startTime = timestamp;
             } else {
                 /* Do Nothing */ }
         }
@@ -262,8 +351,8 @@ public class CT_DigitalInput {
     /**
      * This method is for if you want to ignore interrupts after a certain action as
      * taken place.
-     * Use this method in a periodic to gain full effect as it relies on iteration
-     * to count time.
+     * Use this method in a periodic, it's checked against the FPGA clock every
+     * time it's called.
      * Use this method in conjunction with ignoreInterruptsNow().
      * 
      * @param seconds time in seconds interrupts will be ignored after
@@ -271,13 +360,10 @@ public class CT_DigitalInput {
      */
     public void ignoreInterruptsFor(double seconds) {
         if (m_needToRelatchInterrupt) {
-            m_ignoringInterruptIteration++;
-
-            if (m_ignoringInterruptIteration >= (seconds * 50)) {
+            if ((Timer.getFPGATimestamp() - m_ignoreInterruptsStartTime) >= seconds) {
                 // System.out.println("Interrupts can now be seen");
                 setInterruptLatched(true);
                 m_needToRelatchInterrupt = false;
-                m_ignoringInterruptIteration = 0;
             }
         }
     }
@@ -292,6 +378,7 @@ public class CT_DigitalInput {
         // System.out.println("Ignoring Interrupts");
         setInterruptLatched(false);
         m_needToRelatchInterrupt = true;
+        m_ignoreInterruptsStartTime = Timer.getFPGATimestamp();
     }
 
     /**
@@ -320,6 +407,10 @@ public class CT_DigitalInput {
         return m_isInterruptLatched;
     }
 
+    public int getChannel() {
+        return m_digitalInput.getChannel();
+    }
+
     /**
      * Gets the status of the digital input.
      * Returned value is negated depending on the value of negateLogic passed into
@@ -0,0 +1,170 @@
+package frc.robot.utils;
+
+/**
+ * Cleans up a noisy digital signal and keeps track of its edges.
+ * <p>
+ * Each call to {@link #update(boolean, double)} hands it a raw reading and
+ * the time it was taken. The filtered value only changes once:
+ * <ul>
+ * <li>the raw value has held its new level for the glitch time, so short
+ * spikes from a bouncing switch or a flickering beam never show up, and</li>
+ * <li>the debounce time has passed since the last accepted edge, so a signal
+ * that chatters can't flip the output faster than that.</li>
+ * </ul>
+ * Accepted edges are counted and timed from when the raw value actually
+ * changed, which gives the width of the last high and low pulses.
+ * <p>
+ * Everything is based on the timestamps passed in, nothing reads the clock or
+ * the hardware, and nothing is allocated after construction. That means the
+ * same filter works fed from the main loop, from interrupt edges (or both),
+ * or from made up timestamps when trying it against a simulated DIO.
+ */
+public class DigitalInputFilter {
+    private final double m_glitchSeconds;
+    private final double m_debounceSeconds;
+
+    private boolean m_isInitialized = false;
+    private boolean m_rawValue;
+    private double m_rawChangeTime;
+    private double m_lastSampleTime;
+
+    private boolean m_value;
+    private double m_lastEdgeTime;
+    private double m_lastAcceptTime = Double.NEGATIVE_INFINITY;
+
+    private long m_risingEdgeCount = 0;
+    private long m_fallingEdgeCount = 0;
+    private double m_lastHighPulseWidth = 0.0;
+    private double m_lastLowPulseWidth = 0.0;
+
+    /**
+     * Create a new filter
+     * @param glitchSeconds How long the raw value has to hold a new level before
+     *                      it's believed, 0 to take every change
+     * @param debounceSeconds How long to hold the filtered value after it
+     *                        changes, 0 to let it change again right away
+     */
+    public DigitalInputFilter(double glitchSeconds, double debounceSeconds) {
+        m_glitchSeconds = glitchSeconds;
+        m_debounceSeconds = debounceSeconds;
+    }
+
+    /**
+     * Feeds in a raw reading.
+     * <p>
+     * Readings should come in time order. One that's older than the last one
+     * is only used to move the time of the latest raw change earlier, e.g. an
+     * interrupt edge that's dispatched after a later poll already saw the new
+     * level.
+     *
+     * @param raw       The raw value of the input
+     * @param timestamp When the value was read, in seconds
+     * @return The filtered value
+     */
+    public boolean update(boolean raw, double timestamp) {
+        if (!m_isInitialized) {
+            m_isInitialized = true;
+            m_rawValue = raw;
+            m_value = raw;
+            m_rawChangeTime = timestamp;
+            m_lastEdgeTime = timestamp;
+            m_lastSampleTime = timestamp;
+            return m_value;
+        }
+
+        if (timestamp < m_lastSampleTime) {
+            if (raw == m_rawValue && timestamp < m_rawChangeTime) {
+                m_rawChangeTime = timestamp;
+            }
+        } else {
+            if (raw != m_rawValue) {
+                // The old level might have held long enough before this
+                // reading, e.g. a short pulse that only showed up as two edges
+                acceptIfSettled(timestamp);
+                m_rawValue = raw;
+                m_rawChangeTime = timestamp;
+            }
+            m_lastSampleTime = timestamp;
+        }
+
+        acceptIfSettled(m_lastSampleTime);
+        return m_value;
+    }
+
+    /**
+     * Takes the raw value as the filtered value if it's been stable for the
+     * glitch time and the debounce time is up, as of now.
+     */
+    private void acceptIfSettled(double now) {
+        if (m_rawValue == m_value
+                || now - m_rawChangeTime < m_glitchSeconds
+                || now - m_lastAcceptTime < m_debounceSeconds) {
+            return;
+        }
+
+        // A pulse is timed between the real changes, not between when they got
+        // through the filter
+        double pulseWidth = m_rawChangeTime - m_lastEdgeTime;
+        if (m_rawValue) {
+            m_risingEdgeCount++;
+            m_lastLowPulseWidth = pulseWidth;
+        } else {
+            m_fallingEdgeCount++;
+            m_lastHighPulseWidth = pulseWidth;
+        }
+        m_value = m_rawValue;
+        m_lastEdgeTime = m_rawChangeTime;
+        // The earliest it could have gotten through, so the debounce time
+        // doesn't depend on how often we're updated
+        m_lastAcceptTime = Math.max(m_rawChangeTime + m_glitchSeconds, m_lastAcceptTime + m_debounceSeconds);
+    }
+
+    /**
+     * Gets the filtered value as of the last update.
+     */
+    public boolean get() {
+        return m_value;
+    }
+
+    public long getRisingEdgeCount() {
+        return m_risingEdgeCount;
+    }
+
+    public long getFallingEdgeCount() {
+        return m_fallingEdgeCount;
+    }
+
+    /**
+     * Gets how long the input was high before it last went low, in seconds.
+     */
+    public double getLastHighPulseWidth() {
+        return m_lastHighPulseWidth;
+    }
+
+    /**
+     * Gets how long the input was low before it last went high, in seconds.
+     */
+    public double getLastLowPulseWidth() {
+        return m_lastLowPulseWidth;
+    }
+
+    /**
+     * Gets when the raw value changed for the last accepted edge, in seconds.
+     */
+    public double getLastEdgeTime() {
+        return m_lastEdgeTime;
+    }
+
+    /**
+     * Forgets everything, the next update starts the filter over at that
+     * reading.
+     */
+    public void reset() {
+        m_isInitialized = false;
+        m_lastAcceptTime = Double.NEGATIVE_INFINITY;
+        m_risingEdgeCount = 0;
+        m_fallingEdgeCount = 0;
+        m_lastHighPulseWidth = 0.0;
+        m_lastLowPulseWidth = 0.0;
+    }
+}
@@ -0,0 +1,104 @@
+package frc.robot.utils.can;
+
+/**
+ * Named sets of CAN status frame periods, in milliseconds, for every kind of
+ * device on the bus.
+ * <p>
+ * Only the frames we actually read are listed here. Everything else on the
+ * Falcons and CANCoders is slowed down to {@link #SLOW_FRAME_PERIOD_MS} by
+ * {@link CanBusProfileManager} regardless of profile.
+ */
+public enum CanBusProfile {
+    // Fast odometry and gyro feedback for path following and the timed drive commands
+    AUTO_PRECISION("auto-precision",
+            250, 10,    // swerve drive: general, feedback
+            250, 10,    // swerve steer: general, feedback
+            20, 20,     // mechanism: general, feedback
+            100,        // CANCoder sensor data
+            10, 10),    // Pigeon: sensor fusion, yaw/pitch/roll
+
+    // Enough for the driver, keep the bus quiet otherwise
+    TELEOP("teleop",
+            250, 20,
+            250, 20,
+            20, 20,
+            100,
+            20, 20),
+
+    // The steer encoder reset loop only runs while disabled and needs fresh
+    // CANCoder readings, nothing else needs to be quick
+    DISABLED_IDLE("disabled-idle",
+            255, 100,
+            255, 50,
+            100, 100,
+            20,
+            100, 100);
+
+    // The slowest period Phoenix allows for a status frame
+    public static final int SLOW_FRAME_PERIOD_MS = 255;
+
+    private final String m_name;
+
+    final int driveGeneralPeriodMs;
+    final int driveFeedbackPeriodMs;
+    final int steerGeneralPeriodMs;
+    final int steerFeedbackPeriodMs;
+    final int mechanismGeneralPeriodMs;
+    final int mechanismFeedbackPeriodMs;
+    final int canCoderSensorDataPeriodMs;
+    final int pigeonFusionPeriodMs;
+    final int pigeonYawPitchRollPeriodMs;
+
+    private CanBusProfile(String name,
+            int driveGeneralPeriodMs, int driveFeedbackPeriodMs,
+            int steerGeneralPeriodMs, int steerFeedbackPeriodMs,
+            int mechanismGeneralPeriodMs, int mechanismFeedbackPeriodMs,
+            int canCoderSensorDataPeriodMs,
+            int pigeonFusionPeriodMs, int pigeonYawPitchRollPeriodMs) {
+        m_name = name;
+        this.driveGeneralPeriodMs = driveGeneralPeriodMs;
+        this.driveFeedbackPeriodMs = driveFeedbackPeriodMs;
+        this.steerGeneralPeriodMs = steerGeneralPeriodMs;
+        this.steerFeedbackPeriodMs = steerFeedbackPeriodMs;
+        this.mechanismGeneralPeriodMs = mechanismGeneralPeriodMs;
+        this.mechanismFeedbackPeriodMs = mechanismFeedbackPeriodMs;
+        this.canCoderSensorDataPeriodMs = canCoderSensorDataPeriodMs;
+        this.pigeonFusionPeriodMs = pigeonFusionPeriodMs;
+        this.pigeonYawPitchRollPeriodMs = pigeonYawPitchRollPeriodMs;
+    }
+
+    int getGeneralPeriodMs(FalconRole role) {
+        switch (role) {
+            case SWERVE_DRIVE:
+                return driveGeneralPeriodMs;
+            case SWERVE_STEER:
+                return steerGeneralPeriodMs;
+            default:
+                return mechanismGeneralPeriodMs;
+        }
+    }
+
+    int getFeedbackPeriodMs(FalconRole role) {
+        switch (role) {
+            case SWERVE_DRIVE:
+                return driveFeedbackPeriodMs;
+            case SWERVE_STEER:
+                return steerFeedbackPeriodMs;
+            default:
+                return mechanismFeedbackPeriodMs;
+        }
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    /**
+     * What a Falcon is used for, which decides how fast its frames need to be.
+     */
+    public enum FalconRole {
+        SWERVE_DRIVE,
+        SWERVE_STEER,
+        MECHANISM
+    }
+}
@@ -0,0 +1,386 @@
+package frc.robot.utils.can;
+
+import java.util.ArrayList;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.sensors.CANCoder;
+import com.ctre.phoenix.sensors.CANCoderStatusFrame;
+import com.ctre.phoenix.sensors.PigeonIMU;
+import com.ctre.phoenix.sensors.PigeonIMU_StatusFrame;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.utils.can.CanBusProfile.FalconRole;
+import frc.robot.utils.logging.LogSite;
+
+/**
+ * Keeps track of every device on the CAN bus and sets all of the CTRE status
+ * frame periods at once from a {@link CanBusProfile}.
+ * <p>
+ * Subsystems register their devices once at startup, after that switching
+ * profiles is a single {@link #apply(CanBusProfile)} call. Devices whose frame
+ * rates we can't change (the PDH, the PneumaticHub) can be registered with a
+ * fixed rate so they still count towards the bus estimate.
+ * <p>
+ * Commands that only need faster drive encoders for a moment should use
+ * {@link #setDriveFeedbackBoost(boolean)} instead of switching profiles, it
+ * only touches the one frame on the drive Falcons.
+ */
+public class CanBusProfileManager {
+    // An extended CAN frame with 8 data bytes is ~128 bits, plus some bit stuffing
+    public static final double BITS_PER_FRAME = 130.0;
+    public static final double BUS_BITS_PER_SECOND = 1000000.0;
+
+    // The roboRIO sends each motor controller a control frame every 10ms
+    private static final int CONTROL_FRAME_PERIOD_MS = 10;
+
+    // Falcon frames we never read, these always run at the slowest rate
+    private static final StatusFrameEnhanced[] UNUSED_FALCON_FRAMES = {
+            StatusFrameEnhanced.Status_3_Quadrature,
+            StatusFrameEnhanced.Status_4_AinTempVbat,
+            StatusFrameEnhanced.Status_8_PulseWidth,
+            StatusFrameEnhanced.Status_10_Targets,
+            StatusFrameEnhanced.Status_12_Feedback1,
+            StatusFrameEnhanced.Status_13_Base_PIDF0,
+            StatusFrameEnhanced.Status_14_Turn_PIDF1,
+            StatusFrameEnhanced.Status_21_FeedbackIntegrated,
+            StatusFrameEnhanced.Status_Brushless_Current
+    };
+
+    // The drive feedback period while boosted, same as path following gets
+    private static final int BOOSTED_DRIVE_FEEDBACK_PERIOD_MS = CanBusProfile.AUTO_PRECISION.driveFeedbackPeriodMs;
+
+    private static final LogSite APPLIED_LOG = new LogSite("CAN profile %s applied, estimated bus utilization %.1f%%");
+    private static final LogSite FAILED_LOG = new LogSite("WARNING: %.0f status frame updates failed for CAN %s");
+
+    private final ArrayList<Device> m_devices = new ArrayList<>();
+    private final double m_utilizationThreshold;
+
+    // Read from interrupt threads by getFeedbackPeriodMs(FalconRole)
+    private volatile CanBusProfile m_activeProfile;
+    private volatile boolean m_isDriveFeedbackBoosted = false;
+
+    /**
+     * Create a new profile manager
+     * @param utilizationThreshold Estimated bus utilization, [0, 1], above which we warn
+     */
+    public CanBusProfileManager(double utilizationThreshold) {
+        m_utilizationThreshold = utilizationThreshold;
+    }
+
+    public void registerFalcon(TalonFX falcon, FalconRole role) {
+        m_devices.add(new FalconDevice(falcon, role));
+    }
+
+    public void registerCANCoder(CANCoder canCoder) {
+        m_devices.add(new CANCoderDevice(canCoder));
+    }
+
+    public void registerPigeon(PigeonIMU pigeon) {
+        m_devices.add(new PigeonDevice(pigeon));
+    }
+
+    /**
+     * Registers a device we don't control the frame rates of
+     * @param name What to call the device in reports
+     * @param framesPerSecond How many frames per second it puts on the bus
+     */
+    public void registerFixedRateDevice(String name, double framesPerSecond) {
+        m_devices.add(new FixedRateDevice(name, framesPerSecond));
+    }
+
+    /**
+     * Sets every status frame on every registered device. Doing nothing if the
+     * profile is already active.
+     * <p>
+     * The frames are sent without waiting for the devices to acknowledge them so
+     * this is safe to call from a command or mode transition.
+     */
+    public void apply(CanBusProfile profile) {
+        if (profile == m_activeProfile) {
+            return;
+        }
+
+        if (wouldExceedThreshold(profile)) {
+            DriverStation.reportWarning(String.format(
+                    "CAN profile %s is estimated at %.1f%% bus utilization, over the %.1f%% threshold",
+                    profile.getName(), getEstimatedUtilization(profile) * 100.0, m_utilizationThreshold * 100.0),
+                    false);
+        }
+
+        int failures = 0;
+        for (Device device : m_devices) {
+            failures += device.apply(profile);
+        }
+
+        m_activeProfile = profile;
+
+        APPLIED_LOG.log(profile.getName(), getEstimatedUtilization(profile) * 100.0);
+        if (failures > 0) {
+            FAILED_LOG.log(failures, "profile " + profile.getName());
+        }
+    }
+
+    /**
+     * Speeds up just the feedback frame on the swerve drive Falcons, for
+     * commands that measure distance with the drive encoders. Profiles applied
+     * while it's boosted keep the faster rate until it's turned off.
+     * <p>
+     * Nothing is sent if it's already in that state or if the active profile
+     * already runs drive feedback that fast, so it's cheap to call from
+     * initialize() and end().
+     */
+    public void setDriveFeedbackBoost(boolean isBoosted) {
+        if (isBoosted == m_isDriveFeedbackBoosted) {
+            return;
+        }
+
+        int previousPeriodMs = getDriveFeedbackPeriodMs(m_activeProfile);
+        m_isDriveFeedbackBoosted = isBoosted;
+        int periodMs = getDriveFeedbackPeriodMs(m_activeProfile);
+        if (periodMs == previousPeriodMs) {
+            return;
+        }
+
+        int failures = 0;
+        for (Device device : m_devices) {
+            failures += device.applyDriveFeedback(periodMs);
+        }
+        if (failures > 0) {
+            FAILED_LOG.log(failures, "drive feedback boost");
+        }
+    }
+
+    public boolean isDriveFeedbackBoosted() {
+        return m_isDriveFeedbackBoosted;
+    }
+
+    /**
+     * Gets how often Falcons with the given role send their feedback frame
+     * right now, i.e. how old getSelectedSensorPosition() can be. Safe to call
+     * from any thread.
+     *
+     * @return the period in milliseconds, 0 if no profile has been applied
+     */
+    public int getFeedbackPeriodMs(FalconRole role) {
+        CanBusProfile profile = m_activeProfile;
+        if (profile == null) {
+            return 0;
+        }
+        return getFeedbackPeriodMs(profile, role);
+    }
+
+    /**
+     * Gets the drive feedback period the given profile runs with right now,
+     * including the boost. With no profile applied yet nothing has been set,
+     * so that's 0.
+     */
+    private int getDriveFeedbackPeriodMs(CanBusProfile profile) {
+        if (profile == null) {
+            return 0;
+        }
+        int periodMs = profile.driveFeedbackPeriodMs;
+        if (m_isDriveFeedbackBoosted) {
+            periodMs = Math.min(periodMs, BOOSTED_DRIVE_FEEDBACK_PERIOD_MS);
+        }
+        return periodMs;
+    }
+
+    private int getFeedbackPeriodMs(CanBusProfile profile, FalconRole role) {
+        if (role == FalconRole.SWERVE_DRIVE) {
+            return getDriveFeedbackPeriodMs(profile);
+        }
+        return profile.getFeedbackPeriodMs(role);
+    }
+
+    public CanBusProfile getActiveProfile() {
+        return m_activeProfile;
+    }
+
+    public double getUtilizationThreshold() {
+        return m_utilizationThreshold;
+    }
+
+    /**
+     * Checks whether switching to the given profile would push the estimated bus
+     * utilization over the threshold.
+     */
+    public boolean wouldExceedThreshold(CanBusProfile profile) {
+        return getEstimatedUtilization(profile) > m_utilizationThreshold;
+    }
+
+    public int getDeviceCount() {
+        return m_devices.size();
+    }
+
+    public String getDeviceName(int index) {
+        return m_devices.get(index).name;
+    }
+
+    /**
+     * Estimates how many frames per second one device sends and receives with
+     * the given profile.
+     */
+    public double getDeviceFramesPerSecond(int index, CanBusProfile profile) {
+        return m_devices.get(index).framesPerSecond(profile);
+    }
+
+    /**
+     * Estimates how many frames per second all registered devices put on the
+     * bus with the given profile, including the control frames going out to the
+     * motor controllers.
+     */
+    public double getEstimatedFramesPerSecond(CanBusProfile profile) {
+        double framesPerSecond = 0.0;
+        for (Device device : m_devices) {
+            framesPerSecond += device.framesPerSecond(profile);
+        }
+        return framesPerSecond;
+    }
+
+    /**
+     * Estimates the fraction of the bus, [0, 1], the registered devices use with
+     * the given profile.
+     */
+    public double getEstimatedUtilization(CanBusProfile profile) {
+        return getEstimatedFramesPerSecond(profile) * BITS_PER_FRAME / BUS_BITS_PER_SECOND;
+    }
+
+    static double framesPerSecondAt(int periodMs) {
+        return periodMs > 0 ? 1000.0 / periodMs : 0.0;
+    }
+
+    private static int check(ErrorCode errorCode) {
+        return errorCode == ErrorCode.OK ? 0 : 1;
+    }
+
+    private static abstract class Device {
+        final String name;
+
+        Device(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return The number of frame updates that failed
+         */
+        abstract int apply(CanBusProfile profile);
+
+        abstract double framesPerSecond(CanBusProfile profile);
+
+        /**
+         * Sets just the drive feedback frame, if this is a drive motor.
+         * @return The number of frame updates that failed
+         */
+        int applyDriveFeedback(int periodMs) {
+            return 0;
+        }
+    }
+
+    private class FalconDevice extends Device {
+        private final TalonFX m_falcon;
+        private final FalconRole m_role;
+
+        FalconDevice(TalonFX falcon, FalconRole role) {
+            super("Falcon " + falcon.getDeviceID() + " (" + role + ")");
+            m_falcon = falcon;
+            m_role = role;
+        }
+
+        @Override
+        int apply(CanBusProfile profile) {
+            int failures = check(m_falcon.setStatusFramePeriod(StatusFrameEnhanced.Status_1_General,
+                    profile.getGeneralPeriodMs(m_role), 0));
+            failures += check(m_falcon.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0,
+                    getFeedbackPeriodMs(profile, m_role), 0));
+            for (StatusFrameEnhanced frame : UNUSED_FALCON_FRAMES) {
+                failures += check(m_falcon.setStatusFramePeriod(frame, CanBusProfile.SLOW_FRAME_PERIOD_MS, 0));
+            }
+            return failures;
+        }
+
+        @Override
+        double framesPerSecond(CanBusProfile profile) {
+            return framesPerSecondAt(CONTROL_FRAME_PERIOD_MS)
+                    + framesPerSecondAt(profile.getGeneralPeriodMs(m_role))
+                    + framesPerSecondAt(getFeedbackPeriodMs(profile, m_role))
+                    + UNUSED_FALCON_FRAMES.length * framesPerSecondAt(CanBusProfile.SLOW_FRAME_PERIOD_MS);
+        }
+
+        @Override
+        int applyDriveFeedback(int periodMs) {
+            if (m_role != FalconRole.SWERVE_DRIVE) {
+                return 0;
+            }
+            return check(m_falcon.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, periodMs, 0));
+        }
+    }
+
+    private static class CANCoderDevice extends Device {
+        private final CANCoder m_canCoder;
+
+        CANCoderDevice(CANCoder canCoder) {
+            super("CANCoder " + canCoder.getDeviceID());
+            m_canCoder = canCoder;
+        }
+
+        @Override
+        int apply(CanBusProfile profile) {
+            int failures = check(m_canCoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData,
+                    profile.canCoderSensorDataPeriodMs, 0));
+            failures += check(m_canCoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults,
+                    CanBusProfile.SLOW_FRAME_PERIOD_MS, 0));
+            return failures;
+        }
+
+        @Override
+        double framesPerSecond(CanBusProfile profile) {
+            return framesPerSecondAt(profile.canCoderSensorDataPeriodMs)
+                    + framesPerSecondAt(CanBusProfile.SLOW_FRAME_PERIOD_MS);
+        }
+    }
+
+    private static class PigeonDevice extends Device {
+        private final PigeonIMU m_pigeon;
+
+        PigeonDevice(PigeonIMU pigeon) {
+            super("Pigeon " + pigeon.getDeviceID());
+            m_pigeon = pigeon;
+        }
+
+        @Override
+        int apply(CanBusProfile profile) {
+            int failures = check(m_pigeon.setStatusFramePeriod(PigeonIMU_StatusFrame.CondStatus_6_SensorFusion,
+                    profile.pigeonFusionPeriodMs, 0));
+            failures += check(m_pigeon.setStatusFramePeriod(PigeonIMU_StatusFrame.CondStatus_9_SixDeg_YPR,
+                    profile.pigeonYawPitchRollPeriodMs, 0));
+            return failures;
+        }
+
+        @Override
+        double framesPerSecond(CanBusProfile profile) {
+            return framesPerSecondAt(profile.pigeonFusionPeriodMs)
+                    + framesPerSecondAt(profile.pigeonYawPitchRollPeriodMs);
+        }
+    }
+
+    private static class FixedRateDevice extends Device {
+        private final double m_framesPerSecond;
+
+        FixedRateDevice(String name, double framesPerSecond) {
+            super(name);
+            m_framesPerSecond = framesPerSecond;
+        }
+
+        @Override
+        int apply(CanBusProfile profile) {
+            return 0;
+        }
+
+        @Override
+        double framesPerSecond(CanBusProfile profile) {
+            return m_framesPerSecond;
+        }
+    }
+}
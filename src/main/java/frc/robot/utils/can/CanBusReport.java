@@ -0,0 +1,77 @@
+package frc.robot.utils.can;
+
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+
+/**
+ * Publishes the expected CAN traffic of every registered device next to the
+ * bus utilization the roboRIO actually measures.
+ * <p>
+ * Create this after all devices have been registered with the
+ * {@link CanBusProfileManager}, devices registered later won't show up.
+ */
+public class CanBusReport {
+    // Reading the CAN status makes a HAL call, no need to do it every loop
+    private static final double MEASUREMENT_PERIOD_SECONDS = 0.5;
+
+    private final CanBusProfileManager m_manager;
+
+    private CANStatus m_canStatus = new CANStatus();
+    private double m_lastMeasurementTime = Double.NEGATIVE_INFINITY;
+
+    public CanBusReport(CanBusProfileManager manager, ShuffleboardTab tab) {
+        m_manager = manager;
+
+        tab.addString("Active Profile", () -> {
+            CanBusProfile profile = m_manager.getActiveProfile();
+            return profile != null ? profile.getName() : "none";
+        });
+        tab.addDouble("Estimated Utilization %", () -> getEstimatedUtilization() * 100.0);
+        tab.addDouble("Measured Utilization %", () -> getMeasuredStatus().percentBusUtilization * 100.0);
+        tab.addDouble("Threshold %", () -> m_manager.getUtilizationThreshold() * 100.0);
+        tab.addBoolean("Estimate Over Threshold",
+                () -> getEstimatedUtilization() > m_manager.getUtilizationThreshold());
+        tab.addBoolean("Measured Over Threshold",
+                () -> getMeasuredStatus().percentBusUtilization > m_manager.getUtilizationThreshold());
+        tab.addDouble("Bus Off Count", () -> getMeasuredStatus().busOffCount);
+        tab.addDouble("TX Full Count", () -> getMeasuredStatus().txFullCount);
+        tab.addDouble("Receive Errors", () -> getMeasuredStatus().receiveErrorCount);
+        tab.addDouble("Transmit Errors", () -> getMeasuredStatus().transmitErrorCount);
+
+        // What each profile would cost if we switched to it
+        ShuffleboardLayout profiles = tab.getLayout("Profile Estimates %", BuiltInLayouts.kList)
+                .withSize(2, 3);
+        for (CanBusProfile profile : CanBusProfile.values()) {
+            profiles.addDouble(profile.getName(), () -> m_manager.getEstimatedUtilization(profile) * 100.0);
+        }
+
+        // Expected frames/sec per device with the active profile
+        ShuffleboardLayout devices = tab.getLayout("Device Frames/sec", BuiltInLayouts.kList)
+                .withSize(2, 6);
+        for (int i = 0; i < m_manager.getDeviceCount(); i++) {
+            final int index = i;
+            devices.addDouble(m_manager.getDeviceName(index), () -> {
+                CanBusProfile profile = m_manager.getActiveProfile();
+                return profile != null ? m_manager.getDeviceFramesPerSecond(index, profile) : 0.0;
+            });
+        }
+    }
+
+    private double getEstimatedUtilization() {
+        CanBusProfile profile = m_manager.getActiveProfile();
+        return profile != null ? m_manager.getEstimatedUtilization(profile) : 0.0;
+    }
+
+    private CANStatus getMeasuredStatus() {
+        double now = Timer.getFPGATimestamp();
+        if (now - m_lastMeasurementTime >= MEASUREMENT_PERIOD_SECONDS) {
+            m_canStatus = RobotController.getCANStatus();
+            m_lastMeasurementTime = now;
+        }
+        return m_canStatus;
+    }
+}
@@ -0,0 +1,15 @@
+package frc.robot.utils.interrupts;
+
+/**
+ * A single edge seen on a digital input.
+ * <p>
+ * Instances are meant to be reused, the queue copies values into them instead
+ * of handing out new objects.
+ */
+public class EdgeEvent {
+    /** The dispatcher's handle for the input the edge was on */
+    public int channelHandle;
+    public boolean risingEdge;
+    /** FPGA time of the edge in seconds, as captured by the hardware */
+    public double timestamp;
+}
@@ -0,0 +1,95 @@
+package frc.robot.utils.interrupts;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size, lock-free ring buffer of digital input edges.
+ * <p>
+ * The queue is single producer / single consumer: the interrupt dispatcher's
+ * thread is the only one that pushes and the main robot loop is the only one
+ * that polls. Events are stored in preallocated primitive arrays so nothing is
+ * allocated once the queue has been created.
+ */
+public class EdgeEventQueue {
+    private final int m_mask;
+    private final int[] m_channelHandles;
+    private final boolean[] m_risingEdges;
+    private final double[] m_timestamps;
+
+    // Total number of events ever pushed / polled. Only the producer writes
+    // m_head and only the consumer writes m_tail.
+    private final AtomicLong m_head = new AtomicLong();
+    private final AtomicLong m_tail = new AtomicLong();
+
+    private final AtomicLong m_droppedEvents = new AtomicLong();
+
+    /**
+     * Create a new queue
+     * @param capacity The number of events to hold, rounded up to a power of two
+     */
+    public EdgeEventQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        m_mask = size - 1;
+        m_channelHandles = new int[size];
+        m_risingEdges = new boolean[size];
+        m_timestamps = new double[size];
+    }
+
+    /**
+     * Producer side. Adds an edge to the queue.
+     * 
+     * @return false if the queue was full and the edge was dropped
+     */
+    public boolean push(int channelHandle, boolean risingEdge, double timestamp) {
+        long head = m_head.get();
+        if (head - m_tail.get() > m_mask) {
+            m_droppedEvents.incrementAndGet();
+            return false;
+        }
+
+        int index = (int) (head & m_mask);
+        m_channelHandles[index] = channelHandle;
+        m_risingEdges[index] = risingEdge;
+        m_timestamps[index] = timestamp;
+
+        // Publish the event to the consumer
+        m_head.lazySet(head + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Copies the oldest event into the given holder.
+     * 
+     * @return false if the queue was empty
+     */
+    public boolean poll(EdgeEvent event) {
+        long tail = m_tail.get();
+        if (tail == m_head.get()) {
+            return false;
+        }
+
+        int index = (int) (tail & m_mask);
+        event.channelHandle = m_channelHandles[index];
+        event.risingEdge = m_risingEdges[index];
+        event.timestamp = m_timestamps[index];
+
+        // Hand the slot back to the producer
+        m_tail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Throws away everything currently in the queue.
+     */
+    public void clear() {
+        m_tail.lazySet(m_head.get());
+    }
+
+    public int size() {
+        return (int) (m_head.get() - m_tail.get());
+    }
+
+    public long getDroppedEvents() {
+        return m_droppedEvents.get();
+    }
+}
@@ -0,0 +1,235 @@
+package frc.robot.utils.interrupts;
+
+import edu.wpi.first.wpilibj.DigitalSource;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.SynchronousInterrupt;
+
+/**
+ * Watches every registered digital input for edges from one shared thread.
+ * <p>
+ * Each input gets a {@link SynchronousInterrupt} set to capture both edges.
+ * The FPGA timestamps every edge in hardware, so instead of a thread blocked on
+ * each interrupt, a single {@link Notifier} checks all of the captured
+ * timestamps at {@link #POLL_FREQUENCY_HZ} and pushes the new ones into an
+ * {@link EdgeEventQueue}. The edge timestamps are as exact as the hardware
+ * makes them no matter how late the check happens.
+ * <p>
+ * The main loop calls {@link #dispatch()} once per loop, which hands the
+ * queued edges, oldest first, to whoever subscribed to that input. Listeners
+ * always run on the main thread in a predictable order, so they can safely
+ * touch subsystems and commands.
+ * <p>
+ * For the few things that can't wait for the next loop, like stopping a motor
+ * that just hit a limit switch, {@link #subscribeImmediate} listeners are
+ * called right on the dispatcher's thread as soon as the edge is seen. Those
+ * need to be quick and thread safe.
+ */
+public class InterruptDispatcher {
+    // The roboRIO only has 8 interrupts
+    private static final int MAX_CHANNELS = 8;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final double POLL_FREQUENCY_HZ = 1000.0;
+
+    /**
+     * Gets called with each edge on an input it's subscribed to.
+     */
+    public interface EdgeListener {
+        /**
+         * @param risingEdge true for a rising edge, false for a falling edge
+         * @param timestamp  FPGA time of the edge in seconds
+         */
+        void onEdge(boolean risingEdge, double timestamp);
+    }
+
+    private static class Subscription {
+        final EdgeListener listener;
+        final boolean onRisingEdge;
+        final boolean onFallingEdge;
+
+        Subscription(EdgeListener listener, boolean onRisingEdge, boolean onFallingEdge) {
+            this.listener = listener;
+            this.onRisingEdge = onRisingEdge;
+            this.onFallingEdge = onFallingEdge;
+        }
+    }
+
+    private static InterruptDispatcher s_instance;
+
+    private final SynchronousInterrupt[] m_interrupts = new SynchronousInterrupt[MAX_CHANNELS];
+    private final int[] m_dioChannels = new int[MAX_CHANNELS];
+    // Written by the main thread before m_channelCount is bumped, so the
+    // notifier never sees a channel that isn't set up yet
+    private volatile int m_channelCount = 0;
+
+    // Only touched from the notifier thread
+    private final double[] m_lastRisingTimestamps = new double[MAX_CHANNELS];
+    private final double[] m_lastFallingTimestamps = new double[MAX_CHANNELS];
+
+    // Only touched from the main thread. The arrays are replaced rather than
+    // changed, so a listener can unsubscribe while edges are being dispatched
+    private final Subscription[][] m_subscriptions = new Subscription[MAX_CHANNELS][0];
+    // Replaced as a whole whenever it changes so the notifier always sees a
+    // complete set
+    private volatile Subscription[][] m_immediateSubscriptions = new Subscription[MAX_CHANNELS][0];
+    private final EdgeEvent m_event = new EdgeEvent();
+    private long m_reportedDroppedEvents = 0;
+
+    private final EdgeEventQueue m_queue = new EdgeEventQueue(QUEUE_CAPACITY);
+    private final Notifier m_notifier;
+    private boolean m_isRunning = false;
+
+    public static synchronized InterruptDispatcher getInstance() {
+        if (s_instance == null) {
+            s_instance = new InterruptDispatcher();
+        }
+        return s_instance;
+    }
+
+    private InterruptDispatcher() {
+        m_notifier = new Notifier(this::poll);
+        m_notifier.setName("InterruptDispatcher");
+    }
+
+    /**
+     * Starts capturing edges on a digital input. Registering the same DIO
+     * channel again just returns the handle it already has.
+     *
+     * @return A handle for subscribing to the input's edges
+     */
+    public synchronized int registerChannel(DigitalSource source) {
+        int channelCount = m_channelCount;
+        for (int handle = 0; handle < channelCount; handle++) {
+            if (m_dioChannels[handle] == source.getChannel()) {
+                return handle;
+            }
+        }
+        if (channelCount == MAX_CHANNELS) {
+            throw new IllegalStateException("No interrupts left for DIO " + source.getChannel());
+        }
+
+        SynchronousInterrupt interrupt = new SynchronousInterrupt(source);
+        interrupt.setInterruptEdges(true, true);
+        m_interrupts[channelCount] = interrupt;
+        m_dioChannels[channelCount] = source.getChannel();
+        m_channelCount = channelCount + 1;
+
+        if (!m_isRunning) {
+            m_notifier.startPeriodic(1.0 / POLL_FREQUENCY_HZ);
+            m_isRunning = true;
+        }
+        return channelCount;
+    }
+
+    /**
+     * Calls the listener from {@link #dispatch()} for every matching edge on
+     * the input.
+     */
+    public void subscribe(int channelHandle, EdgeListener listener, boolean onRisingEdge, boolean onFallingEdge) {
+        Subscription[] current = m_subscriptions[channelHandle];
+        Subscription[] updated = new Subscription[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = new Subscription(listener, onRisingEdge, onFallingEdge);
+        m_subscriptions[channelHandle] = updated;
+    }
+
+    public void unsubscribe(int channelHandle, EdgeListener listener) {
+        m_subscriptions[channelHandle] = without(m_subscriptions[channelHandle], listener);
+    }
+
+    /**
+     * Calls the listener on the dispatcher's thread as soon as a matching edge
+     * is seen, before it's queued for the main loop. Keep these short, they hold
+     * up every other input's edges.
+     */
+    public synchronized void subscribeImmediate(int channelHandle, EdgeListener listener, boolean onRisingEdge,
+            boolean onFallingEdge) {
+        Subscription[][] updated = m_immediateSubscriptions.clone();
+        Subscription[] current = updated[channelHandle];
+        updated[channelHandle] = new Subscription[current.length + 1];
+        System.arraycopy(current, 0, updated[channelHandle], 0, current.length);
+        updated[channelHandle][current.length] = new Subscription(listener, onRisingEdge, onFallingEdge);
+        m_immediateSubscriptions = updated;
+    }
+
+    public synchronized void unsubscribeImmediate(int channelHandle, EdgeListener listener) {
+        Subscription[][] updated = m_immediateSubscriptions.clone();
+        updated[channelHandle] = without(updated[channelHandle], listener);
+        m_immediateSubscriptions = updated;
+    }
+
+    private static Subscription[] without(Subscription[] current, EdgeListener listener) {
+        int index = -1;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener == listener) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return current;
+        }
+
+        Subscription[] updated = new Subscription[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        return updated;
+    }
+
+    /**
+     * Hands every queued edge to its subscribers. Call this once per loop from
+     * the main thread.
+     */
+    public void dispatch() {
+        while (m_queue.poll(m_event)) {
+            Subscription[] subscriptions = m_subscriptions[m_event.channelHandle];
+            for (Subscription subscription : subscriptions) {
+                if (m_event.risingEdge ? subscription.onRisingEdge : subscription.onFallingEdge) {
+                    subscription.listener.onEdge(m_event.risingEdge, m_event.timestamp);
+                }
+            }
+        }
+
+        long droppedEvents = m_queue.getDroppedEvents();
+        if (droppedEvents != m_reportedDroppedEvents) {
+            DriverStation.reportWarning("InterruptDispatcher dropped "
+                    + (droppedEvents - m_reportedDroppedEvents) + " edges", false);
+            m_reportedDroppedEvents = droppedEvents;
+        }
+    }
+
+    private void poll() {
+        int channelCount = m_channelCount;
+        Subscription[][] immediateSubscriptions = m_immediateSubscriptions;
+        for (int handle = 0; handle < channelCount; handle++) {
+            double risingTimestamp = m_interrupts[handle].getRisingTimestamp();
+            double fallingTimestamp = m_interrupts[handle].getFallingTimestamp();
+            boolean isNewRising = risingTimestamp != m_lastRisingTimestamps[handle];
+            boolean isNewFalling = fallingTimestamp != m_lastFallingTimestamps[handle];
+            m_lastRisingTimestamps[handle] = risingTimestamp;
+            m_lastFallingTimestamps[handle] = fallingTimestamp;
+
+            // Both edges can show up in one check, keep them in order
+            if (isNewRising && isNewFalling && fallingTimestamp < risingTimestamp) {
+                publish(immediateSubscriptions[handle], handle, false, fallingTimestamp);
+                publish(immediateSubscriptions[handle], handle, true, risingTimestamp);
+            } else {
+                if (isNewRising) {
+                    publish(immediateSubscriptions[handle], handle, true, risingTimestamp);
+                }
+                if (isNewFalling) {
+                    publish(immediateSubscriptions[handle], handle, false, fallingTimestamp);
+                }
+            }
+        }
+    }
+
+    private void publish(Subscription[] immediateSubscriptions, int handle, boolean risingEdge, double timestamp) {
+        for (Subscription subscription : immediateSubscriptions) {
+            if (risingEdge ? subscription.onRisingEdge : subscription.onFallingEdge) {
+                subscription.listener.onEdge(risingEdge, timestamp);
+            }
+        }
+        m_queue.push(handle, risingEdge, timestamp);
+    }
+}
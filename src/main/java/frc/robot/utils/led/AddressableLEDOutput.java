@@ -0,0 +1,39 @@
+package frc.robot.utils.led;
+
+import edu.wpi.first.wpilibj.AddressableLED;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+
+/**
+ * Sends a {@link SegmentedLEDStrip}'s pixels to an AddressableLED on a PWM
+ * port.
+ * <p>
+ * WPILib only lets us fill an AddressableLEDBuffer one pixel at a time, so
+ * the strip keeps its own byte array and this copies it in with setRGB() right
+ * before it's sent. That only happens on frames where something changed.
+ */
+public class AddressableLEDOutput implements LEDOutput {
+    private final AddressableLED m_led;
+    private final AddressableLEDBuffer m_buffer;
+
+    /**
+     * Starts the LEDs
+     * @param PWMPort the PWM port the LED strip is connected to
+     * @param length the amount of individual LEDS
+     */
+    public AddressableLEDOutput(int PWMPort, int length) {
+        m_led = new AddressableLED(PWMPort);
+        m_led.setLength(length);
+        m_buffer = new AddressableLEDBuffer(length);
+        m_led.setData(m_buffer);
+        m_led.start();
+    }
+
+    @Override
+    public void setData(byte[] data) {
+        for (int ledIndex = 0; ledIndex < m_buffer.getLength(); ledIndex++) {
+            int offset = ledIndex * LEDBufferSegment.BYTES_PER_PIXEL;
+            m_buffer.setRGB(ledIndex, data[offset + 2] & 0xFF, data[offset + 1] & 0xFF, data[offset] & 0xFF);
+        }
+        m_led.setData(m_buffer);
+    }
+}
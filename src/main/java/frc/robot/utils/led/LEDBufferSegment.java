@@ -1,6 +1,6 @@
 package frc.robot.utils.led;
 
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.util.Color;
 
 import frc.robot.utils.led.SegmentedLEDStrip.ColorPattern;
@@ -9,33 +9,64 @@ import frc.robot.utils.led.SegmentedLEDStrip.PercentDirection;
 import frc.robot.utils.led.SegmentedLEDStrip.Speed;
 import frc.robot.utils.led.SegmentedLEDStrip.StripEffect;
 
+/**
+ * A run of pixels on a {@link SegmentedLEDStrip} with its own effect.
+ * <p>
+ * Pixels are stored twice: packed as 0xRRGGBB ints so changes can be detected
+ * cheaply, and as bytes laid out exactly like the strip's buffer (blue, green,
+ * red, padding) so the strip can copy the whole segment in with one
+ * System.arraycopy().
+ * <p>
+ * Effects are driven by FPGA time rather than by counting loops. Each effect
+ * works out which step it should be on from how long it's been running (plus
+ * the segment's phase offset), so a slow loop or running on the LED render
+ * thread doesn't change how fast anything moves. The effect setters are
+ * synchronized, the strip holds the segment's lock while it renders it.
+ */
+public class LEDBufferSegment {
+    /** Bytes per pixel in the strip's buffer */
+    public static final int BYTES_PER_PIXEL = 4;
 
-public class LEDBufferSegment extends AddressableLEDBuffer{
     public final String name;
     public final int start;
     public final int size;
 
     public Speed speed;
-    public int m_rainbowFirstPixelHue = 0;
 
-    public int m_snakeLoopIndex = 0;
-    public int m_snakeCounter = 0;
-
-    public int m_movingColorsCounter = 0;
-    public int m_movingColorIndex = 0;
     public ColorPattern colorPattern;
     public Color backgroundColor;
+    public int m_backgroundPixel;
 
-    public int m_glowCounter = 0;
-    public double m_glowIndex = 0;
     public GlowColor glowColor;
-    public boolean m_isGlowReverse = false;
+
+    // Packed colors the tween blends between, and how long one pass takes
+    public int[] m_tweenKeyframes;
+    public double m_tweenPeriodSeconds;
+
+    // FPGA time the current animation counts from
+    private double m_effectStartTime = 0.0;
+    // Shifts this segment's animation in time relative to other segments
+    private double m_phaseOffsetSeconds = 0.0;
+    // The step that was last drawn, so nothing is redrawn until it changes
+    private long m_lastStep = Long.MIN_VALUE;
+    // The cached frames of the current effect, null until the strip looks
+    // them up or if the effect isn't cached
+    private LEDFrameCache.Animation m_animation;
+    private int m_shownFrame = -1;
 
     public int m_percent;
     public Color m_color;
     public PercentDirection m_percentDirection;
 
     public StripEffect m_stripEffect = StripEffect.DoingNothing;
+
+    private final int[] m_pixels;
+    private final byte[] m_data;
+    // Set when a cached frame was copied into m_data but not m_pixels
+    private boolean m_isPixelsStale = false;
+    // Set when any pixel changed since the strip last copied this segment
+    private boolean m_isDirty = true;
+
     /**
      * Create a new buffer segment
      * @param name A label for this segment (used in debugging)
@@ -43,54 +74,214 @@ public class LEDBufferSegment extends AddressableLEDBuffer{
      * @param size The number of pixels in the segment
      */
     public LEDBufferSegment(String name, int start, int size) {
-        super(size);
         this.name = name;
         this.start = start;
         this.size = size;
+        m_pixels = new int[size];
+        m_data = new byte[size * BYTES_PER_PIXEL];
+    }
+
+    public int getLength() {
+        return size;
+    }
+
+    /**
+     * Sets a pixel to a packed 0xRRGGBB color. Writing the color a pixel
+     * already has doesn't touch anything.
+     */
+    public void setPixel(int index, int color) {
+        refreshPixels();
+        m_shownFrame = -1;
+        if (m_pixels[index] != color) {
+            m_pixels[index] = color;
+            int offset = index * BYTES_PER_PIXEL;
+            m_data[offset] = (byte) PackedColor.blue(color);
+            m_data[offset + 1] = (byte) PackedColor.green(color);
+            m_data[offset + 2] = (byte) PackedColor.red(color);
+            m_isDirty = true;
+        }
+    }
+
+    /**
+     * Gets a pixel as a packed 0xRRGGBB int.
+     */
+    public int getPixel(int index) {
+        refreshPixels();
+        return m_pixels[index];
+    }
+
+    /**
+     * Shows a frame from a cached animation.
+     */
+    public void showFrame(LEDFrameCache.Animation animation, int frameIndex) {
+        if (animation == m_animation && frameIndex == m_shownFrame) {
+            return;
+        }
+        animation.copyFrame(frameIndex, m_data);
+        m_shownFrame = frameIndex;
+        m_isPixelsStale = true;
+        m_isDirty = true;
+    }
+
+    public LEDFrameCache.Animation getAnimation() {
+        return m_animation;
+    }
+
+    public void setAnimation(LEDFrameCache.Animation animation) {
+        m_animation = animation;
+        m_shownFrame = -1;
+    }
+
+    /**
+     * Catches the packed pixels up with a frame that was copied straight into
+     * the data.
+     */
+    private void refreshPixels() {
+        if (!m_isPixelsStale) {
+            return;
+        }
+        for (int index = 0; index < size; index++) {
+            int offset = index * BYTES_PER_PIXEL;
+            m_pixels[index] = PackedColor.pack(m_data[offset + 2], m_data[offset + 1], m_data[offset]);
+        }
+        m_isPixelsStale = false;
+    }
+
+    public void setRGB(int index, int r, int g, int b) {
+        setPixel(index, PackedColor.pack(r, g, b));
+    }
+
+    public void setLED(int index, Color color) {
+        setPixel(index, PackedColor.pack(color));
     }
 
-    public void doMovingColors(Speed speed, ColorPattern color) {
+    /**
+     * Gets the pixels laid out the same way as the strip's buffer. This is the
+     * segment's own array, don't change it.
+     */
+    public byte[] getData() {
+        return m_data;
+    }
+
+    public boolean isDirty() {
+        return m_isDirty;
+    }
+
+    /**
+     * Marks the whole segment as needing to be copied to the strip again, e.g.
+     * after it's been added to a strip that had something else in its place.
+     */
+    public void markDirty() {
+        m_isDirty = true;
+    }
+
+    public void clearDirty() {
+        m_isDirty = false;
+    }
+
+    /**
+     * Gets which step of an animation this segment should be showing.
+     * 
+     * @param now            FPGA time in seconds
+     * @param periodSeconds  how long each step lasts
+     */
+    public long getStep(double now, double periodSeconds) {
+        return (long) Math.floor((now - m_effectStartTime + m_phaseOffsetSeconds) / periodSeconds);
+    }
+
+    /**
+     * Checks whether a step still needs to be drawn, and remembers it as drawn
+     * if it does.
+     */
+    public boolean shouldRender(long step) {
+        if (step == m_lastStep) {
+            return false;
+        }
+        m_lastStep = step;
+        return true;
+    }
+
+    /**
+     * Shifts this segment's animation in time, e.g. so two segments running
+     * the same effect don't move in lockstep.
+     */
+    public synchronized void setPhaseOffset(double phaseOffsetSeconds) {
+        m_phaseOffsetSeconds = phaseOffsetSeconds;
+        m_lastStep = Long.MIN_VALUE;
+    }
+
+    public synchronized void doMovingColors(Speed speed, ColorPattern color) {
         this.speed = speed;
         this.colorPattern = color;
         m_stripEffect = StripEffect.MovingColor;
+        m_lastStep = Long.MIN_VALUE;
+        setAnimation(null);
     }
 
-    public void doSnake(Speed speed, Color backgroundColor, ColorPattern snakeColorPattern) {
+    public synchronized void doSnake(Speed speed, Color backgroundColor, ColorPattern snakeColorPattern) {
         this.speed = speed;
         this.backgroundColor = backgroundColor;
+        m_backgroundPixel = PackedColor.pack(backgroundColor);
         this.colorPattern = snakeColorPattern;
         m_stripEffect = StripEffect.SnakingColors;
+        m_lastStep = Long.MIN_VALUE;
+        setAnimation(null);
     }
 
-    public void doGlow(GlowColor glowColor) {
+    public synchronized void doGlow(GlowColor glowColor) {
         this.glowColor = glowColor;
         m_stripEffect = StripEffect.Glowing;
+        m_lastStep = Long.MIN_VALUE;
+        setAnimation(null);
     }
 
-    public void doRainbow() {
+    public synchronized void doRainbow() {
         m_stripEffect = StripEffect.Rainbow;
+        m_lastStep = Long.MIN_VALUE;
+        setAnimation(null);
     }
 
     /**
-     * Resets all the moving color variables, allows the changing of speed for
-     * example.
+     * Smoothly fades between the keyframe colors, going back to the first one
+     * after the last.
+     * 
+     * @param periodSeconds how long it takes to go through all of the keyframes
+     * @param keyframes     the colors to fade between, evenly spaced in time
      */
-    public void reset() {
-        m_rainbowFirstPixelHue = 0;
-
-        m_snakeLoopIndex = 0;
-        m_snakeCounter = 0;
+    public synchronized void doTween(double periodSeconds, Color... keyframes) {
+        m_tweenKeyframes = PackedColor.pack(keyframes);
+        m_tweenPeriodSeconds = periodSeconds;
+        m_stripEffect = StripEffect.Tween;
+        m_lastStep = Long.MIN_VALUE;
+        setAnimation(null);
+    }
 
-        m_movingColorsCounter = 0;
-        m_movingColorIndex = 0;
+    /**
+     * Turns every pixel off and stops any effect, like a brand new segment.
+     */
+    public synchronized void clear() {
+        for (int index = 0; index < size; index++) {
+            setPixel(index, PackedColor.BLACK);
+        }
+        m_stripEffect = StripEffect.DoingNothing;
+        m_lastStep = Long.MIN_VALUE;
+        setAnimation(null);
+    }
 
-        m_glowCounter = 0;
+    /**
+     * Starts the current animation over from its beginning.
+     */
+    public synchronized void reset() {
+        m_effectStartTime = Timer.getFPGATimestamp();
+        m_lastStep = Long.MIN_VALUE;
     }
 
-    public void doPercent(int percent, Color color, PercentDirection direction){
+    public synchronized void doPercent(int percent, Color color, PercentDirection direction){
         m_percent = percent;
         m_color = color;
         m_percentDirection = direction;
         m_stripEffect = StripEffect.Percent;
+        m_lastStep = Long.MIN_VALUE;
+        setAnimation(null);
     }
 }
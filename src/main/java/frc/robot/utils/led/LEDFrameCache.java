@@ -0,0 +1,183 @@
+package frc.robot.utils.led;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import frc.robot.utils.led.SegmentedLEDStrip.StripEffect;
+
+/**
+ * Keeps every frame of the periodic LED effects so they only have to be drawn
+ * once.
+ * <p>
+ * Moving colors, snakes and rainbows repeat exactly after a fixed number of
+ * steps, and the frames only depend on the effect, the segment's size and
+ * the colors. The first time a combination is used its whole cycle is drawn
+ * into one byte array, laid out like the strip's buffer, and after that
+ * showing a frame is a single array copy.
+ * <p>
+ * The cache is bounded by the total size of the frames it holds. When adding
+ * an animation would go over, the ones that were used least recently are
+ * dropped, e.g. the teleop layout's animations after switching to a different
+ * layout. Segments hold on to the animation they're showing, so dropping one
+ * from the cache never breaks a segment that's still using it.
+ */
+public class LEDFrameCache {
+
+    /**
+     * Draws one frame of an effect into a segment.
+     */
+    public interface FrameDrawer {
+        void draw(LEDBufferSegment segment, int frame);
+    }
+
+    /**
+     * Every frame of one effect's cycle, back to back.
+     */
+    public static class Animation {
+        private final byte[] m_frames;
+        private final int m_frameCount;
+        private final int m_frameBytes;
+
+        private Animation(byte[] frames, int frameCount, int frameBytes) {
+            m_frames = frames;
+            m_frameCount = frameCount;
+            m_frameBytes = frameBytes;
+        }
+
+        public int getFrameCount() {
+            return m_frameCount;
+        }
+
+        /**
+         * Gets which frame to show for an effect step, wrapping around at the
+         * end of the cycle.
+         */
+        public int getFrameIndex(long step) {
+            return (int) Math.floorMod(step, (long) m_frameCount);
+        }
+
+        /**
+         * Copies a frame into the segment's data.
+         */
+        public void copyFrame(int frameIndex, byte[] destination) {
+            System.arraycopy(m_frames, frameIndex * m_frameBytes, destination, 0, m_frameBytes);
+        }
+
+        int getSizeBytes() {
+            return m_frames.length;
+        }
+    }
+
+    private static class Key {
+        private final StripEffect m_effect;
+        private final int m_size;
+        private final Object m_pattern;
+        private final int m_background;
+
+        Key(StripEffect effect, int size, Object pattern, int background) {
+            m_effect = effect;
+            m_size = size;
+            m_pattern = pattern;
+            m_background = background;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return m_effect == key.m_effect && m_size == key.m_size && m_pattern == key.m_pattern
+                    && m_background == key.m_background;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(m_effect, m_size, m_pattern, m_background);
+        }
+    }
+
+    private final int m_maxBytes;
+    // Access ordered, so the first entry is always the least recently used
+    private final LinkedHashMap<Key, Animation> m_animations = new LinkedHashMap<>(16, 0.75f, true);
+    private int m_cachedBytes = 0;
+
+    /**
+     * Create a new frame cache
+     * @param maxBytes The most frame data to keep around at once
+     */
+    public LEDFrameCache(int maxBytes) {
+        m_maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the frames for an effect, drawing and caching them if they aren't
+     * already.
+     *
+     * @param effect     The effect the frames are for
+     * @param size       The number of pixels in the segment
+     * @param pattern    Whatever picks the colors, e.g. a ColorPattern,
+     *                   null if the effect doesn't have one
+     * @param background A background color, 0 if the effect doesn't have one
+     * @param frameCount How many steps it takes for the effect to repeat
+     * @param drawer     Draws a single frame, only used when the frames aren't cached
+     */
+    public synchronized Animation get(StripEffect effect, int size, Object pattern, int background, int frameCount,
+            FrameDrawer drawer) {
+        Key key = new Key(effect, size, pattern, background);
+        Animation animation = m_animations.get(key);
+        if (animation != null) {
+            return animation;
+        }
+
+        animation = draw(size, frameCount, drawer);
+
+        // Something bigger than the whole cache still gets used, it just
+        // doesn't get kept
+        if (animation.getSizeBytes() <= m_maxBytes) {
+            evict(m_maxBytes - animation.getSizeBytes());
+            m_animations.put(key, animation);
+            m_cachedBytes += animation.getSizeBytes();
+        }
+        return animation;
+    }
+
+    public synchronized int getCachedBytes() {
+        return m_cachedBytes;
+    }
+
+    public synchronized int getAnimationCount() {
+        return m_animations.size();
+    }
+
+    public synchronized void clear() {
+        m_animations.clear();
+        m_cachedBytes = 0;
+    }
+
+    private static Animation draw(int size, int frameCount, FrameDrawer drawer) {
+        LEDBufferSegment scratch = new LEDBufferSegment("frame cache", 0, size);
+        int frameBytes = size * LEDBufferSegment.BYTES_PER_PIXEL;
+        byte[] frames = new byte[frameCount * frameBytes];
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            drawer.draw(scratch, frame);
+            System.arraycopy(scratch.getData(), 0, frames, frame * frameBytes, frameBytes);
+        }
+        return new Animation(frames, frameCount, frameBytes);
+    }
+
+    /**
+     * Drops the least recently used animations until no more than maxBytes
+     * are cached.
+     */
+    private void evict(int maxBytes) {
+        Iterator<Map.Entry<Key, Animation>> iterator = m_animations.entrySet().iterator();
+        while (m_cachedBytes > maxBytes && iterator.hasNext()) {
+            m_cachedBytes -= iterator.next().getValue().getSizeBytes();
+            iterator.remove();
+        }
+    }
+}
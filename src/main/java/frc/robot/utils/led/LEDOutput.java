@@ -0,0 +1,17 @@
+package frc.robot.utils.led;
+
+/**
+ * Where a {@link SegmentedLEDStrip} sends its pixels. On the robot this is an
+ * {@link AddressableLEDOutput}, anything else (e.g. a benchmark) can hand in
+ * its own.
+ */
+public interface LEDOutput {
+    /**
+     * Sends the whole strip to the LEDs.
+     *
+     * @param data every pixel, {@link LEDBufferSegment#BYTES_PER_PIXEL} bytes
+     *             each in blue, green, red order. Only valid until this
+     *             returns, the strip keeps writing to it.
+     */
+    void setData(byte[] data);
+}
@@ -0,0 +1,92 @@
+package frc.robot.utils.led;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import edu.wpi.first.wpilibj.util.Color8Bit;
+
+/**
+ * Helpers for colors packed into an int as 0xRRGGBB, plus the lookup tables the
+ * LED effects use so they don't have to do any color math while rendering.
+ */
+public final class PackedColor {
+    public static final int BLACK = 0x000000;
+
+    /**
+     * Number of hues in the rainbow, same as the 0 - 180 hue range
+     * {@link AddressableLEDBuffer#setHSV} uses.
+     */
+    public static final int RAINBOW_HUES = 180;
+    private static final int RAINBOW_SATURATION = 255;
+    private static final int RAINBOW_VALUE = 128;
+
+    /**
+     * The rainbow at every hue, built with WPILib's own HSV conversion so it
+     * looks exactly like calling setHSV() did.
+     */
+    private static final int[] RAINBOW = new int[RAINBOW_HUES];
+
+    static {
+        AddressableLEDBuffer scratch = new AddressableLEDBuffer(RAINBOW_HUES);
+        for (int hue = 0; hue < RAINBOW_HUES; hue++) {
+            scratch.setHSV(hue, hue, RAINBOW_SATURATION, RAINBOW_VALUE);
+            Color8Bit color = scratch.getLED8Bit(hue);
+            RAINBOW[hue] = pack(color.red, color.green, color.blue);
+        }
+    }
+
+    private PackedColor() {
+    }
+
+    public static int pack(int r, int g, int b) {
+        return ((r & 0xFF) << 16) | ((g & 0xFF) << 8) | (b & 0xFF);
+    }
+
+    /**
+     * Packs a color the same way {@link AddressableLEDBuffer#setLED(int, Color)}
+     * converts it.
+     */
+    public static int pack(Color color) {
+        return pack((int) (color.red * 255), (int) (color.green * 255), (int) (color.blue * 255));
+    }
+
+    public static int[] pack(Color[] colors) {
+        int[] packed = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            packed[i] = pack(colors[i]);
+        }
+        return packed;
+    }
+
+    public static int red(int color) {
+        return (color >> 16) & 0xFF;
+    }
+
+    public static int green(int color) {
+        return (color >> 8) & 0xFF;
+    }
+
+    public static int blue(int color) {
+        return color & 0xFF;
+    }
+
+    /**
+     * Blends between two colors.
+     * 
+     * @param fraction 0 gives from, 1 gives to
+     */
+    public static int lerp(int from, int to, double fraction) {
+        return pack(lerp(red(from), red(to), fraction), lerp(green(from), green(to), fraction),
+                lerp(blue(from), blue(to), fraction));
+    }
+
+    private static int lerp(int from, int to, double fraction) {
+        return from + (int) Math.round((to - from) * fraction);
+    }
+
+    /**
+     * Gets the rainbow color for a hue from 0 to {@link #RAINBOW_HUES} - 1.
+     */
+    public static int rainbow(int hue) {
+        return RAINBOW[hue];
+    }
+}
@@ -1,12 +1,13 @@
 package frc.robot.utils.led;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
-import edu.wpi.first.wpilibj.AddressableLED;
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.util.Color;
 
-public class SegmentedLEDStrip extends AddressableLED {
+public class SegmentedLEDStrip {
 
     public enum StripEffect {
         DoingNothing,
@@ -14,7 +15,8 @@ public class SegmentedLEDStrip extends AddressableLED {
         SnakingColors,
         Rainbow,
         Glowing,
-        Percent
+        Percent,
+        Tween
     }
 
     public enum PercentDirection {
@@ -30,43 +32,126 @@ public class SegmentedLEDStrip extends AddressableLED {
      * (0.0314 to 1) = (8 to 255)
      */
     private final static double INCREASE_VALUE = 0.0314;
+    // How long each shade of a glow is shown
+    private final static double GLOW_STEP_SECONDS = 0.04;
+    // The rainbow moves RAINBOW_HUE_STEP hues every RAINBOW_STEP_SECONDS
+    private final static double RAINBOW_STEP_SECONDS = 0.02;
+    private final static int RAINBOW_HUE_STEP = 3;
+    // How often a tween picks a new color
+    private final static double TWEEN_STEP_SECONDS = 0.02;
+    // Enough for every effect on a few full length strips
+    private final static int FRAME_CACHE_MAX_BYTES = 512 * 1024;
+
+    private final LEDOutput m_output;
+    // Every pixel on the strip, laid out like the segments' data so they can
+    // be copied straight in
+    private final byte[] m_stripData;
+    // Set when m_stripData has changes that haven't been sent with setData()
+    private boolean m_isStripDirty = true;
+
+    // Every segment that's been registered, a segment's handle is its index
+    private final ArrayList<LEDBufferSegment> m_allSegments = new ArrayList<>();
+    private final HashMap<String, Integer> m_segmentHandles = new HashMap<>();
+    // Each layout is a set of segments that get shown together
+    private final ArrayList<LEDBufferSegment[]> m_layouts = new ArrayList<>();
+    // The segments being rendered right now
+    private LEDBufferSegment[] m_Segments = new LEDBufferSegment[0];
+    private int m_activeLayout = -1;
+
+    private final LEDFrameCache m_frameCache = new LEDFrameCache(FRAME_CACHE_MAX_BYTES);
+
+    // Renders the strip off of the main loop, null unless it's been started
+    private Notifier m_renderNotifier;
+    private boolean m_isRenderPriorityLowered = false;
 
-    private AddressableLEDBuffer m_LEDBuffer;
+    /**
+     * Registers a set of segments that are shown together. Do this once at
+     * startup for every layout, then switch between them with
+     * {@link #setLayout(int)}.
+     * 
+     * @param segments The segments in the layout, they shouldn't overlap
+     * @return The layout's ID
+     */
+    public synchronized int registerLayout(LEDBufferSegment... segments) {
+        for (LEDBufferSegment segment : segments) {
+            if (m_segmentHandles.containsKey(segment.name)) {
+                System.out.println("Error: a segment named '" + segment.name + "' is already registered!");
+                continue;
+            }
+            m_segmentHandles.put(segment.name, m_allSegments.size());
+            m_allSegments.add(segment);
+        }
+        m_layouts.add(segments.clone());
+        return m_layouts.size() - 1;
+    }
 
-    private ArrayList<LEDBufferSegment> m_Segments = new ArrayList<>();
+    /**
+     * Switches which layout is shown. Nothing is allocated, the old layout's
+     * segments just stop being rendered.
+     * 
+     * @param layoutId An ID from {@link #registerLayout}
+     */
+    public synchronized void setLayout(int layoutId) {
+        m_Segments = m_layouts.get(layoutId);
+        m_activeLayout = layoutId;
+        for (LEDBufferSegment segment : m_Segments) {
+            // Whatever was under it before has to be overwritten
+            segment.markDirty();
+        }
+    }
+
+    public synchronized int getActiveLayout() {
+        return m_activeLayout;
+    }
 
-    public void clearSegments() {
-        m_Segments.clear();
+    /**
+     * Gets the handle for a registered segment, it can be looked up again with
+     * {@link #getSegment(int)} without any string comparisons.
+     * 
+     * @return The handle, or -1 if there's no segment with that name
+     */
+    public synchronized int getSegmentHandle(String name) {
+        Integer handle = m_segmentHandles.get(name);
+        return handle == null ? -1 : handle;
     }
 
-    public void addSegment(LEDBufferSegment segment) {
-        m_Segments.add(segment);
+    public synchronized LEDBufferSegment getSegment(int handle) {
+        return m_allSegments.get(handle);
     }
     /**
      * Speed Values for Moving and Snake colors
-     * Time values listed are calculated on 20ms clock
      */
     public enum Speed {
         /**
-         * Updates every 1 second or 50 loop iterations.
+         * Updates every 1 second.
          */
-        Slow,
+        Slow(1.0),
         /**
-         * Updates every 0.5 seconds or 25 loop iterations.
+         * Updates every 0.5 seconds.
          */
-        Fast,
+        Fast(0.5),
         /**
-         * Updates every 0.2 seconds or 10 loop iterations.
+         * Updates every 0.2 seconds.
          */
-        VeryFast,
+        VeryFast(0.2),
         /**
-         * Updates every 0.1 seconds or 5 loop iterations.
+         * Updates every 0.1 seconds.
          */
-        Ridiculous,
+        Ridiculous(0.1),
         /**
-         * Updates every 0.02 seconds or 1 loop iteration.
+         * Updates every 0.02 seconds.
          */
-        Ludicrous
+        Ludicrous(0.02);
+
+        private double periodSeconds;
+
+        Speed(double periodSeconds) {
+            this.periodSeconds = periodSeconds;
+        }
+
+        public double getPeriodSeconds() {
+            return periodSeconds;
+        }
     }
 
     /**
@@ -92,14 +177,24 @@ public class SegmentedLEDStrip extends AddressableLED {
                 Color.kYellow, Color.kYellow, Color.kYellow);
 
         private Color[] pattern;
+        private int[] packedPattern;
 
         ColorPattern(Color... pattern) {
             this.pattern = pattern;
+            this.packedPattern = PackedColor.pack(pattern);
         }
 
         public Color[] getPattern() {
             return pattern;
         }
+
+        /**
+         * Gets the pattern as packed 0xRRGGBB colors. This is the pattern's own
+         * array, don't change it.
+         */
+        public int[] getPackedPattern() {
+            return packedPattern;
+        }
     }
 
     /**
@@ -109,23 +204,80 @@ public class SegmentedLEDStrip extends AddressableLED {
      */
     public enum GlowColor {
 
-        Red(0),
-        Green(1),
-        Blue(2),
-        Yellow(3),
-        Purple(4),
-        Cyan(5),
-        White(6);
+        Red(0, true, false, false),
+        Green(1, false, true, false),
+        Blue(2, false, false, true),
+        Yellow(3, true, true, false),
+        Purple(4, true, false, true),
+        Cyan(5, false, true, true),
+        White(6, true, true, true);
 
         private int colorKey;
+        // Every shade of one full glow cycle, dim to bright and back down
+        private int[] gradient;
 
-        GlowColor(int colorKey) {
+        GlowColor(int colorKey, boolean hasRed, boolean hasGreen, boolean hasBlue) {
             this.colorKey = colorKey;
+
+            int[] levels = glowLevels();
+            gradient = new int[levels.length];
+            for (int i = 0; i < levels.length; i++) {
+                gradient[i] = PackedColor.pack(hasRed ? levels[i] : 0, hasGreen ? levels[i] : 0,
+                        hasBlue ? levels[i] : 0);
+            }
         }
 
         public int getColorKey() {
             return colorKey;
         }
+
+        /**
+         * Gets the color for a step of the glow, wrapping around at the end of
+         * the cycle.
+         */
+        public int getGradientColor(int step) {
+            return gradient[step % gradient.length];
+        }
+
+        public int getGradientLength() {
+            return gradient.length;
+        }
+    }
+
+    /**
+     * Steps the glow brightness up by {@link #INCREASE_VALUE} until it reaches
+     * {@link #GLOW_MAX} and then back down to {@link #GLOW_MIN}, the same way
+     * the glow effect always has, and returns the brightness (0 - 255) of
+     * every step.
+     */
+    private static int[] glowLevels() {
+        int[] levels = new int[256];
+        int count = 0;
+        double glowIndex = 0;
+        boolean isGlowReverse = false;
+
+        while (count < levels.length) {
+            levels[count++] = (int) (Math.max(0.0, Math.min(1.0, glowIndex)) * 255);
+
+            if (!isGlowReverse) {
+                if (glowIndex < GLOW_MAX) {
+                    glowIndex += INCREASE_VALUE;
+                } else {
+                    isGlowReverse = true;
+                }
+            } else {
+                if (glowIndex > GLOW_MIN) {
+                    glowIndex -= INCREASE_VALUE;
+                } else {
+                    // Back to the start of the cycle
+                    break;
+                }
+            }
+        }
+
+        int[] cycle = new int[count];
+        System.arraycopy(levels, 0, cycle, 0, count);
+        return cycle;
     }
 
     /**
@@ -145,44 +297,58 @@ public class SegmentedLEDStrip extends AddressableLED {
      *                affected by color chanes.
      */
     public SegmentedLEDStrip(int PWMPort, int length) {
-        super(PWMPort);
-
-        m_LEDBuffer = new AddressableLEDBuffer(length);
-        setLength(m_LEDBuffer.getLength());
-        setData(m_LEDBuffer);
-        start();
+        this(new AddressableLEDOutput(PWMPort, length), length);
 
         // patterns = new ArrayList<>();
         // patternsIndex = 0;
     }
 
     /**
-     * Returns if the counter has reached its specific loop iteration.
+     * Creates a strip that sends its pixels somewhere other than an
+     * AddressableLED, e.g. a stub in a benchmark.
      * 
-     * @param speed   the speed at which the counter will be compared to.
-     * @param counter the value at which the speed will be compared to.
-     * @return if the correct amount of loop iterations is completed.
+     * @param output where the pixels go every time they change
+     * @param length the amount of individual LEDS
      */
-    private boolean hasWaited(Speed speed, int counter) {
-        if (counter == 50 && speed == Speed.Slow ||
-                counter == 25 && speed == Speed.Fast ||
-                counter == 10 && speed == Speed.VeryFast ||
-                counter == 5 && speed == Speed.Ridiculous ||
-                counter == 1 && speed == Speed.Ludicrous) {
+    public SegmentedLEDStrip(LEDOutput output, int length) {
+        m_output = output;
+        m_stripData = new byte[length * LEDBufferSegment.BYTES_PER_PIXEL];
+        m_output.setData(m_stripData);
+    }
 
-            return true;
-        } else {
-            return false;
+    /**
+     * Renders the strip on its own low priority thread at a fixed rate instead
+     * of from a periodic method. Once this is running, {@link #renderString()}
+     * shouldn't be called from anywhere else.
+     * 
+     * @param frequencyHz how many times a second to render
+     */
+    public synchronized void startRenderThread(double frequencyHz) {
+        if (m_renderNotifier != null) {
+            return;
         }
+        m_renderNotifier = new Notifier(this::renderFromThread);
+        m_renderNotifier.setName("LEDRenderThread");
+        m_renderNotifier.startPeriodic(1.0 / frequencyHz);
     }
 
-    private LEDBufferSegment getSegmentFromName(String name) {
-        for (LEDBufferSegment ledBufferSegment : m_Segments) {
-            if (ledBufferSegment.name.equals(name)) {
-                return ledBufferSegment;
-            }
+    public synchronized boolean isRenderThreadRunning() {
+        return m_renderNotifier != null;
+    }
+
+    private void renderFromThread() {
+        // The notifier makes its own thread, the LEDs should never get ahead
+        // of anything else that's waiting to run
+        if (!m_isRenderPriorityLowered) {
+            Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+            m_isRenderPriorityLowered = true;
         }
-        return null;
+        renderString();
+    }
+
+    private synchronized LEDBufferSegment getSegmentFromName(String name) {
+        int handle = getSegmentHandle(name);
+        return handle < 0 ? null : m_allSegments.get(handle);
     }
 
     /**
@@ -207,7 +373,22 @@ public class SegmentedLEDStrip extends AddressableLED {
         setColor(segment, color);
     }
 
+    /**
+     * Sets every pixel in the segment to one packed 0xRRGGBB color.
+     */
+    public void setColor(LEDBufferSegment segment, int color) {
+        for (int ledIndex = 0; ledIndex < segment.size; ledIndex++) {
+            segment.setPixel(ledIndex, color);
+        }
+    }
+
     public void setColor(LEDBufferSegment segment, Color... color) {
+        synchronized (segment) {
+            setColors(segment, color);
+        }
+    }
+
+    private void setColors(LEDBufferSegment segment, Color... color) {
         if (color.length > 0) {
 
             int colorIndex = 0;
@@ -227,31 +408,66 @@ public class SegmentedLEDStrip extends AddressableLED {
 
     /**
      * Render all of the LED segments into the full LED string
-     * Call this method from a periodic method.
+     * Call this method from a periodic method, unless the render thread has
+     * been started.
+     * <p>
+     * Only segments that changed are copied, each one with a single array copy,
+     * and the data is only sent to the strip when at least one pixel changed.
      */
     public void renderString() {
+        renderString(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Renders the strip as of the given time instead of the FPGA clock.
+     * 
+     * @param now time in seconds, on the same clock as the segments' effects
+     */
+    public synchronized void renderString(double now) {
         for (LEDBufferSegment segment : m_Segments) {
-            switch (segment.m_stripEffect) {
-                case DoingNothing:
-                    break;
-                case Glowing:
-                    doGlow(segment, segment.glowColor);
-                    break;
-                case MovingColor:
-                    doMovingColors(segment, segment.speed, segment.colorPattern);
-                    break;
-                case Rainbow:
-                    doRainbow(segment);
-                    break;
-                case SnakingColors:
-                    doSnake(segment, segment.speed, segment.backgroundColor, segment.colorPattern );
-                    break;                
-            }
-            for (int ledIndex = 0; ledIndex < segment.size; ledIndex++) {
-                m_LEDBuffer.setLED(segment.start + ledIndex, segment.getLED(ledIndex));
+            synchronized (segment) {
+                renderSegment(segment, now);
+
+                if (segment.isDirty()) {
+                    copySegment(segment);
+                    segment.clearDirty();
+                }
             }
         }
-        setData(m_LEDBuffer);
+        if (m_isStripDirty) {
+            m_output.setData(m_stripData);
+            m_isStripDirty = false;
+        }
+    }
+
+    private void renderSegment(LEDBufferSegment segment, double now) {
+        switch (segment.m_stripEffect) {
+            case DoingNothing:
+                break;
+            case Glowing:
+                doGlow(segment, segment.glowColor, now);
+                break;
+            case MovingColor:
+                doMovingColors(segment, segment.speed, segment.colorPattern, now);
+                break;
+            case Rainbow:
+                doRainbow(segment, now);
+                break;
+            case SnakingColors:
+                doSnake(segment, segment.speed, segment.m_backgroundPixel, segment.colorPattern, now);
+                break;
+            case Tween:
+                doTween(segment, segment.m_tweenPeriodSeconds, segment.m_tweenKeyframes, now);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void copySegment(LEDBufferSegment segment) {
+        System.arraycopy(segment.getData(), 0, m_stripData, segment.start * LEDBufferSegment.BYTES_PER_PIXEL,
+                segment.size * LEDBufferSegment.BYTES_PER_PIXEL);
+        m_isStripDirty = true;
     }
 
     /**
@@ -280,47 +496,48 @@ public class SegmentedLEDStrip extends AddressableLED {
      *              color should be passed in or the method
      *              will not work.
      */
-    private void doMovingColors(LEDBufferSegment segment, Speed speed, Color... color) {
+    private void doMovingColors(LEDBufferSegment segment, Speed speed, int[] color, double now) {
         if (color.length <= 1) {
             System.out
                     .println("Too little amount of colors passed in, pass in more colors or use the setColor method.");
             return;
         }
 
-        int colorLoopIndex = segment.m_movingColorIndex;
-
-        // Waits for the correct amount of loop iterations to complete.
-        if (hasWaited(speed, segment.m_movingColorsCounter)) {
-
-            // Loops through the whole LED strip.
-            for (int ledIndex = 0; ledIndex < segment.getLength(); ledIndex++) {
+        // Only redraw when it's time for the colors to move
+        long step = segment.getStep(now, speed.getPeriodSeconds());
+        if (!segment.shouldRender(step)) {
+            return;
+        }
 
-                // Increment the color loop index
-                colorLoopIndex++;
+        LEDFrameCache.Animation animation = segment.getAnimation();
+        if (animation == null) {
+            // The colors are back where they started after moving one full
+            // pattern length
+            animation = m_frameCache.get(StripEffect.MovingColor, segment.size, segment.colorPattern, 0, color.length,
+                    (frameSegment, frame) -> drawMovingColors(frameSegment, color, frame));
+            segment.setAnimation(animation);
+        }
+        segment.showFrame(animation, animation.getFrameIndex(step));
+    }
 
-                // Reset the color loop index back to 0 if it excedes the amount of values in
-                // the array.
-                if (colorLoopIndex > (color.length - 1)) {
-                    colorLoopIndex = 0;
-                }
+    private void drawMovingColors(LEDBufferSegment segment, int[] color, long step) {
+        // The pattern is off by one more pixel every step, this gives the
+        // effect of the colors moving down the LED strip.
+        int colorLoopIndex = (int) Math.floorMod(step, (long) color.length);
 
-                segment.setLED(ledIndex, color[colorLoopIndex]);
-            }
+        // Loops through the whole LED strip.
+        for (int ledIndex = 0; ledIndex < segment.getLength(); ledIndex++) {
 
-            // Increment the color index so the color pattern is off by one on the next time
-            // this method is run.
-            // This gives the effect of the colors moving down the LED strip.
-            segment.m_movingColorIndex++;
+            // Increment the color loop index
+            colorLoopIndex++;
 
-            // Put the color index back to 0 if it excedes the amount of values in the
-            // array.
-            if (segment.m_movingColorIndex > (color.length - 1)) {
-                segment.m_movingColorIndex = 0;
+            // Reset the color loop index back to 0 if it excedes the amount of values in
+            // the array.
+            if (colorLoopIndex > (color.length - 1)) {
+                colorLoopIndex = 0;
             }
-            segment.m_movingColorsCounter = 0;
 
-        } else {
-            segment.m_movingColorsCounter++;
+            segment.setPixel(ledIndex, color[colorLoopIndex]);
         }
     }
 
@@ -331,8 +548,8 @@ public class SegmentedLEDStrip extends AddressableLED {
      * @param speed        the speed at which the snake will move.
      * @param colorPattern the preset color pattern to be shown on the led strip.
      */
-    private void doMovingColors(LEDBufferSegment segment, Speed speed, ColorPattern colorPattern) {
-        this.doMovingColors(segment, speed, colorPattern.getPattern());
+    private void doMovingColors(LEDBufferSegment segment, Speed speed, ColorPattern colorPattern, double now) {
+        this.doMovingColors(segment, speed, colorPattern.getPackedPattern(), now);
     }
 
     /**
@@ -347,67 +564,48 @@ public class SegmentedLEDStrip extends AddressableLED {
      *                          Length needs to be greater than 0 or the method will
      *                          not work.
      */
-    private void doSnake(LEDBufferSegment segment, Speed speed, Color backgroundColor, Color[] snakeColorPattern) {
+    private void doSnake(LEDBufferSegment segment, Speed speed, int backgroundColor, int[] snakeColorPattern,
+            double now) {
         if (snakeColorPattern.length == 0) {
             System.out.println(
                     "Snake length is zero, create a longer snake by making the snakeColorPattern array longer.");
             return;
         }
 
-        // Waits for the correct amount of loop iterations to complete.
-        if (hasWaited(speed, segment.m_snakeCounter)) {
-
-            // Loops through the whole LED strip.
-            for (int ledIndex = 0; ledIndex < segment.getLength(); ledIndex++) {
-
-                // Checks if the current led is the one that will start the snake.
-                if (ledIndex == segment.m_snakeLoopIndex) {
-
-                    int endOfSnakeIndex = ledIndex + snakeColorPattern.length;
-                    int currentColorIndex = 0;
-
-                    // Loops through the entire snake.
-                    for (int snakeIndex = ledIndex; snakeIndex < segment.getLength()
-                            + snakeColorPattern.length; snakeIndex++) {
-
-                        // If the current color index is outside the color array, that means the snake
-                        // is complete.
-                        if (currentColorIndex == snakeColorPattern.length) {
-                            break;
-                        }
-
-                        int newSnakeIndex = snakeIndex;
-
-                        // Moves the new snake index back to the beginning when the snake goes over
-                        // the end so it flows smoothly to the beginning again.
-                        if (snakeIndex > segment.getLength() - 1) {
-                            newSnakeIndex -= segment.getLength();
-                        }
-
-                        segment.setLED(newSnakeIndex, snakeColorPattern[currentColorIndex]);
-                        currentColorIndex++;
-
-                    }
+        // Only redraw when it's time for the snake to move
+        long step = segment.getStep(now, speed.getPeriodSeconds());
+        if (!segment.shouldRender(step)) {
+            return;
+        }
 
-                    // Advances the ledIndex to the end of the snake.
-                    ledIndex = endOfSnakeIndex - 1;
+        LEDFrameCache.Animation animation = segment.getAnimation();
+        if (animation == null) {
+            // The snake is back where it started after going all the way around
+            animation = m_frameCache.get(StripEffect.SnakingColors, segment.size, segment.colorPattern,
+                    backgroundColor, segment.size,
+                    (frameSegment, frame) -> drawSnake(frameSegment, backgroundColor, snakeColorPattern, frame));
+            segment.setAnimation(animation);
+        }
+        segment.showFrame(animation, animation.getFrameIndex(step));
+    }
 
-                } else {
-                    segment.setLED(ledIndex, backgroundColor);
-                }
+    private void drawSnake(LEDBufferSegment segment, int backgroundColor, int[] snakeColorPattern, long step) {
+        // The snake's head moves forward one pixel every step
+        int snakeLoopIndex = (int) Math.floorMod(step, (long) segment.getLength());
 
+        for (int ledIndex = 0; ledIndex < segment.getLength(); ledIndex++) {
+            // How far this pixel is behind the head, wrapping around the end
+            // of the segment so the snake flows smoothly back to the beginning
+            int snakeIndex = ledIndex - snakeLoopIndex;
+            if (snakeIndex < 0) {
+                snakeIndex += segment.getLength();
             }
-            segment.m_snakeCounter = 0;
 
-            segment.m_snakeLoopIndex++;
-
-            // Reset the snake loop index back to the beginning when it reaches the end.
-            if (segment.m_snakeLoopIndex > segment.getLength() - 1) {
-                segment.m_snakeLoopIndex = 0;
+            if (snakeIndex < snakeColorPattern.length) {
+                segment.setPixel(ledIndex, snakeColorPattern[snakeIndex]);
+            } else {
+                segment.setPixel(ledIndex, backgroundColor);
             }
-
-        } else {
-            segment.m_snakeCounter++;
         }
     }
 
@@ -421,8 +619,9 @@ public class SegmentedLEDStrip extends AddressableLED {
      *                        will travel over.
      * @param colorPattern    the preset color pattern to be shown on the led strip.
      */
-    private void doSnake(LEDBufferSegment segment, Speed speed, Color backgroundColor, ColorPattern pattern) {
-        this.doSnake(segment, speed, backgroundColor, pattern.getPattern());
+    private void doSnake(LEDBufferSegment segment, Speed speed, int backgroundColor, ColorPattern pattern,
+            double now) {
+        this.doSnake(segment, speed, backgroundColor, pattern.getPackedPattern(), now);
     }
 
     /**
@@ -432,60 +631,20 @@ public class SegmentedLEDStrip extends AddressableLED {
      * @param glowColor preset color
      */
     public void doGlow(LEDBufferSegment segment, GlowColor glowColor) {
-        if (hasWaited(Speed.Ludicrous, segment.m_glowCounter)) {
-
-            setGlowColor(segment, glowColor.getColorKey());
-
-            if (!segment.m_isGlowReverse) {
-                if (segment.m_glowIndex < GLOW_MAX) {
-                    segment. m_glowIndex += INCREASE_VALUE;
-                } else {
-                    segment.m_isGlowReverse = true;
-                }
-            } else {
-                if (segment.m_glowIndex > GLOW_MIN) {
-                    segment.m_glowIndex -= INCREASE_VALUE;
-                } else {
-                    segment.m_isGlowReverse = false;
-                }
-            }
-
-            segment.m_glowCounter = 0;
-        } else {
-            segment.m_glowCounter++;
+        synchronized (segment) {
+            doGlow(segment, glowColor, Timer.getFPGATimestamp());
         }
     }
 
-    /**
-     * Sets the color with the glow index in the correct space to alter the color's
-     * shade.
-     */
-    private void setGlowColor(LEDBufferSegment segment, int colorKey) {
-        switch (colorKey) {
-            case 0:
-                setColor(segment, new Color(segment.m_glowIndex, 0, 0));
-                break;
-            case 1:
-                setColor(segment, new Color(0, segment.m_glowIndex, 0));
-                break;
-            case 2:
-                setColor(segment, new Color(0, 0, segment.m_glowIndex));
-                break;
-            case 3:
-                setColor(segment, new Color(segment.m_glowIndex, segment.m_glowIndex, 0));
-                break;
-            case 4:
-                setColor(segment, new Color(segment.m_glowIndex, 0, segment.m_glowIndex));
-                break;
-            case 5:
-                setColor(segment, new Color(0, segment.m_glowIndex, segment.m_glowIndex));
-                break;
-            case 6:
-                setColor(segment, new Color(segment.m_glowIndex, segment.m_glowIndex, segment.m_glowIndex));
-                break;
-            default:
-                System.out.println("Error in SegmentedLEDStrip, unexpected glow color key found: " + colorKey);
+    private void doGlow(LEDBufferSegment segment, GlowColor glowColor, double now) {
+        long step = segment.getStep(now, GLOW_STEP_SECONDS);
+        if (!segment.shouldRender(step)) {
+            return;
         }
+
+        // Every pixel is the same shade, so there's nothing worth caching, the
+        // gradient already has them all packed
+        setColor(segment, glowColor.getGradientColor((int) Math.floorMod(step, (long) glowColor.getGradientLength())));
     }
 
     /**
@@ -498,23 +657,76 @@ public class SegmentedLEDStrip extends AddressableLED {
      * with a few modifcations to make it more readable and standard.
      */
     public void doRainbow(LEDBufferSegment segment) {
+        synchronized (segment) {
+            doRainbow(segment, Timer.getFPGATimestamp());
+        }
+    }
+
+    private void doRainbow(LEDBufferSegment segment, double now) {
+        long step = segment.getStep(now, RAINBOW_STEP_SECONDS);
+        if (!segment.shouldRender(step)) {
+            return;
+        }
+
+        LEDFrameCache.Animation animation = segment.getAnimation();
+        if (animation == null) {
+            // The first pixel's hue comes back around after this many steps
+            int frameCount = PackedColor.RAINBOW_HUES / gcd(RAINBOW_HUE_STEP, PackedColor.RAINBOW_HUES);
+            animation = m_frameCache.get(StripEffect.Rainbow, segment.size, null, 0, frameCount,
+                    this::drawRainbow);
+            segment.setAnimation(animation);
+        }
+        segment.showFrame(animation, animation.getFrameIndex(step));
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private void drawRainbow(LEDBufferSegment segment, long step) {
+        // Move the rainbow a few hues every step
+        int firstPixelHue = (int) Math.floorMod(step * RAINBOW_HUE_STEP, (long) PackedColor.RAINBOW_HUES);
+
         // For every pixel
         for (int i = 0; i < segment.getLength(); i++) {
             // Calculate the hue - hue is easier for rainbows because the color
             // shape is a circle so only one value needs to precess
-            int hue = (segment.m_rainbowFirstPixelHue + (i * 180 / segment.getLength())) % 180;
-            // Set the value
-            segment.setHSV(i, hue, 255, 128);
+            int hue = (firstPixelHue + (i * 180 / segment.getLength())) % 180;
+            // Set the value, the HSV conversion is done ahead of time
+            segment.setPixel(i, PackedColor.rainbow(hue));
+        }
+    }
+
+    /**
+     * Fades the whole segment between keyframe colors.
+     * 
+     * @param periodSeconds how long one pass through all of the keyframes takes
+     * @param keyframes     packed colors, evenly spaced in time
+     */
+    private void doTween(LEDBufferSegment segment, double periodSeconds, int[] keyframes, double now) {
+        if (keyframes.length == 0) {
+            return;
+        }
+
+        long step = segment.getStep(now, TWEEN_STEP_SECONDS);
+        if (!segment.shouldRender(step)) {
+            return;
+        }
+
+        // Where we are in the cycle, in keyframes
+        double cycleTime = step * TWEEN_STEP_SECONDS;
+        double position = (cycleTime % periodSeconds) / periodSeconds * keyframes.length;
+        if (position < 0) {
+            position += keyframes.length;
         }
+        int keyframe = Math.min((int) position, keyframes.length - 1);
+        int nextKeyframe = (keyframe + 1) % keyframes.length;
 
-        // Increase by to make the rainbow "move"
-        segment.m_rainbowFirstPixelHue += 3;
-        // Check bounds
-        segment.m_rainbowFirstPixelHue %= 180;
+        setColor(segment, PackedColor.lerp(keyframes[keyframe], keyframes[nextKeyframe], position - keyframe));
     }
 
-    public void printSegments(){
-        System.out.println("Length: " + m_Segments.size());
+    public synchronized void printSegments(){
+        System.out.println("Layout: " + m_activeLayout + ", Length: " + m_Segments.length);
         for (LEDBufferSegment segment : m_Segments) {
             System.out.println(segment.name + ", " + segment.m_stripEffect);
         }        
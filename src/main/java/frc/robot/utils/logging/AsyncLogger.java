@@ -0,0 +1,168 @@
+package frc.robot.utils.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log messages to the console from a background thread so printing
+ * never blocks the robot loop.
+ * <p>
+ * Messages go through a fixed size, lock-free queue that any thread can add
+ * to (the bounded MPMC queue design by Dmitry Vyukov, used here with a single
+ * consumer). If the queue is full the message is dropped and counted rather
+ * than waiting. Use {@link LogSite} to log, it handles rate limiting and
+ * duplicate suppression before anything gets here.
+ */
+public class AsyncLogger {
+    private static final int CAPACITY = 1024;
+    // How long the writer sleeps when there's nothing to write
+    private static final long IDLE_PARK_NANOS = 5000000;
+
+    private static AsyncLogger s_instance;
+
+    private final Entry[] m_entries = new Entry[CAPACITY];
+    private final AtomicLong m_tail = new AtomicLong();
+    private final AtomicLong m_dropped = new AtomicLong();
+    // Only the writer thread touches these
+    private long m_head;
+    private long m_reportedDropped;
+
+    private final Thread m_writerThread;
+
+    public static synchronized AsyncLogger getInstance() {
+        if (s_instance == null) {
+            s_instance = new AsyncLogger();
+        }
+        return s_instance;
+    }
+
+    private AsyncLogger() {
+        for (int i = 0; i < CAPACITY; i++) {
+            m_entries[i] = new Entry(i);
+        }
+
+        m_writerThread = new Thread(this::writeLoop, "AsyncLogger");
+        m_writerThread.setDaemon(true);
+        m_writerThread.setPriority(Thread.MIN_PRIORITY);
+        m_writerThread.start();
+    }
+
+    /**
+     * Log a plain message through the queue, without a {@link LogSite}. The
+     * message should already be built, nothing is rate limited.
+     */
+    public void log(String message) {
+        offer(null, 0, 1, 0, message, 0.0, null, 0.0);
+    }
+
+    public long getDroppedCount() {
+        return m_dropped.get();
+    }
+
+    boolean offer(LogSite site, int suppressed, int argCount, int numericMask, Object object0, double number0,
+            Object object1, double number1) {
+        long position = m_tail.get();
+        while (true) {
+            Entry entry = m_entries[(int) (position & (CAPACITY - 1))];
+            long difference = entry.sequence - position;
+
+            if (difference == 0) {
+                if (m_tail.compareAndSet(position, position + 1)) {
+                    entry.site = site;
+                    entry.suppressed = suppressed;
+                    entry.argCount = argCount;
+                    entry.numericMask = numericMask;
+                    entry.object0 = object0;
+                    entry.number0 = number0;
+                    entry.object1 = object1;
+                    entry.number1 = number1;
+                    // Hand the entry to the writer
+                    entry.sequence = position + 1;
+                    return true;
+                }
+                position = m_tail.get();
+            } else if (difference < 0) {
+                // Full
+                m_dropped.incrementAndGet();
+                return false;
+            } else {
+                // Another thread got this entry first
+                position = m_tail.get();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Entry entry = m_entries[(int) (m_head & (CAPACITY - 1))];
+            if (entry.sequence != m_head + 1) {
+                reportDropped();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            String message = format(entry);
+
+            // Release the entry's references and hand it back to the producers
+            entry.site = null;
+            entry.object0 = null;
+            entry.object1 = null;
+            entry.sequence = m_head + CAPACITY;
+            m_head++;
+
+            System.out.println(message);
+        }
+    }
+
+    private void reportDropped() {
+        long dropped = m_dropped.get();
+        if (dropped != m_reportedDropped) {
+            System.out.println("WARNING: AsyncLogger queue full, dropped " + (dropped - m_reportedDropped)
+                    + " messages");
+            m_reportedDropped = dropped;
+        }
+    }
+
+    private static String format(Entry entry) {
+        String message;
+        if (entry.site == null) {
+            message = String.valueOf(entry.object0);
+        } else {
+            Object[] args = new Object[entry.argCount];
+            if (entry.argCount > 0) {
+                args[0] = (entry.numericMask & 0b01) != 0 ? (Object) entry.number0 : entry.object0;
+            }
+            if (entry.argCount > 1) {
+                args[1] = (entry.numericMask & 0b10) != 0 ? (Object) entry.number1 : entry.object1;
+            }
+
+            try {
+                message = String.format(entry.site.getFormat(), args);
+            } catch (RuntimeException e) {
+                message = entry.site.getFormat() + " (bad log format: " + e.getMessage() + ")";
+            }
+        }
+
+        if (entry.suppressed > 0) {
+            message += " (" + entry.suppressed + " similar suppressed)";
+        }
+        return message;
+    }
+
+    private static class Entry {
+        volatile long sequence;
+
+        LogSite site;
+        int suppressed;
+        int argCount;
+        int numericMask;
+        Object object0;
+        double number0;
+        Object object1;
+        double number1;
+
+        Entry(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package frc.robot.utils.logging;
+
+/**
+ * One place in the code that logs a message. Keep these in static fields so
+ * the rate limit and duplicate tracking survive between calls:
+ * 
+ * <pre>
+ * private static final LogSite ROLL_LOG = new LogSite("roll: %.2f", 0.25);
+ * ...
+ * ROLL_LOG.log(m_drivetrainSubsystem.getRoll());
+ * </pre>
+ * 
+ * Messages that are rate limited, or identical to the last one logged from the
+ * site within {@link #DUPLICATE_WINDOW_SECONDS}, are dropped before anything is
+ * formatted. The next message that does go out says how many were skipped. Formatting and the console write happen
+ * on the {@link AsyncLogger} thread.
+ * <p>
+ * Arguments are passed by reference to the writer thread, so only pass
+ * numbers, Strings, enums and other immutable objects.
+ * <p>
+ * A site is meant to be used from one thread. Sharing one between threads is
+ * safe for the logger but may let an extra duplicate through.
+ */
+public class LogSite {
+    // Repeats of the same message are only printed again after this long
+    public static final double DUPLICATE_WINDOW_SECONDS = 1.0;
+    private static final long DUPLICATE_WINDOW_NANOS = (long) (DUPLICATE_WINDOW_SECONDS * 1.0e9);
+
+    private final String m_format;
+    private final long m_minIntervalNanos;
+
+    private boolean m_hasLogged;
+    private long m_lastLogNanos;
+    private int m_suppressed;
+
+    // The arguments of the last message that went out, for dropping repeats
+    private int m_lastArgCount = -1;
+    private int m_lastNumericMask;
+    private double m_lastNumber0;
+    private double m_lastNumber1;
+    private Object m_lastObject0;
+    private Object m_lastObject1;
+
+    /**
+     * A site that logs every distinct message.
+     * 
+     * @param format A {@link String#format(String, Object...)} format string
+     */
+    public LogSite(String format) {
+        this(format, 0.0);
+    }
+
+    /**
+     * @param format A {@link String#format(String, Object...)} format string
+     * @param minIntervalSeconds Messages closer together than this are dropped
+     */
+    public LogSite(String format, double minIntervalSeconds) {
+        m_format = format;
+        m_minIntervalNanos = (long) (minIntervalSeconds * 1.0e9);
+    }
+
+    public String getFormat() {
+        return m_format;
+    }
+
+    public void log() {
+        submit(0, 0, null, 0.0, null, 0.0);
+    }
+
+    public void log(double arg) {
+        submit(1, 0b01, null, arg, null, 0.0);
+    }
+
+    public void log(Object arg) {
+        submit(1, 0b00, arg, 0.0, null, 0.0);
+    }
+
+    public void log(double arg0, double arg1) {
+        submit(2, 0b11, null, arg0, null, arg1);
+    }
+
+    public void log(Object arg0, double arg1) {
+        submit(2, 0b10, arg0, 0.0, null, arg1);
+    }
+
+    public void log(double arg0, Object arg1) {
+        submit(2, 0b01, null, arg0, arg1, 0.0);
+    }
+
+    public void log(Object arg0, Object arg1) {
+        submit(2, 0b00, arg0, 0.0, arg1, 0.0);
+    }
+
+    private void submit(int argCount, int numericMask, Object object0, double number0, Object object1,
+            double number1) {
+        long now = System.nanoTime();
+
+        if (m_hasLogged && now - m_lastLogNanos < m_minIntervalNanos) {
+            m_suppressed++;
+            return;
+        }
+
+        if (now - m_lastLogNanos < DUPLICATE_WINDOW_NANOS
+                && argCount == m_lastArgCount && numericMask == m_lastNumericMask
+                && Double.compare(number0, m_lastNumber0) == 0
+                && Double.compare(number1, m_lastNumber1) == 0
+                && equal(object0, m_lastObject0)
+                && equal(object1, m_lastObject1)) {
+            m_suppressed++;
+            return;
+        }
+
+        if (!AsyncLogger.getInstance().offer(this, m_suppressed, argCount, numericMask, object0, number0,
+                object1, number1)) {
+            // The queue is full, the logger counts the drop
+            return;
+        }
+
+        m_hasLogged = true;
+        m_lastLogNanos = now;
+        m_suppressed = 0;
+        m_lastArgCount = argCount;
+        m_lastNumericMask = numericMask;
+        m_lastNumber0 = number0;
+        m_lastNumber1 = number1;
+        m_lastObject0 = object0;
+        m_lastObject1 = object1;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+}
@@ -0,0 +1,141 @@
+package frc.robot.utils.logging;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystems.DrivetrainSubsystem;
+import frc.robot.subsystems.ElevatorSubsystem;
+import frc.robot.subsystems.ExtendoSubsystem;
+import frc.robot.subsystems.PneumaticSubsystem;
+
+/**
+ * Records robot telemetry to a binary .wpilog file for looking at after a
+ * match.
+ * <p>
+ * This sits on top of WPILib's {@link DataLogManager}, which writes to a USB
+ * stick under /u/logs when one is plugged in and to the roboRIO's home
+ * directory otherwise. Appending a record only copies it into the log's
+ * in-memory buffer, the log's own background thread swaps buffers and writes
+ * them out, so recording never waits on the disk. Every channel is created
+ * once here and the arrays handed to it are reused every loop.
+ * <p>
+ * The files can be opened with AdvantageScope or converted to CSV with the
+ * WPILib DataLogTool.
+ */
+public class TelemetryRecorder {
+    private final DrivetrainSubsystem m_drivetrainSubsystem;
+    private final ElevatorSubsystem m_elevatorSubsystem;
+    private final ExtendoSubsystem m_extendoSubsystem;
+    private final PneumaticSubsystem m_pneumaticSubsystem;
+
+    private final DoubleArrayLogEntry m_poseEntry;
+    private final DoubleArrayLogEntry m_odometryPoseEntry;
+    private final DoubleArrayLogEntry m_modulePositionsEntry;
+    private final DoubleArrayLogEntry m_chassisSpeedsEntry;
+    private final DoubleLogEntry m_elevatorHeightEntry;
+    private final DoubleLogEntry m_elevatorGoalEntry;
+    private final DoubleLogEntry m_elevatorSetpointEntry;
+    private final DoubleLogEntry m_extendoReachEntry;
+    private final DoubleLogEntry m_extendoGoalEntry;
+    private final DoubleLogEntry m_extendoSetpointEntry;
+    private final DoubleLogEntry m_highSidePressureEntry;
+    private final DoubleLogEntry m_lowSidePressureEntry;
+    private final StringLogEntry m_commandStartedEntry;
+    private final StringLogEntry m_commandFinishedEntry;
+    private final StringLogEntry m_commandInterruptedEntry;
+
+    // Reused every loop, the log copies them when they're appended
+    private final double[] m_pose = new double[3];
+    private final double[] m_modulePositions = new double[8];
+    private final double[] m_chassisSpeeds = new double[3];
+
+    /**
+     * Starts the log and creates all of the channels. This should only be
+     * done once.
+     */
+    public TelemetryRecorder(DrivetrainSubsystem drivetrainSubsystem, ElevatorSubsystem elevatorSubsystem,
+            ExtendoSubsystem extendoSubsystem, PneumaticSubsystem pneumaticSubsystem) {
+        m_drivetrainSubsystem = drivetrainSubsystem;
+        m_elevatorSubsystem = elevatorSubsystem;
+        m_extendoSubsystem = extendoSubsystem;
+        m_pneumaticSubsystem = pneumaticSubsystem;
+
+        DataLogManager.start();
+        // Everything on NetworkTables would be a lot of extra data for things
+        // we already record here
+        DataLogManager.logNetworkTables(false);
+        DataLog log = DataLogManager.getLog();
+        // Joysticks, mode and match info, so a match can be replayed
+        DriverStation.startDataLog(log);
+
+        m_poseEntry = new DoubleArrayLogEntry(log, "/Drive/Pose");
+        m_odometryPoseEntry = new DoubleArrayLogEntry(log, "/Drive/OdometryPose");
+        m_modulePositionsEntry = new DoubleArrayLogEntry(log, "/Drive/ModulePositions");
+        m_chassisSpeedsEntry = new DoubleArrayLogEntry(log, "/Drive/CommandedChassisSpeeds");
+        m_elevatorHeightEntry = new DoubleLogEntry(log, "/Elevator/Height");
+        m_elevatorGoalEntry = new DoubleLogEntry(log, "/Elevator/Goal");
+        m_elevatorSetpointEntry = new DoubleLogEntry(log, "/Elevator/Setpoint");
+        m_extendoReachEntry = new DoubleLogEntry(log, "/Extendo/Reach");
+        m_extendoGoalEntry = new DoubleLogEntry(log, "/Extendo/Goal");
+        m_extendoSetpointEntry = new DoubleLogEntry(log, "/Extendo/Setpoint");
+        m_highSidePressureEntry = new DoubleLogEntry(log, "/Pneumatics/HighSidePressure");
+        m_lowSidePressureEntry = new DoubleLogEntry(log, "/Pneumatics/LowSidePressure");
+        m_commandStartedEntry = new StringLogEntry(log, "/Commands/Started");
+        m_commandFinishedEntry = new StringLogEntry(log, "/Commands/Finished");
+        m_commandInterruptedEntry = new StringLogEntry(log, "/Commands/Interrupted");
+    }
+
+    /**
+     * Records command start, finish and interrupt events as they happen.
+     */
+    public void bindCommandEvents(CommandScheduler scheduler) {
+        scheduler.onCommandInitialize(command -> m_commandStartedEntry.append(command.getName()));
+        scheduler.onCommandFinish(command -> m_commandFinishedEntry.append(command.getName()));
+        scheduler.onCommandInterrupt(command -> m_commandInterruptedEntry.append(command.getName()));
+    }
+
+    /**
+     * Records one sample of every channel. Call this once per loop after the
+     * scheduler has run.
+     */
+    public void record() {
+        putPose(m_drivetrainSubsystem.getPose());
+        m_poseEntry.append(m_pose);
+        putPose(m_drivetrainSubsystem.getOdometryPose());
+        m_odometryPoseEntry.append(m_pose);
+
+        // From the drivetrain's sensor snapshot, reading the modules again
+        // would be 8 more CAN reads every loop
+        m_drivetrainSubsystem.getModulePositions(m_modulePositions);
+        m_modulePositionsEntry.append(m_modulePositions);
+
+        ChassisSpeeds chassisSpeeds = m_drivetrainSubsystem.getChassisSpeeds();
+        m_chassisSpeeds[0] = chassisSpeeds.vxMetersPerSecond;
+        m_chassisSpeeds[1] = chassisSpeeds.vyMetersPerSecond;
+        m_chassisSpeeds[2] = chassisSpeeds.omegaRadiansPerSecond;
+        m_chassisSpeedsEntry.append(m_chassisSpeeds);
+
+        m_elevatorHeightEntry.append(m_elevatorSubsystem.getMeasurement());
+        m_elevatorGoalEntry.append(m_elevatorSubsystem.getController().getGoal().position);
+        m_elevatorSetpointEntry.append(m_elevatorSubsystem.getController().getSetpoint().position);
+
+        m_extendoReachEntry.append(m_extendoSubsystem.getCurrentArmReach());
+        m_extendoGoalEntry.append(m_extendoSubsystem.getController().getGoal().position);
+        m_extendoSetpointEntry.append(m_extendoSubsystem.getController().getSetpoint().position);
+
+        m_highSidePressureEntry.append(m_pneumaticSubsystem.getHighSidePressure());
+        m_lowSidePressureEntry.append(m_pneumaticSubsystem.getLowSidePressure());
+    }
+
+    private void putPose(Pose2d pose) {
+        m_pose[0] = pose.getX();
+        m_pose[1] = pose.getY();
+        m_pose[2] = pose.getRotation().getRadians();
+    }
+}
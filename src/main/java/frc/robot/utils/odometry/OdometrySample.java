@@ -0,0 +1,23 @@
+package frc.robot.utils.odometry;
+
+/**
+ * A single timestamped reading of the drivetrain sensors used by odometry.
+ * <p>
+ * Instances are meant to be reused, the queue copies values into them instead
+ * of handing out new objects.
+ */
+public class OdometrySample {
+    public double timestamp;
+    public double gyroFusedHeading;
+    public final double[] driveCounts;
+    public final double[] steerCounts;
+
+    /**
+     * Create a new sample holder
+     * @param moduleCount The number of swerve modules on the drivetrain
+     */
+    public OdometrySample(int moduleCount) {
+        driveCounts = new double[moduleCount];
+        steerCounts = new double[moduleCount];
+    }
+}
@@ -0,0 +1,98 @@
+package frc.robot.utils.odometry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size, lock-free ring buffer of odometry samples.
+ * <p>
+ * The queue is single producer / single consumer: the odometry thread is the
+ * only one that pushes and the main robot loop is the only one that polls.
+ * All of the sample data lives in one preallocated double array so nothing is
+ * allocated once the queue has been created.
+ */
+public class OdometrySampleQueue {
+    private final int m_moduleCount;
+    private final int m_stride;
+    private final int m_mask;
+    private final double[] m_data;
+
+    // Total number of samples ever pushed / polled. Only the producer writes
+    // m_head and only the consumer writes m_tail.
+    private final AtomicLong m_head = new AtomicLong();
+    private final AtomicLong m_tail = new AtomicLong();
+
+    private final AtomicLong m_droppedSamples = new AtomicLong();
+
+    /**
+     * Create a new queue
+     * @param capacity The number of samples to hold, rounded up to a power of two
+     * @param moduleCount The number of swerve modules in each sample
+     */
+    public OdometrySampleQueue(int capacity, int moduleCount) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        m_moduleCount = moduleCount;
+        m_stride = 2 + (2 * moduleCount);
+        m_mask = size - 1;
+        m_data = new double[size * m_stride];
+    }
+
+    /**
+     * Producer side. Copies a sample into the queue.
+     * 
+     * @return false if the queue was full and the sample was dropped
+     */
+    public boolean push(double timestamp, double gyroFusedHeading, double[] driveCounts, double[] steerCounts) {
+        long head = m_head.get();
+        if (head - m_tail.get() > m_mask) {
+            m_droppedSamples.incrementAndGet();
+            return false;
+        }
+
+        int offset = (int) (head & m_mask) * m_stride;
+        m_data[offset] = timestamp;
+        m_data[offset + 1] = gyroFusedHeading;
+        System.arraycopy(driveCounts, 0, m_data, offset + 2, m_moduleCount);
+        System.arraycopy(steerCounts, 0, m_data, offset + 2 + m_moduleCount, m_moduleCount);
+
+        // Publish the sample to the consumer
+        m_head.lazySet(head + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Copies the oldest sample into the given holder.
+     * 
+     * @return false if the queue was empty
+     */
+    public boolean poll(OdometrySample sample) {
+        long tail = m_tail.get();
+        if (tail == m_head.get()) {
+            return false;
+        }
+
+        int offset = (int) (tail & m_mask) * m_stride;
+        sample.timestamp = m_data[offset];
+        sample.gyroFusedHeading = m_data[offset + 1];
+        System.arraycopy(m_data, offset + 2, sample.driveCounts, 0, m_moduleCount);
+        System.arraycopy(m_data, offset + 2 + m_moduleCount, sample.steerCounts, 0, m_moduleCount);
+
+        // Hand the slot back to the producer
+        m_tail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Throws away everything currently in the queue.
+     */
+    public void clear() {
+        m_tail.lazySet(m_head.get());
+    }
+
+    public int size() {
+        return (int) (m_head.get() - m_tail.get());
+    }
+
+    public long getDroppedSamples() {
+        return m_droppedSamples.get();
+    }
+}
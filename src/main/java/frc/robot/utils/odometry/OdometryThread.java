@@ -0,0 +1,97 @@
+package frc.robot.utils.odometry;
+
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.sensors.PigeonIMU;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Samples the drive encoders, steer encoders and gyro on its own thread at a
+ * fixed rate, independent of the 20ms robot loop.
+ * <p>
+ * Samples are pushed into an {@link OdometrySampleQueue} which the main loop
+ * drains into the odometry. A sample is only queued when at least one of the
+ * sensor values changed, so reading faster than the CAN status frames arrive
+ * doesn't flood the queue with duplicates.
+ */
+public class OdometryThread {
+    // Enough room for a few loop overruns worth of samples at 250Hz
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final TalonFX[] m_driveMotors;
+    private final TalonFX[] m_steerMotors;
+    private final PigeonIMU m_pigeon;
+
+    private final OdometrySampleQueue m_queue;
+    private final Notifier m_notifier;
+    private final double m_periodSeconds;
+
+    // Only touched from the notifier thread
+    private final double[] m_driveCounts;
+    private final double[] m_steerCounts;
+    private final double[] m_lastDriveCounts;
+    private final double[] m_lastSteerCounts;
+    private double m_lastGyroFusedHeading = Double.NaN;
+
+    /**
+     * Create a new odometry thread. Call {@link #start()} to begin sampling.
+     * 
+     * @param driveMotors The drive motors, in kinematics order
+     * @param steerMotors The steer motors, in kinematics order
+     * @param pigeon The gyro used for the robot heading
+     * @param frequencyHz How often to sample the sensors
+     */
+    public OdometryThread(TalonFX[] driveMotors, TalonFX[] steerMotors, PigeonIMU pigeon, double frequencyHz) {
+        m_driveMotors = driveMotors;
+        m_steerMotors = steerMotors;
+        m_pigeon = pigeon;
+        m_periodSeconds = 1.0 / frequencyHz;
+
+        int moduleCount = driveMotors.length;
+        m_driveCounts = new double[moduleCount];
+        m_steerCounts = new double[moduleCount];
+        m_lastDriveCounts = new double[moduleCount];
+        m_lastSteerCounts = new double[moduleCount];
+
+        m_queue = new OdometrySampleQueue(QUEUE_CAPACITY, moduleCount);
+        m_notifier = new Notifier(this::sample);
+        m_notifier.setName("OdometryThread");
+    }
+
+    public void start() {
+        m_notifier.startPeriodic(m_periodSeconds);
+    }
+
+    public void stop() {
+        m_notifier.stop();
+    }
+
+    public OdometrySampleQueue getQueue() {
+        return m_queue;
+    }
+
+    private void sample() {
+        double timestamp = Timer.getFPGATimestamp();
+        double gyroFusedHeading = m_pigeon.getFusedHeading();
+
+        boolean changed = gyroFusedHeading != m_lastGyroFusedHeading;
+        for (int module = 0; module < m_driveMotors.length; module++) {
+            m_driveCounts[module] = m_driveMotors[module].getSelectedSensorPosition();
+            m_steerCounts[module] = m_steerMotors[module].getSelectedSensorPosition();
+
+            changed |= m_driveCounts[module] != m_lastDriveCounts[module]
+                    || m_steerCounts[module] != m_lastSteerCounts[module];
+        }
+
+        if (!changed) {
+            return;
+        }
+
+        if (m_queue.push(timestamp, gyroFusedHeading, m_driveCounts, m_steerCounts)) {
+            m_lastGyroFusedHeading = gyroFusedHeading;
+            System.arraycopy(m_driveCounts, 0, m_lastDriveCounts, 0, m_driveCounts.length);
+            System.arraycopy(m_steerCounts, 0, m_lastSteerCounts, 0, m_steerCounts.length);
+        }
+    }
+}
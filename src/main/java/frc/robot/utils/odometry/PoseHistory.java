@@ -0,0 +1,150 @@
+package frc.robot.utils.odometry;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A fixed size history of timestamped poses, oldest entries get overwritten.
+ * <p>
+ * Poses are stored as parallel primitive arrays so recording one every loop
+ * doesn't allocate anything. Lookups binary search the timestamps and
+ * interpolate between the two poses on either side of the requested time.
+ * <p>
+ * This is not thread safe, it's meant to be written and read from the main
+ * robot loop.
+ */
+public class PoseHistory {
+    private final double[] m_timestamps;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_theta;
+    private final double[] m_lookup = new double[3];
+
+    // Index of the oldest entry and how many entries are valid
+    private int m_start;
+    private int m_size;
+
+    /**
+     * Create a new pose history
+     * @param capacity The maximum number of poses to keep
+     */
+    public PoseHistory(int capacity) {
+        m_timestamps = new double[capacity];
+        m_x = new double[capacity];
+        m_y = new double[capacity];
+        m_theta = new double[capacity];
+    }
+
+    /**
+     * Record a pose. Timestamps must be increasing, anything at or before the
+     * newest recorded timestamp is ignored.
+     * 
+     * @param timestamp FPGA timestamp in seconds
+     * @param x Field x in meters
+     * @param y Field y in meters
+     * @param theta Heading in radians
+     */
+    public void add(double timestamp, double x, double y, double theta) {
+        if (m_size > 0 && timestamp <= m_timestamps[physicalIndex(m_size - 1)]) {
+            return;
+        }
+
+        int index;
+        if (m_size < m_timestamps.length) {
+            index = physicalIndex(m_size);
+            m_size++;
+        } else {
+            // Full, overwrite the oldest
+            index = m_start;
+            m_start = (m_start + 1) % m_timestamps.length;
+        }
+
+        m_timestamps[index] = timestamp;
+        m_x[index] = x;
+        m_y[index] = y;
+        m_theta[index] = theta;
+    }
+
+    public void add(double timestamp, Pose2d pose) {
+        add(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+    }
+
+    public void clear() {
+        m_start = 0;
+        m_size = 0;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public double getOldestTimestamp() {
+        return m_size > 0 ? m_timestamps[m_start] : Double.NaN;
+    }
+
+    public double getNewestTimestamp() {
+        return m_size > 0 ? m_timestamps[physicalIndex(m_size - 1)] : Double.NaN;
+    }
+
+    /**
+     * Looks up the pose at the given time, interpolating between recorded
+     * poses. Times past the newest entry return the newest pose.
+     * 
+     * @param timestamp FPGA timestamp in seconds
+     * @param out Receives x, y and theta (radians), must hold at least 3 values
+     * @return false if there is no history covering the timestamp
+     */
+    public boolean sample(double timestamp, double[] out) {
+        if (m_size == 0 || timestamp < m_timestamps[m_start]) {
+            return false;
+        }
+
+        int newest = physicalIndex(m_size - 1);
+        if (timestamp >= m_timestamps[newest]) {
+            out[0] = m_x[newest];
+            out[1] = m_y[newest];
+            out[2] = m_theta[newest];
+            return true;
+        }
+
+        // Find the first entry after the timestamp. The entry before it is
+        // guaranteed to exist since the timestamp is not older than the oldest.
+        int low = 0;
+        int high = m_size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (m_timestamps[physicalIndex(mid)] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int after = physicalIndex(low);
+        int before = physicalIndex(low - 1);
+        double t = (timestamp - m_timestamps[before]) / (m_timestamps[after] - m_timestamps[before]);
+
+        out[0] = MathUtil.interpolate(m_x[before], m_x[after], t);
+        out[1] = MathUtil.interpolate(m_y[before], m_y[after], t);
+        // Go the short way around when the heading wraps
+        out[2] = m_theta[before] + MathUtil.angleModulus(m_theta[after] - m_theta[before]) * t;
+        return true;
+    }
+
+    /**
+     * Looks up the pose at the given time, see {@link #sample(double, double[])}.
+     * 
+     * @return The interpolated pose, or null if there is no history covering the timestamp
+     */
+    public Pose2d getPoseAt(double timestamp) {
+        if (!sample(timestamp, m_lookup)) {
+            return null;
+        }
+        return new Pose2d(m_lookup[0], m_lookup[1], new Rotation2d(m_lookup[2]));
+    }
+
+    private int physicalIndex(int logicalIndex) {
+        return (m_start + logicalIndex) % m_timestamps.length;
+    }
+}
@@ -0,0 +1,155 @@
+package frc.robot.utils.odometry;
+
+import org.ejml.simple.SimpleMatrix;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Swerve drive odometry that doesn't allocate anything when it's updated.
+ * <p>
+ * It does the same math as WPILib's SwerveDriveOdometry: the change in each
+ * module's distance is turned into a robot relative twist with the least
+ * squares forward kinematics, the twist's rotation is replaced by how far the
+ * gyro turned, and the pose is moved along the twist. SwerveDriveOdometry
+ * builds a handful of geometry objects and matrices every update to do that,
+ * this keeps everything in primitive fields and takes the module positions as
+ * parallel arrays instead.
+ * <p>
+ * The pose is only turned into a Pose2d when someone asks for it.
+ */
+public class SwerveOdometry {
+    private final int m_moduleCount;
+    // Least squares forward kinematics, row 0 is vx, 1 is vy, 2 is omega. The
+    // columns alternate x and y for each module.
+    private final double[][] m_forwardKinematics;
+    private final double[] m_previousDistances;
+
+    private double m_x;
+    private double m_y;
+    private double m_theta;
+    // Field heading minus gyro heading
+    private double m_gyroOffset;
+    private double m_previousAngle;
+
+    private Pose2d m_pose;
+
+    /**
+     * Create a new odometry
+     * @param moduleLocations Where each module is relative to the center of the robot
+     * @param gyroAngle The gyro angle in radians
+     * @param distances How far each module has driven in meters
+     * @param angles The angle of each module in radians
+     * @param initialPose Where the robot starts on the field
+     */
+    public SwerveOdometry(Translation2d[] moduleLocations, double gyroAngle, double[] distances, double[] angles,
+            Pose2d initialPose) {
+        m_moduleCount = moduleLocations.length;
+        m_previousDistances = new double[m_moduleCount];
+
+        SimpleMatrix inverseKinematics = new SimpleMatrix(m_moduleCount * 2, 3);
+        for (int module = 0; module < m_moduleCount; module++) {
+            inverseKinematics.setRow(module * 2, 0, 1, 0, -moduleLocations[module].getY());
+            inverseKinematics.setRow(module * 2 + 1, 0, 0, 1, moduleLocations[module].getX());
+        }
+        SimpleMatrix forwardKinematics = inverseKinematics.pseudoInverse();
+        m_forwardKinematics = new double[3][m_moduleCount * 2];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < m_moduleCount * 2; column++) {
+                m_forwardKinematics[row][column] = forwardKinematics.get(row, column);
+            }
+        }
+
+        resetPosition(gyroAngle, distances, angles, initialPose);
+    }
+
+    /**
+     * Moves the robot to a new pose. The gyro and modules don't have to be
+     * reset, their current readings become the new starting point.
+     */
+    public void resetPosition(double gyroAngle, double[] distances, double[] angles, Pose2d pose) {
+        m_x = pose.getX();
+        m_y = pose.getY();
+        m_theta = pose.getRotation().getRadians();
+        m_gyroOffset = m_theta - gyroAngle;
+        m_previousAngle = m_theta;
+        System.arraycopy(distances, 0, m_previousDistances, 0, m_moduleCount);
+        m_pose = pose;
+    }
+
+    /**
+     * Updates the pose from new gyro and module readings.
+     *
+     * @param gyroAngle The gyro angle in radians
+     * @param distances How far each module has driven in meters
+     * @param angles The angle of each module in radians
+     */
+    public void update(double gyroAngle, double[] distances, double[] angles) {
+        double dx = 0.0;
+        double dy = 0.0;
+        for (int module = 0; module < m_moduleCount; module++) {
+            double delta = distances[module] - m_previousDistances[module];
+            m_previousDistances[module] = distances[module];
+
+            double moduleDx = delta * Math.cos(angles[module]);
+            double moduleDy = delta * Math.sin(angles[module]);
+            dx += m_forwardKinematics[0][module * 2] * moduleDx + m_forwardKinematics[0][module * 2 + 1] * moduleDy;
+            dy += m_forwardKinematics[1][module * 2] * moduleDx + m_forwardKinematics[1][module * 2 + 1] * moduleDy;
+        }
+
+        // The gyro is trusted for heading over the wheels
+        double angle = MathUtil.angleModulus(gyroAngle + m_gyroOffset);
+        double dtheta = MathUtil.angleModulus(angle - m_previousAngle);
+        m_previousAngle = angle;
+
+        // Same as Pose2d.exp(), the robot moved along an arc
+        double sinTheta = Math.sin(dtheta);
+        double cosTheta = Math.cos(dtheta);
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1e-9) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = 0.5 * dtheta;
+        } else {
+            s = sinTheta / dtheta;
+            c = (1.0 - cosTheta) / dtheta;
+        }
+        double robotDx = dx * s - dy * c;
+        double robotDy = dx * c + dy * s;
+
+        double cos = Math.cos(m_theta);
+        double sin = Math.sin(m_theta);
+        m_x += robotDx * cos - robotDy * sin;
+        m_y += robotDx * sin + robotDy * cos;
+        m_theta = angle;
+        m_pose = null;
+    }
+
+    public double getX() {
+        return m_x;
+    }
+
+    public double getY() {
+        return m_y;
+    }
+
+    /**
+     * @return the heading in radians
+     */
+    public double getTheta() {
+        return m_theta;
+    }
+
+    /**
+     * Gets the pose as a Pose2d. A new one is only built when the pose has
+     * changed since the last call.
+     */
+    public Pose2d getPoseMeters() {
+        if (m_pose == null) {
+            m_pose = new Pose2d(m_x, m_y, new Rotation2d(m_theta));
+        }
+        return m_pose;
+    }
+}
@@ -0,0 +1,128 @@
+package frc.robot.utils.odometry;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Fuses delayed field pose measurements (e.g. from vision) with wheel odometry.
+ * <p>
+ * Odometry keeps running untouched in its own frame. This class tracks where
+ * that odometry frame sits on the field, and the estimated field pose is the
+ * current odometry pose moved by that offset. When a measurement arrives we
+ * look up the odometry pose at the time the measurement was captured in the
+ * {@link PoseHistory}, blend the measurement with our estimate for that moment
+ * and move the offset to match. Everything odometry measured since the capture
+ * time is carried along by the offset, so nothing has to be replayed and an
+ * update costs a single binary search no matter how late it shows up.
+ * <p>
+ * The blend is a steady state Kalman gain per axis, q / (q + r), where q is the
+ * variance we expect in our own estimate and r is the variance of the
+ * measurement.
+ */
+public class VisionPoseEstimator {
+    private final PoseHistory m_history;
+    private final double[] m_lookup = new double[3];
+
+    // Variance we assign to our own estimate for x, y and theta
+    private final double m_stateVarianceX;
+    private final double m_stateVarianceY;
+    private final double m_stateVarianceTheta;
+
+    // Pose of the odometry frame's origin on the field
+    private double m_originX;
+    private double m_originY;
+    private double m_originTheta;
+
+    /**
+     * Create a new estimator
+     * 
+     * @param history The odometry pose history to look measurements up in
+     * @param stateStdDevX How much we trust odometry in x, in meters
+     * @param stateStdDevY How much we trust odometry in y, in meters
+     * @param stateStdDevTheta How much we trust the heading, in radians
+     */
+    public VisionPoseEstimator(PoseHistory history, double stateStdDevX, double stateStdDevY,
+            double stateStdDevTheta) {
+        m_history = history;
+        m_stateVarianceX = stateStdDevX * stateStdDevX;
+        m_stateVarianceY = stateStdDevY * stateStdDevY;
+        m_stateVarianceTheta = stateStdDevTheta * stateStdDevTheta;
+    }
+
+    /**
+     * Forget all corrections, the field and odometry frames line up again. Call
+     * this whenever odometry itself is reset.
+     */
+    public void reset() {
+        m_originX = 0.0;
+        m_originY = 0.0;
+        m_originTheta = 0.0;
+    }
+
+    /**
+     * Converts an odometry pose into the estimated field pose.
+     * 
+     * @param odometryX Odometry x in meters
+     * @param odometryY Odometry y in meters
+     * @param odometryTheta Odometry heading in radians
+     * @param out Receives the field x, y and theta (radians), must hold at least 3 values
+     */
+    public void getEstimatedPose(double odometryX, double odometryY, double odometryTheta, double[] out) {
+        double cos = Math.cos(m_originTheta);
+        double sin = Math.sin(m_originTheta);
+        out[0] = m_originX + (odometryX * cos) - (odometryY * sin);
+        out[1] = m_originY + (odometryX * sin) + (odometryY * cos);
+        out[2] = m_originTheta + odometryTheta;
+    }
+
+    /**
+     * Fuse a field pose measurement taken at some point in the recent past.
+     * 
+     * @param measuredPose Where the measurement says the robot was
+     * @param timestamp FPGA timestamp of when the measurement was captured, in seconds
+     * @param stdDevX Measurement standard deviation in x, in meters
+     * @param stdDevY Measurement standard deviation in y, in meters
+     * @param stdDevTheta Measurement standard deviation in heading, in radians
+     * @return false if the measurement was too old (or too early) for the pose history and was ignored
+     */
+    public boolean addMeasurement(Pose2d measuredPose, double timestamp, double stdDevX, double stdDevY,
+            double stdDevTheta) {
+        if (!m_history.sample(timestamp, m_lookup)) {
+            return false;
+        }
+
+        double odomX = m_lookup[0];
+        double odomY = m_lookup[1];
+        double odomTheta = m_lookup[2];
+
+        // Our estimate at the capture time
+        double cos = Math.cos(m_originTheta);
+        double sin = Math.sin(m_originTheta);
+        double estimateX = m_originX + (odomX * cos) - (odomY * sin);
+        double estimateY = m_originY + (odomX * sin) + (odomY * cos);
+        double estimateTheta = m_originTheta + odomTheta;
+
+        // Blend towards the measurement
+        estimateX += gain(m_stateVarianceX, stdDevX) * (measuredPose.getX() - estimateX);
+        estimateY += gain(m_stateVarianceY, stdDevY) * (measuredPose.getY() - estimateY);
+        estimateTheta += gain(m_stateVarianceTheta, stdDevTheta)
+                * MathUtil.angleModulus(measuredPose.getRotation().getRadians() - estimateTheta);
+
+        // Move the odometry frame so that the odometry pose at the capture time
+        // lands on the corrected estimate
+        m_originTheta = MathUtil.angleModulus(estimateTheta - odomTheta);
+        cos = Math.cos(m_originTheta);
+        sin = Math.sin(m_originTheta);
+        m_originX = estimateX - ((odomX * cos) - (odomY * sin));
+        m_originY = estimateY - ((odomX * sin) + (odomY * cos));
+        return true;
+    }
+
+    private static double gain(double stateVariance, double measurementStdDev) {
+        double measurementVariance = measurementStdDev * measurementStdDev;
+        if (stateVariance + measurementVariance == 0.0) {
+            return 0.0;
+        }
+        return stateVariance / (stateVariance + measurementVariance);
+    }
+}
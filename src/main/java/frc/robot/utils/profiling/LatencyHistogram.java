@@ -0,0 +1,93 @@
+package frc.robot.utils.profiling;
+
+/**
+ * A fixed size histogram of durations with log spaced buckets.
+ * <p>
+ * Durations under 4us get their own bucket, after that every doubling is split
+ * into 4 buckets, so percentiles are accurate to within ~25%. Recording is a
+ * couple of shifts and an array increment, nothing is allocated.
+ */
+public class LatencyHistogram {
+    // 4 exact buckets plus 4 per octave from 4us up to ~130ms, the last bucket
+    // also collects anything longer
+    private static final int BUCKET_COUNT = 4 + (4 * 16);
+
+    private final long[] m_buckets = new long[BUCKET_COUNT];
+    private long m_count;
+    private long m_maxNanos;
+    private long m_totalNanos;
+
+    public void record(long nanos) {
+        m_buckets[bucketIndex(nanos)]++;
+        m_count++;
+        m_totalNanos += nanos;
+        if (nanos > m_maxNanos) {
+            m_maxNanos = nanos;
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < m_buckets.length; i++) {
+            m_buckets[i] = 0;
+        }
+        m_count = 0;
+        m_maxNanos = 0;
+        m_totalNanos = 0;
+    }
+
+    public long getCount() {
+        return m_count;
+    }
+
+    public double getMaxMillis() {
+        return m_maxNanos / 1.0e6;
+    }
+
+    public double getMeanMillis() {
+        return m_count > 0 ? (m_totalNanos / (double) m_count) / 1.0e6 : 0.0;
+    }
+
+    /**
+     * Gets an upper bound for the given percentile.
+     * 
+     * @param percentile [0, 1]
+     * @return The upper edge of the bucket the percentile falls in, in milliseconds
+     */
+    public double getPercentileMillis(double percentile) {
+        if (m_count == 0) {
+            return 0.0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * m_count));
+        long seen = 0;
+        for (int i = 0; i < m_buckets.length; i++) {
+            seen += m_buckets[i];
+            if (seen >= target) {
+                // Never report more than we actually saw
+                return Math.min(bucketUpperMicros(i) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    static int bucketIndex(long nanos) {
+        long micros = nanos / 1000;
+        if (micros < 4) {
+            return (int) Math.max(0, micros);
+        }
+
+        int octave = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) ((micros >>> (octave - 2)) & 3);
+        return Math.min(4 + ((octave - 2) * 4) + subBucket, BUCKET_COUNT - 1);
+    }
+
+    static double bucketUpperMicros(int index) {
+        if (index < 4) {
+            return index + 1;
+        }
+
+        int octave = ((index - 4) / 4) + 2;
+        int subBucket = (index - 4) % 4;
+        return (double) ((long) (4 + subBucket + 1) << (octave - 2));
+    }
+}
@@ -0,0 +1,235 @@
+package frc.robot.utils.profiling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.utils.logging.AsyncLogger;
+
+/**
+ * Times every profiled subsystem periodic and every scheduled command.
+ * <p>
+ * Subsystems register a {@link Section} once and call {@link Section#begin()}
+ * and {@link Section#end()} around their periodic code. Commands are timed
+ * from the scheduler's callbacks instead of being wrapped: each execute or
+ * finish callback charges the time since the last mark to its command. That's
+ * the command's execute(), plus isFinished() and end() when it finishes. The
+ * scheduler asks a command that keeps running isFinished() after its execute
+ * callback, so that check is charged to the next command in the loop (and to
+ * nothing for the last one). Every section keeps
+ * a {@link LatencyHistogram}, p50/p99/max are published to NetworkTables every
+ * {@link #PUBLISH_PERIOD_LOOPS} loops, and the top offenders are printed when a
+ * loop goes over budget.
+ */
+public class LoopProfiler {
+    private static final int PUBLISH_PERIOD_LOOPS = 100;
+    private static final int OFFENDER_COUNT = 3;
+    // Don't flood the log when every loop overruns
+    private static final double OVERRUN_REPORT_PERIOD_SECONDS = 1.0;
+
+    private final NetworkTable m_table;
+    private final long m_loopBudgetNanos;
+
+    private final ArrayList<Section> m_sections = new ArrayList<>();
+    private final HashMap<String, Section> m_commandSections = new HashMap<>();
+    private final Section m_loopSection;
+    private final Section[] m_offenders = new Section[OFFENDER_COUNT];
+
+    private long m_loopStartNanos;
+    private long m_lastCommandMarkNanos;
+    // The command that last executed, held until we know whether it finished
+    // so its execute() and end() go in the histogram as one sample
+    private Section m_pendingCommandSection;
+    private long m_pendingCommandNanos;
+    private int m_loopCount;
+    private double m_lastOverrunReportTime = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Create a new profiler
+     * @param tableName The NetworkTables table to publish to
+     * @param loopBudgetSeconds Loops longer than this are reported as overruns
+     */
+    public LoopProfiler(String tableName, double loopBudgetSeconds) {
+        m_table = NetworkTableInstance.getDefault().getTable(tableName);
+        m_loopBudgetNanos = (long) (loopBudgetSeconds * 1.0e9);
+        m_loopSection = new Section("Loop", m_table);
+    }
+
+    /**
+     * Registers a new timed section. Call this once, e.g. when a subsystem is
+     * constructed, and keep the returned section around.
+     */
+    public Section registerSection(String name) {
+        Section section = new Section(name, m_table);
+        m_sections.add(section);
+        return section;
+    }
+
+    /**
+     * Starts timing command execution. Call this after all of the button
+     * bindings have been made so the marker runs after every trigger.
+     */
+    public void bindCommandTiming(CommandScheduler scheduler) {
+        // The button loop is polled after the subsystem periodics and right
+        // before the scheduled commands run
+        scheduler.getDefaultButtonLoop().bind(() -> m_lastCommandMarkNanos = System.nanoTime());
+        scheduler.onCommandExecute(this::commandExecuted);
+        // Called after isFinished() and end(), so a finishing command pays for
+        // those itself
+        scheduler.onCommandFinish(this::commandFinished);
+    }
+
+    public void startLoop() {
+        m_loopStartNanos = System.nanoTime();
+        m_lastCommandMarkNanos = m_loopStartNanos;
+    }
+
+    public void endLoop() {
+        recordPendingCommand();
+        long loopNanos = System.nanoTime() - m_loopStartNanos;
+        m_loopSection.record(loopNanos);
+
+        if (loopNanos > m_loopBudgetNanos) {
+            reportOverrun(loopNanos);
+        }
+
+        for (int i = 0; i < m_sections.size(); i++) {
+            m_sections.get(i).m_loopNanos = 0;
+        }
+
+        if (++m_loopCount >= PUBLISH_PERIOD_LOOPS) {
+            m_loopCount = 0;
+            m_loopSection.publish();
+            for (int i = 0; i < m_sections.size(); i++) {
+                m_sections.get(i).publish();
+            }
+        }
+    }
+
+    private void commandExecuted(Command command) {
+        long now = System.nanoTime();
+
+        recordPendingCommand();
+        m_pendingCommandSection = getCommandSection(command);
+        m_pendingCommandNanos = now - m_lastCommandMarkNanos;
+
+        // Don't charge the profiler's own bookkeeping to the next command
+        m_lastCommandMarkNanos = System.nanoTime();
+    }
+
+    private void commandFinished(Command command) {
+        long now = System.nanoTime();
+
+        Section section = getCommandSection(command);
+        if (section != m_pendingCommandSection) {
+            recordPendingCommand();
+            m_pendingCommandSection = section;
+            m_pendingCommandNanos = 0;
+        }
+        m_pendingCommandNanos += now - m_lastCommandMarkNanos;
+
+        m_lastCommandMarkNanos = System.nanoTime();
+    }
+
+    private void recordPendingCommand() {
+        if (m_pendingCommandSection != null) {
+            m_pendingCommandSection.record(m_pendingCommandNanos);
+            m_pendingCommandSection = null;
+        }
+    }
+
+    private Section getCommandSection(Command command) {
+        Section section = m_commandSections.get(command.getName());
+        if (section == null) {
+            section = registerSection("Commands/" + command.getName());
+            m_commandSections.put(command.getName(), section);
+        }
+        return section;
+    }
+
+    private void reportOverrun(long loopNanos) {
+        double now = Timer.getFPGATimestamp();
+        if (now - m_lastOverrunReportTime < OVERRUN_REPORT_PERIOD_SECONDS) {
+            return;
+        }
+        m_lastOverrunReportTime = now;
+
+        // Pick the slowest sections of this loop
+        for (int i = 0; i < m_offenders.length; i++) {
+            m_offenders[i] = null;
+        }
+        for (int i = 0; i < m_sections.size(); i++) {
+            Section section = m_sections.get(i);
+            for (int rank = 0; rank < m_offenders.length; rank++) {
+                if (m_offenders[rank] == null || section.m_loopNanos > m_offenders[rank].m_loopNanos) {
+                    System.arraycopy(m_offenders, rank, m_offenders, rank + 1, m_offenders.length - rank - 1);
+                    m_offenders[rank] = section;
+                    break;
+                }
+            }
+        }
+
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("Loop overrun: %.2fms, top:", loopNanos / 1.0e6));
+        for (Section offender : m_offenders) {
+            if (offender != null && offender.m_loopNanos > 0) {
+                message.append(String.format(" %s %.2fms", offender.m_name, offender.m_loopNanos / 1.0e6));
+            }
+        }
+        AsyncLogger.getInstance().log(message.toString());
+    }
+
+    /**
+     * A timed piece of the loop with its own histogram and NetworkTables entries.
+     */
+    public static class Section {
+        private final String m_name;
+        private final LatencyHistogram m_histogram = new LatencyHistogram();
+        private final DoublePublisher m_p50;
+        private final DoublePublisher m_p99;
+        private final DoublePublisher m_max;
+
+        private long m_startNanos;
+        // Time spent in this section during the current loop
+        private long m_loopNanos;
+
+        private Section(String name, NetworkTable table) {
+            m_name = name;
+            m_p50 = table.getDoubleTopic(name + "/p50Ms").publish();
+            m_p99 = table.getDoubleTopic(name + "/p99Ms").publish();
+            m_max = table.getDoubleTopic(name + "/maxMs").publish();
+        }
+
+        public void begin() {
+            m_startNanos = System.nanoTime();
+        }
+
+        public void end() {
+            record(System.nanoTime() - m_startNanos);
+        }
+
+        private void record(long nanos) {
+            m_histogram.record(nanos);
+            m_loopNanos += nanos;
+        }
+
+        private void publish() {
+            if (m_histogram.getCount() == 0) {
+                return;
+            }
+            m_p50.set(m_histogram.getPercentileMillis(0.5));
+            m_p99.set(m_histogram.getPercentileMillis(0.99));
+            m_max.set(m_histogram.getMaxMillis());
+            m_histogram.clear();
+        }
+
+        public String getName() {
+            return m_name;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package frc.robot.utils.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import com.swervedrivespecialties.swervelib.sim.SwerveSimulation;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants;
+import frc.robot.RobotContainer;
+import frc.robot.utils.profiling.LatencyHistogram;
+
+/**
+ * Runs the autos over and over in simulation as fast as the computer can go.
+ * <p>
+ * The FPGA clock is paused and stepped one loop at a time, so nothing waits on
+ * real time. Every run puts the arm back home, gets a fresh random battery
+ * voltage, encoder noise and gyro drift, starts disabled for a moment so the
+ * auto gets prebuilt like it would be on the field, then runs autonomous until
+ * the auto command finishes or the auto period is over. At the end it prints
+ * how long each auto took to finish and how long the robot code took per loop
+ * (in real time).
+ * <p>
+ * It's started by setting MATCH_REPLAY_RUNS when running the simulation,
+ * e.g.
+ * <pre>
+ * MATCH_REPLAY_RUNS=2000 ./gradlew simulateJava -Pheadless
+ * </pre>
+ * MATCH_REPLAY_AUTOS picks which autos to run, as a comma separated list of
+ * {@link Constants.AutoPosition} names (all of them by default), and
+ * MATCH_REPLAY_SEED makes the noise repeatable.
+ * <p>
+ * The swerve modules, elevator and extendo are all simulated in plain Java
+ * (see {@link com.swervedrivespecialties.swervelib.sim.SwerveSimulation} and
+ * {@link SimulatedMechanism}). Phoenix's simulated devices run on the wall
+ * clock and would fall behind the stepped clock, so nothing the autos wait on
+ * is read from them.
+ */
+public class MatchReplayHarness {
+    private static final String RUNS_VARIABLE = "MATCH_REPLAY_RUNS";
+    private static final String AUTOS_VARIABLE = "MATCH_REPLAY_AUTOS";
+    private static final String SEED_VARIABLE = "MATCH_REPLAY_SEED";
+
+    private static final double AUTO_SECONDS = 15.0;
+    // Long enough for disabledInit and for the auto to get prebuilt
+    private static final int DISABLED_LOOPS = 25;
+
+    private static final double NOMINAL_BATTERY_VOLTS = 12.5;
+    private static final double BATTERY_NOISE_VOLTS = 0.3;
+    private static final double ENCODER_NOISE_TICKS = 2.0;
+    private static final double GYRO_DRIFT_DEGREES = 0.01;
+
+    private final Runnable m_loop;
+    private final BooleanSupplier m_isAutoRunning;
+    private final double m_period = TimedRobot.kDefaultPeriod;
+
+    private final int m_runs;
+    private final long m_seed;
+    private final List<Constants.AutoPosition> m_autoPositions = new ArrayList<>();
+
+    /**
+     * Create a new harness
+     * @param loop Runs one iteration of the robot loop, i.e. the robot's loopFunc()
+     * @param isAutoRunning Whether the auto command that was started is still going
+     */
+    public MatchReplayHarness(Runnable loop, BooleanSupplier isAutoRunning) {
+        m_loop = loop;
+        m_isAutoRunning = isAutoRunning;
+
+        m_runs = Integer.parseInt(System.getenv(RUNS_VARIABLE));
+        String seed = System.getenv(SEED_VARIABLE);
+        m_seed = seed != null ? Long.parseLong(seed) : System.nanoTime();
+
+        String autos = System.getenv(AUTOS_VARIABLE);
+        if (autos == null || autos.isBlank()) {
+            m_autoPositions.addAll(Arrays.asList(Constants.AutoPosition.values()));
+        } else {
+            for (String auto : autos.split(",")) {
+                m_autoPositions.add(Constants.AutoPosition.valueOf(auto.trim()));
+            }
+        }
+    }
+
+    /**
+     * @return whether the simulation was started to run the harness
+     */
+    public static boolean isRequested() {
+        return System.getenv(RUNS_VARIABLE) != null;
+    }
+
+    /**
+     * Runs every auto the requested number of times and prints the results.
+     * Leaves the clock paused, so it's meant to be the last thing the
+     * simulation does.
+     */
+    public void run() {
+        System.out.println("Match replay: " + m_runs + " runs of " + m_autoPositions + ", seed " + m_seed);
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+
+        for (Constants.AutoPosition autoPosition : m_autoPositions) {
+            RobotContainer.getShuffleboardSubsystem().setAutoPositionOverride(autoPosition);
+
+            double[] completionTimes = new double[m_runs];
+            int completedRuns = 0;
+            LatencyHistogram loopCost = new LatencyHistogram();
+            long startNanos = System.nanoTime();
+
+            for (int run = 0; run < m_runs; run++) {
+                prepareRun(new Random(m_seed + (long) autoPosition.ordinal() * m_runs + run));
+
+                setMode(false, 0.0);
+                for (int loop = 0; loop < DISABLED_LOOPS; loop++) {
+                    step(loopCost);
+                }
+
+                double completionTime = runAuto(loopCost);
+                if (!Double.isNaN(completionTime)) {
+                    completionTimes[completedRuns++] = completionTime;
+                }
+            }
+
+            report(autoPosition, Arrays.copyOf(completionTimes, completedRuns), loopCost,
+                    (System.nanoTime() - startNanos) / 1.0e9);
+        }
+
+        setMode(false, 0.0);
+        RobotContainer.getShuffleboardSubsystem().setAutoPositionOverride(null);
+        SwerveSimulation.setSensorNoise(null, 0.0);
+        RobotContainer.getDrivetrainSubsystem().setSimulatedGyroDrift(null, 0.0);
+    }
+
+    /**
+     * Runs autonomous until the auto command is done or time is up.
+     *
+     * @return how long the auto took in seconds, or NaN if it didn't finish
+     */
+    private double runAuto(LatencyHistogram loopCost) {
+        int loops = (int) Math.round(AUTO_SECONDS / m_period);
+        for (int loop = 1; loop <= loops; loop++) {
+            setMode(true, AUTO_SECONDS - (loop - 1) * m_period);
+            step(loopCost);
+            if (!m_isAutoRunning.getAsBoolean()) {
+                return loop * m_period;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private void prepareRun(Random random) {
+        RobotContainer.getElevatorSubsystem().resetSimulation();
+        RobotContainer.getExtendoSubsystem().resetSimulation();
+        RoboRioSim.setVInVoltage(NOMINAL_BATTERY_VOLTS + random.nextGaussian() * BATTERY_NOISE_VOLTS);
+        SwerveSimulation.setSensorNoise(random, ENCODER_NOISE_TICKS);
+        RobotContainer.getDrivetrainSubsystem().setSimulatedGyroDrift(random, GYRO_DRIFT_DEGREES);
+    }
+
+    private void setMode(boolean isAutonomousEnabled, double matchTime) {
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(isAutonomousEnabled);
+        DriverStationSim.setMatchTime(matchTime);
+        DriverStationSim.notifyNewData();
+    }
+
+    /**
+     * Moves the clock forward one loop and runs the robot code for it.
+     */
+    private void step(LatencyHistogram loopCost) {
+        // Also lets any notifiers that came due run first
+        SimHooks.stepTiming(m_period);
+
+        long startNanos = System.nanoTime();
+        m_loop.run();
+        loopCost.record(System.nanoTime() - startNanos);
+    }
+
+    private void report(Constants.AutoPosition autoPosition, double[] completionTimes, LatencyHistogram loopCost,
+            double wallSeconds) {
+        double simulatedSeconds = loopCost.getCount() * m_period;
+        System.out.printf("%s: %d of %d runs finished, %.0fx real time%n", autoPosition, completionTimes.length,
+                m_runs, simulatedSeconds / wallSeconds);
+
+        if (completionTimes.length > 0) {
+            Arrays.sort(completionTimes);
+            double total = 0.0;
+            for (double completionTime : completionTimes) {
+                total += completionTime;
+            }
+            System.out.printf("  Completion time (s): min %.2f, mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                    completionTimes[0], total / completionTimes.length, percentile(completionTimes, 0.5),
+                    percentile(completionTimes, 0.9), percentile(completionTimes, 0.99),
+                    completionTimes[completionTimes.length - 1]);
+        }
+
+        System.out.printf("  Loop cost (ms): mean %.3f, p50 %.3f, p99 %.3f, max %.3f over %d loops%n",
+                loopCost.getMeanMillis(), loopCost.getPercentileMillis(0.5), loopCost.getPercentileMillis(0.99),
+                loopCost.getMaxMillis(), loopCost.getCount());
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
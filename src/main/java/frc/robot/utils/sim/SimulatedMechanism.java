@@ -0,0 +1,104 @@
+package frc.robot.utils.sim;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * A motor driven mechanism that moves in a straight line, like the elevator or
+ * the extendo arm, for simulation.
+ * <p>
+ * It's modeled the same way a feedforward sees it: volts = kG + kV * velocity
+ * + kA * acceleration, in whatever units the subsystem measures in. A closed
+ * brake holds it where it is, and it stops dead at either end of its travel.
+ * <p>
+ * It's plain Java, nothing goes through Phoenix's simulated firmware (which
+ * runs on the wall clock), so it keeps up when the simulation is stepped
+ * faster than real time. The subsystem tells it what voltage it's putting out
+ * and reads its position back instead of asking the motor.
+ */
+public class SimulatedMechanism {
+    private final double m_kV;
+    private final double m_kA;
+    private final double m_kG;
+    private final double m_minPosition;
+    private final double m_maxPosition;
+
+    // Set from the interrupt thread when a limit stops the motor
+    private volatile double m_inputVolts = 0.0;
+    private boolean m_isBraked = false;
+
+    private double m_position;
+    private double m_velocity = 0.0;
+
+    /**
+     * Create a new mechanism
+     * @param kV Volts per unit per second
+     * @param kA Volts per unit per second squared
+     * @param kG Volts it takes to hold the mechanism against gravity
+     * @param minPosition Where the mechanism's travel ends going backwards
+     * @param maxPosition Where the mechanism's travel ends going forwards
+     * @param startPosition Where the mechanism starts out
+     */
+    public SimulatedMechanism(double kV, double kA, double kG, double minPosition, double maxPosition,
+            double startPosition) {
+        m_kV = kV;
+        m_kA = kA;
+        m_kG = kG;
+        m_minPosition = minPosition;
+        m_maxPosition = maxPosition;
+        m_position = startPosition;
+    }
+
+    public void setInputVoltage(double volts) {
+        m_inputVolts = volts;
+    }
+
+    public void setBraked(boolean isBraked) {
+        m_isBraked = isBraked;
+    }
+
+    /**
+     * Puts the mechanism back at rest somewhere, e.g. between simulated matches.
+     */
+    public void reset(double position) {
+        m_position = position;
+        m_velocity = 0.0;
+    }
+
+    public double getPosition() {
+        return m_position;
+    }
+
+    public double getVelocity() {
+        return m_velocity;
+    }
+
+    /**
+     * Moves the mechanism forward in time, with the input voltage held for the
+     * whole step.
+     */
+    public void update(double dtSeconds) {
+        if (m_isBraked) {
+            m_velocity = 0.0;
+            return;
+        }
+
+        double batteryVolts = RobotController.getBatteryVoltage();
+        double volts = MathUtil.clamp(m_inputVolts, -batteryVolts, batteryVolts);
+
+        // Velocity settles towards where the voltage balances the back EMF and
+        // gravity, solved exactly so big steps don't go unstable
+        double settledVelocity = (volts - m_kG) / m_kV;
+        double decay = Math.exp(-dtSeconds * m_kV / m_kA);
+        m_position += settledVelocity * dtSeconds + (m_velocity - settledVelocity) * (1.0 - decay) * m_kA / m_kV;
+        m_velocity = settledVelocity + (m_velocity - settledVelocity) * decay;
+
+        if (m_position <= m_minPosition) {
+            m_position = m_minPosition;
+            m_velocity = Math.max(m_velocity, 0.0);
+        } else if (m_position >= m_maxPosition) {
+            m_position = m_maxPosition;
+            m_velocity = Math.min(m_velocity, 0.0);
+        }
+    }
+}
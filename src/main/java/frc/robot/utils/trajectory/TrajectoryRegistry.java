@@ -0,0 +1,119 @@
+package frc.robot.utils.trajectory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.pathplanner.lib.PathConstraints;
+import com.pathplanner.lib.PathPlanner;
+import com.pathplanner.lib.PathPlannerTrajectory;
+
+import frc.robot.utils.logging.LogSite;
+
+/**
+ * Loads and generates PathPlanner trajectories ahead of time and keeps them.
+ * <p>
+ * PathPlanner.loadPath() reads the .path file out of the deploy directory and
+ * generates the whole trajectory, which is way too slow to do when auto
+ * starts. Paths that autos are going to use get {@link #preload}ed during
+ * robotInit, and a background thread loads them while the robot sits
+ * disabled. By the time an auto command is built, {@link #get} just hands back
+ * the finished trajectory.
+ * <p>
+ * Trajectories are cached by path name and constraints, since the same path
+ * generated with different constraints is a different trajectory. Asking for
+ * one that was never preloaded still works, it's just loaded on the spot.
+ */
+public class TrajectoryRegistry {
+    private static final LogSite LOADED_LOG = new LogSite("Loaded path %s in %.1f ms");
+    private static final LogSite NOT_FOUND_LOG = new LogSite("Path %s wasn't found in deploy/pathplanner");
+    private static final LogSite FAILED_LOG = new LogSite("Couldn't load path %s: %s");
+
+    private final ConcurrentHashMap<String, FutureTask<PathPlannerTrajectory>> m_trajectories = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<FutureTask<PathPlannerTrajectory>> m_pending = new LinkedBlockingQueue<>();
+    private final Thread m_loaderThread;
+
+    public TrajectoryRegistry() {
+        m_loaderThread = new Thread(this::loadLoop, "TrajectoryLoader");
+        m_loaderThread.setDaemon(true);
+        m_loaderThread.setPriority(Thread.MIN_PRIORITY);
+        m_loaderThread.start();
+    }
+
+    /**
+     * Queues a trajectory to be loaded on the background thread. Preloading
+     * one that's already loaded or queued does nothing.
+     */
+    public void preload(String pathName, double maxVelocity, double maxAcceleration) {
+        FutureTask<PathPlannerTrajectory> task = getTask(pathName, maxVelocity, maxAcceleration);
+        if (!task.isDone()) {
+            m_pending.offer(task);
+        }
+    }
+
+    /**
+     * Gets a trajectory, waiting for the background thread if it's still
+     * being loaded, or loading it right here if it was never preloaded.
+     *
+     * @return the trajectory, or null if the path couldn't be loaded
+     */
+    public PathPlannerTrajectory get(String pathName, double maxVelocity, double maxAcceleration) {
+        FutureTask<PathPlannerTrajectory> task = getTask(pathName, maxVelocity, maxAcceleration);
+        // Does nothing if the loader thread already ran it
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            FAILED_LOG.log(pathName, String.valueOf(e.getCause()));
+            return null;
+        }
+    }
+
+    /**
+     * @return whether every preloaded trajectory is ready
+     */
+    public boolean isLoaded() {
+        for (FutureTask<PathPlannerTrajectory> task : m_trajectories.values()) {
+            if (!task.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private FutureTask<PathPlannerTrajectory> getTask(String pathName, double maxVelocity, double maxAcceleration) {
+        String key = pathName + "@" + maxVelocity + "," + maxAcceleration;
+        return m_trajectories.computeIfAbsent(key, k -> new FutureTask<>(() -> load(pathName, maxVelocity,
+                maxAcceleration)));
+    }
+
+    private static PathPlannerTrajectory load(String pathName, double maxVelocity, double maxAcceleration) {
+        long startTime = System.nanoTime();
+        PathPlannerTrajectory trajectory = PathPlanner.loadPath(pathName,
+                new PathConstraints(maxVelocity, maxAcceleration));
+        if (trajectory == null) {
+            NOT_FOUND_LOG.log(pathName);
+        } else {
+            LOADED_LOG.log(pathName, (System.nanoTime() - startTime) / 1.0e6);
+        }
+        return trajectory;
+    }
+
+    private void loadLoop() {
+        while (true) {
+            try {
+                FutureTask<PathPlannerTrajectory> task = m_pending.take();
+                if (task.isDone()) {
+                    continue;
+                }
+                task.run();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.RobotContainer;
+
+class DrivetrainSubsystemTest {
+    private static final int WARMUP_LOOPS = 5000;
+    private static final int MEASURED_LOOPS = 500;
+
+    @BeforeAll
+    static void setup() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @Test
+    void odometryUpdateDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        DrivetrainSubsystem drivetrain = RobotContainer.getDrivetrainSubsystem();
+
+        // Warm up so class loading and the JIT don't count
+        for (int loop = 0; loop < WARMUP_LOOPS; loop++) {
+            moveRobot(drivetrain, loop);
+            drivetrain.updateOdometry();
+        }
+
+        // Only the odometry update is measured, the simulation allocates
+        long allocated = 0;
+        for (int loop = 0; loop < MEASURED_LOOPS; loop++) {
+            moveRobot(drivetrain, loop);
+
+            long before = threads.getThreadAllocatedBytes(thread);
+            drivetrain.updateOdometry();
+            allocated += threads.getThreadAllocatedBytes(thread) - before;
+        }
+
+        assertEquals(0, allocated, "bytes allocated by " + MEASURED_LOOPS + " odometry updates");
+    }
+
+    /**
+     * Drives and turns every module so the encoders and gyro read something new
+     * every loop.
+     */
+    private static void moveRobot(DrivetrainSubsystem drivetrain, int loop) {
+        double angle = 0.01 * loop;
+        drivetrain.driveRaw(6.0, -4.0, 6.0, -4.0, angle, angle + 1.0, angle + 2.0, angle + 3.0);
+        drivetrain.simulationPeriodic();
+    }
+}
@@ -0,0 +1,179 @@
+package frc.robot.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+class DigitalInputFilterTest {
+    private static final double GLITCH = 0.002;
+    // Nothing on the robot uses it
+    private static final int SIM_CHANNEL = 9;
+
+    @Test
+    void startsAtTheFirstReading() {
+        DigitalInputFilter filter = new DigitalInputFilter(GLITCH, 0.0);
+
+        assertTrue(filter.update(true, 0.0));
+        assertEquals(0, filter.getRisingEdgeCount());
+        assertEquals(0, filter.getFallingEdgeCount());
+        assertEquals(0.0, filter.getLastEdgeTime());
+    }
+
+    @Test
+    void rejectsGlitches() {
+        DigitalInputFilter filter = new DigitalInputFilter(GLITCH, 0.0);
+        filter.update(true, 0.0);
+
+        // Low for 1 ms and back
+        assertTrue(filter.update(false, 1.0));
+        assertTrue(filter.update(true, 1.001));
+        assertTrue(filter.update(true, 1.1));
+
+        assertEquals(0, filter.getFallingEdgeCount());
+        assertEquals(0, filter.getRisingEdgeCount());
+    }
+
+    @Test
+    void acceptsAfterTheGlitchTime() {
+        DigitalInputFilter filter = new DigitalInputFilter(GLITCH, 0.0);
+        filter.update(true, 0.0);
+
+        assertTrue(filter.update(false, 1.0));
+        assertTrue(filter.update(false, 1.0015));
+        assertFalse(filter.update(false, 1.003));
+
+        assertEquals(1, filter.getFallingEdgeCount());
+        // Timed from when it really went low
+        assertEquals(1.0, filter.getLastEdgeTime(), 1e-9);
+    }
+
+    @Test
+    void debounceLocksOutTheNextEdge() {
+        DigitalInputFilter filter = new DigitalInputFilter(0.0, 0.05);
+        filter.update(true, 0.0);
+
+        assertFalse(filter.update(false, 1.0));
+        // Back up too soon, held until the debounce time is up
+        assertFalse(filter.update(true, 1.01));
+        assertFalse(filter.update(true, 1.04));
+        assertTrue(filter.update(true, 1.051));
+
+        assertEquals(1, filter.getRisingEdgeCount());
+        assertEquals(1.01, filter.getLastEdgeTime(), 1e-9);
+        assertEquals(0.01, filter.getLastLowPulseWidth(), 1e-9);
+
+        // Chatter inside the next lockout never gets through
+        assertTrue(filter.update(false, 1.06));
+        assertTrue(filter.update(true, 1.07));
+        assertTrue(filter.update(true, 1.2));
+        assertEquals(1, filter.getFallingEdgeCount());
+    }
+
+    @Test
+    void countsEdgesAndTimesPulses() {
+        DigitalInputFilter filter = new DigitalInputFilter(GLITCH, 0.0);
+        filter.update(false, 0.0);
+
+        filter.update(true, 1.0);
+        filter.update(true, 1.005);
+        filter.update(false, 1.25);
+        filter.update(false, 1.26);
+        filter.update(true, 1.5);
+        filter.update(true, 1.51);
+
+        assertEquals(2, filter.getRisingEdgeCount());
+        assertEquals(1, filter.getFallingEdgeCount());
+        assertEquals(0.25, filter.getLastHighPulseWidth(), 1e-9);
+        assertEquals(0.25, filter.getLastLowPulseWidth(), 1e-9);
+        assertEquals(1.5, filter.getLastEdgeTime(), 1e-9);
+    }
+
+    @Test
+    void catchesAPulseSeenOnlyAsTwoEdges() {
+        DigitalInputFilter filter = new DigitalInputFilter(GLITCH, 0.0);
+        filter.update(false, 0.0);
+
+        // High for 10 ms, but nothing looked in between the edges
+        filter.update(true, 1.0);
+        filter.update(false, 1.01);
+        assertFalse(filter.update(false, 1.02));
+
+        assertEquals(1, filter.getRisingEdgeCount());
+        assertEquals(1, filter.getFallingEdgeCount());
+        assertEquals(0.01, filter.getLastHighPulseWidth(), 1e-9);
+    }
+
+    @Test
+    void lateEdgeMovesTheChangeEarlier() {
+        DigitalInputFilter filter = new DigitalInputFilter(GLITCH, 0.0);
+        filter.update(true, 0.0);
+
+        // The loop polls and sees it low first, too new to believe yet
+        assertTrue(filter.update(false, 1.005));
+        // Then the interrupt edge from 5 ms earlier gets dispatched
+        assertFalse(filter.update(false, 1.0));
+
+        assertEquals(1, filter.getFallingEdgeCount());
+        assertEquals(1.0, filter.getLastEdgeTime(), 1e-9);
+        assertEquals(1.0, filter.getLastHighPulseWidth(), 1e-9);
+
+        // A late edge for a level that's already gone is ignored
+        assertFalse(filter.update(true, 0.9));
+        assertEquals(0, filter.getRisingEdgeCount());
+    }
+
+    @Test
+    void resetStartsOver() {
+        DigitalInputFilter filter = new DigitalInputFilter(GLITCH, 0.0);
+        filter.update(true, 0.0);
+        filter.update(false, 1.0);
+        filter.update(false, 1.1);
+
+        filter.reset();
+
+        assertTrue(filter.update(true, 2.0));
+        assertEquals(0, filter.getFallingEdgeCount());
+        assertEquals(0.0, filter.getLastHighPulseWidth());
+        assertEquals(2.0, filter.getLastEdgeTime());
+    }
+
+    @Test
+    void filtersASimulatedInput() {
+        assertTrue(HAL.initialize(500, 0));
+        SimHooks.pauseTiming();
+        try {
+            DIOSim sim = new DIOSim(SIM_CHANNEL);
+            CT_DigitalInput input = new CT_DigitalInput(SIM_CHANNEL);
+            sim.setValue(true);
+            DigitalInputFilter filter = input.enableFilter(GLITCH, 0.0);
+            assertTrue(input.getFiltered());
+
+            // 1 ms glitch
+            sim.setValue(false);
+            SimHooks.stepTiming(0.001);
+            assertTrue(input.getFiltered());
+            sim.setValue(true);
+            SimHooks.stepTiming(0.001);
+            assertTrue(input.getFiltered());
+
+            // A real press
+            sim.setValue(false);
+            assertTrue(input.getFiltered());
+            SimHooks.stepTiming(0.001);
+            assertTrue(input.getFiltered());
+            SimHooks.stepTiming(0.002);
+            assertFalse(input.getFiltered());
+
+            assertEquals(1, filter.getFallingEdgeCount());
+            assertEquals(0, filter.getRisingEdgeCount());
+        } finally {
+            SimHooks.resumeTiming();
+        }
+    }
+}
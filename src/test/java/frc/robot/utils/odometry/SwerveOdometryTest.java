@@ -0,0 +1,114 @@
+package frc.robot.utils.odometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+class SwerveOdometryTest {
+    private static final Translation2d[] MODULE_LOCATIONS = {
+            new Translation2d(0.3, 0.3),
+            new Translation2d(0.3, -0.3),
+            new Translation2d(-0.3, 0.3),
+            new Translation2d(-0.3, -0.3)
+    };
+
+    @Test
+    void matchesWpilibOdometry() {
+        Random random = new Random(2228);
+        double[] distances = new double[4];
+        double[] angles = new double[4];
+        double gyroAngle = 0.3;
+        Pose2d startPose = new Pose2d(1.0, 2.0, new Rotation2d(0.5));
+
+        SwerveDriveOdometry expected = new SwerveDriveOdometry(new SwerveDriveKinematics(MODULE_LOCATIONS),
+                new Rotation2d(gyroAngle), toPositions(distances, angles), startPose);
+        SwerveOdometry odometry = new SwerveOdometry(MODULE_LOCATIONS, gyroAngle, distances, angles, startPose);
+
+        for (int loop = 0; loop < 1000; loop++) {
+            for (int module = 0; module < 4; module++) {
+                distances[module] += random.nextDouble() * 0.08 - 0.02;
+                angles[module] = MathUtil.angleModulus(angles[module] + random.nextGaussian() * 0.1);
+            }
+            gyroAngle += random.nextGaussian() * 0.05;
+
+            Pose2d expectedPose = expected.update(new Rotation2d(gyroAngle), toPositions(distances, angles));
+            odometry.update(gyroAngle, distances, angles);
+
+            assertEquals(expectedPose.getX(), odometry.getX(), 1e-9);
+            assertEquals(expectedPose.getY(), odometry.getY(), 1e-9);
+            assertEquals(0.0, MathUtil.angleModulus(expectedPose.getRotation().getRadians() - odometry.getTheta()),
+                    1e-9);
+        }
+    }
+
+    @Test
+    void resetMovesThePose() {
+        double[] distances = { 1.0, 2.0, 3.0, 4.0 };
+        double[] angles = new double[4];
+        SwerveOdometry odometry = new SwerveOdometry(MODULE_LOCATIONS, 0.0, distances, angles, new Pose2d());
+
+        odometry.resetPosition(1.0, distances, angles, new Pose2d(5.0, 6.0, new Rotation2d(-0.5)));
+        // Nothing moved since the reset
+        odometry.update(1.0, distances, angles);
+
+        assertEquals(5.0, odometry.getX(), 1e-9);
+        assertEquals(6.0, odometry.getY(), 1e-9);
+        assertEquals(-0.5, odometry.getTheta(), 1e-9);
+        assertEquals(5.0, odometry.getPoseMeters().getX(), 1e-9);
+    }
+
+    @Test
+    void updateDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        double[] distances = new double[4];
+        double[] angles = new double[4];
+        SwerveOdometry odometry = new SwerveOdometry(MODULE_LOCATIONS, 0.0, distances, angles, new Pose2d());
+
+        // Warm up so class loading and the JIT don't count
+        for (int loop = 0; loop < 20000; loop++) {
+            step(odometry, distances, angles, loop);
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int loop = 0; loop < 1000; loop++) {
+            step(odometry, distances, angles, loop);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(0, allocated, "bytes allocated by 1000 odometry updates");
+    }
+
+    private static void step(SwerveOdometry odometry, double[] distances, double[] angles, int loop) {
+        for (int module = 0; module < 4; module++) {
+            distances[module] += 0.01;
+            angles[module] = 0.001 * loop;
+        }
+        odometry.update(0.002 * loop, distances, angles);
+    }
+
+    private static SwerveModulePosition[] toPositions(double[] distances, double[] angles) {
+        SwerveModulePosition[] positions = new SwerveModulePosition[distances.length];
+        for (int module = 0; module < distances.length; module++) {
+            positions[module] = new SwerveModulePosition(distances[module], new Rotation2d(angles[module]));
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,136 @@
+package frc.robot.utils.odometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class VisionPoseEstimatorTest {
+    private static final double PERIOD = 0.02;
+    private static final int LOOPS = 1000;
+    // A measurement every 100 ms that shows up 100 ms after it was captured
+    private static final int MEASUREMENT_INTERVAL_LOOPS = 5;
+    private static final int LATENCY_LOOPS = 5;
+
+    // The robot drives a circle with a 2 m radius at 1 m/s
+    private static final double SPEED = 1.0;
+    private static final double TURN_RATE = 0.5;
+
+    // Odometry thinks the wheels went 5% further than they did, and the gyro
+    // drifts
+    private static final double ODOMETRY_SCALE = 1.05;
+    private static final double GYRO_DRIFT_PER_SECOND = 0.02;
+
+    @Test
+    void convergesOnDelayedMeasurements() {
+        PoseHistory history = new PoseHistory(100);
+        VisionPoseEstimator estimator = new VisionPoseEstimator(history, 0.1, 0.1, 0.05);
+        Random random = new Random(2228);
+
+        double[] trueX = new double[LOOPS];
+        double[] trueY = new double[LOOPS];
+        double[] trueTheta = new double[LOOPS];
+        double odometryX = 0.0;
+        double odometryY = 0.0;
+        double odometryTheta = 0.0;
+        double[] fused = new double[3];
+        double maxFusedError = 0.0;
+        double maxFusedHeadingError = 0.0;
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            double time = loop * PERIOD;
+            trueTheta[loop] = TURN_RATE * time;
+            trueX[loop] = SPEED / TURN_RATE * Math.sin(trueTheta[loop]);
+            trueY[loop] = SPEED / TURN_RATE * (1.0 - Math.cos(trueTheta[loop]));
+
+            if (loop > 0) {
+                odometryTheta += (TURN_RATE + GYRO_DRIFT_PER_SECOND) * PERIOD;
+                odometryX += SPEED * ODOMETRY_SCALE * PERIOD * Math.cos(odometryTheta);
+                odometryY += SPEED * ODOMETRY_SCALE * PERIOD * Math.sin(odometryTheta);
+            }
+            history.add(time, odometryX, odometryY, odometryTheta);
+
+            if (loop >= LATENCY_LOOPS && loop % MEASUREMENT_INTERVAL_LOOPS == 0) {
+                int captured = loop - LATENCY_LOOPS;
+                Pose2d measured = new Pose2d(
+                        trueX[captured] + random.nextGaussian() * 0.05,
+                        trueY[captured] + random.nextGaussian() * 0.05,
+                        new Rotation2d(trueTheta[captured] + random.nextGaussian() * 0.01));
+                assertTrue(estimator.addMeasurement(measured, captured * PERIOD, 0.3, 0.3, 0.15));
+            }
+
+            estimator.getEstimatedPose(odometryX, odometryY, odometryTheta, fused);
+
+            // Give it the first half to pull in
+            if (loop >= LOOPS / 2) {
+                maxFusedError = Math.max(maxFusedError,
+                        Math.hypot(fused[0] - trueX[loop], fused[1] - trueY[loop]));
+                maxFusedHeadingError = Math.max(maxFusedHeadingError,
+                        Math.abs(MathUtil.angleModulus(fused[2] - trueTheta[loop])));
+            }
+        }
+
+        int last = LOOPS - 1;
+        double odometryError = Math.hypot(odometryX - trueX[last], odometryY - trueY[last]);
+        assertTrue(odometryError > 0.5, "odometry should have drifted, was off by " + odometryError);
+        assertTrue(maxFusedError < 0.15, "fused pose was off by up to " + maxFusedError);
+        assertTrue(maxFusedHeadingError < 0.05, "fused heading was off by up to " + maxFusedHeadingError);
+    }
+
+    @Test
+    void passesOdometryThroughUntilCorrected() {
+        PoseHistory history = new PoseHistory(10);
+        VisionPoseEstimator estimator = new VisionPoseEstimator(history, 0.1, 0.1, 0.05);
+        double[] fused = new double[3];
+
+        estimator.getEstimatedPose(1.0, 2.0, 0.5, fused);
+
+        assertEquals(1.0, fused[0], 1e-9);
+        assertEquals(2.0, fused[1], 1e-9);
+        assertEquals(0.5, fused[2], 1e-9);
+    }
+
+    @Test
+    void ignoresMeasurementsOutsideTheHistory() {
+        PoseHistory history = new PoseHistory(10);
+        VisionPoseEstimator estimator = new VisionPoseEstimator(history, 0.1, 0.1, 0.05);
+        Pose2d measured = new Pose2d(1.0, 1.0, new Rotation2d());
+
+        // Nothing recorded yet
+        assertFalse(estimator.addMeasurement(measured, 0.0, 0.3, 0.3, 0.15));
+
+        for (int loop = 0; loop < 20; loop++) {
+            history.add(loop * PERIOD, 0.0, 0.0, 0.0);
+        }
+        // Older than anything still in the history
+        assertFalse(estimator.addMeasurement(measured, 0.05, 0.3, 0.3, 0.15));
+
+        double[] fused = new double[3];
+        estimator.getEstimatedPose(0.0, 0.0, 0.0, fused);
+        assertEquals(0.0, fused[0], 1e-9);
+        assertEquals(0.0, fused[1], 1e-9);
+    }
+
+    @Test
+    void resetDropsCorrections() {
+        PoseHistory history = new PoseHistory(10);
+        VisionPoseEstimator estimator = new VisionPoseEstimator(history, 0.1, 0.1, 0.05);
+        history.add(0.0, 0.0, 0.0, 0.0);
+        assertTrue(estimator.addMeasurement(new Pose2d(1.0, 1.0, new Rotation2d(0.2)), 0.0, 0.1, 0.1, 0.05));
+
+        estimator.reset();
+
+        double[] fused = new double[3];
+        estimator.getEstimatedPose(3.0, 4.0, 0.1, fused);
+        assertEquals(3.0, fused[0], 1e-9);
+        assertEquals(4.0, fused[1], 1e-9);
+        assertEquals(0.1, fused[2], 1e-9);
+    }
+}